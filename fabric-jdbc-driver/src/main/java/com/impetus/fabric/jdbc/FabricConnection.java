@@ -35,6 +35,8 @@ import java.util.Properties;
 import java.util.concurrent.Executor;
 
 import com.impetus.blkch.jdbc.BlkchnConnection;
+import com.impetus.fabric.query.LedgerStatistics;
+import com.impetus.fabric.query.PeerHealth;
 import com.impetus.fabric.query.QueryBlock;
 
 public class FabricConnection implements BlkchnConnection {
@@ -88,6 +90,29 @@ public class FabricConnection implements BlkchnConnection {
         return url;
     }
 
+    /**
+     * Health and circuit breaker state of every peer this connection has talked to,
+     * keyed by peer name.
+     */
+    public Map<String, PeerHealth> getPeerHealth() {
+        return qb.getPeerHealth();
+    }
+
+    /**
+     * Statistics of the ledger gathered from the blocks queried through this connection.
+     */
+    public LedgerStatistics getLedgerStatistics() {
+        return qb.getStatistics();
+    }
+
+    /**
+     * Releases the channels and threads held by this connection. Unlike close, which
+     * leaves the connection usable, the connection is dead afterwards.
+     */
+    public void release() {
+        qb.shutdown();
+    }
+
     public boolean isWrapperFor(Class<?> iface) throws SQLException {
         throw new UnsupportedOperationException();
     }
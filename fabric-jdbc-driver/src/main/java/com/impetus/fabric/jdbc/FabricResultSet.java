@@ -15,10 +15,12 @@
 ******************************************************************************/
 package com.impetus.fabric.jdbc;
 
+import java.io.Reader;
 import java.math.BigDecimal;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.sql.Array;
+import java.sql.Clob;
 import java.sql.Date;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
@@ -27,10 +29,13 @@ import java.sql.Timestamp;
 import java.text.DateFormat;
 import java.text.ParseException;
 
+import javax.sql.rowset.serial.SerialClob;
+
 import com.impetus.blkch.BlkchnException;
 import com.impetus.blkch.jdbc.AbstractResultSet;
 import com.impetus.blkch.jdbc.BlkchnArray;
 import com.impetus.blkch.sql.DataFrame;
+import com.impetus.fabric.parser.PagedCall;
 
 public class FabricResultSet extends AbstractResultSet {
 
@@ -46,6 +51,11 @@ public class FabricResultSet extends AbstractResultSet {
 
     private boolean closed;
 
+    private long rawDataSize;
+
+    // Pages after the current one of a paged call, null for other results
+    private PagedCall pages;
+
     private static final int BEFORE_FIRST = -1;
 
     FabricResultSet(Statement statement, DataFrame dataframe, String tableName) {
@@ -56,10 +66,35 @@ public class FabricResultSet extends AbstractResultSet {
         this.closed = false;
     }
 
+    /**
+     * Result set over the pages of a paged call, which are fetched as it is read.
+     */
+    FabricResultSet(Statement statement, PagedCall pages, String tableName) {
+        this(statement, pages.next(), tableName);
+        this.pages = pages;
+    }
+
+    void setRawDataSize(long rawDataSize) {
+        this.rawDataSize = rawDataSize;
+    }
+
+    /**
+     * Serialized size in bytes of the ledger objects the rows of this result set
+     * were read from. They are kept with the result set only when
+     * {@code config.query.retainRawData} is set, so this is the heap enabling it
+     * costs or, when enabled, the heap it holds.
+     */
+    public long getRawDataSize() {
+        return rawDataSize;
+    }
+
     public void close() throws SQLException {
         if (!isClosed()) {
             closed = true;
             statement = null;
+            if (pages != null) {
+                pages.close();
+            }
         }
 
     }
@@ -77,7 +112,11 @@ public class FabricResultSet extends AbstractResultSet {
         if (index > recordData.length) {
             throw new SQLException(String.format("Result set doesn't contain index %d", index));
         }
-        return recordData[index - 1] == null ? new BigDecimal(0.0) : new BigDecimal(recordData[index - 1].toString());
+        Object value = recordData[index - 1];
+        if (value instanceof BigDecimal) {
+            return (BigDecimal) value;
+        }
+        return value == null ? new BigDecimal(0.0) : new BigDecimal(value.toString());
     }
 
     public BigDecimal getBigDecimal(String column) throws SQLException {
@@ -96,7 +135,11 @@ public class FabricResultSet extends AbstractResultSet {
         if (index > recordData.length) {
             throw new SQLException(String.format("Result set doesn't contain index %d", index));
         }
-        return recordData[index - 1] == null ? false : Boolean.parseBoolean(recordData[index - 1].toString());
+        Object value = recordData[index - 1];
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        }
+        return value == null ? false : Boolean.parseBoolean(value.toString());
     }
 
     public boolean getBoolean(String column) throws SQLException {
@@ -107,7 +150,11 @@ public class FabricResultSet extends AbstractResultSet {
         if (index > recordData.length) {
             throw new SQLException(String.format("Result set doesn't contain index %d", index));
         }
-        return recordData[index - 1] == null ? 0 : Byte.parseByte(recordData[index - 1].toString());
+        Object value = recordData[index - 1];
+        if (value instanceof Number) {
+            return ((Number) value).byteValue();
+        }
+        return value == null ? 0 : Byte.parseByte(value.toString());
     }
 
     public byte getByte(String column) throws SQLException {
@@ -122,6 +169,9 @@ public class FabricResultSet extends AbstractResultSet {
         if (index > recordData.length) {
             throw new SQLException(String.format("Result set doesn't contain index %d", index));
         }
+        if (recordData[index - 1] instanceof java.util.Date) {
+            return new java.sql.Date(((java.util.Date) recordData[index - 1]).getTime());
+        }
         DateFormat format = DateFormat.getDateInstance();
         try {
             return recordData[index - 1] == null ? null : new java.sql.Date(format.parse(
@@ -140,7 +190,18 @@ public class FabricResultSet extends AbstractResultSet {
         if (index > recordData.length) {
             throw new SQLException(String.format("Result set doesn't contain index %d", index));
         }
-        return recordData[index - 1] == null ? null : (Timestamp)recordData[index - 1];
+        Object value = recordData[index - 1];
+        if (value == null || value instanceof Timestamp) {
+            return (Timestamp) value;
+        }
+        if (value instanceof Number) {
+            return new Timestamp(((Number) value).longValue());
+        }
+        try {
+            return Timestamp.valueOf(value.toString().trim());
+        } catch (IllegalArgumentException e) {
+            throw new SQLException(e.getMessage());
+        }
     }
     
     @Override
@@ -152,7 +213,11 @@ public class FabricResultSet extends AbstractResultSet {
         if (index > recordData.length) {
             throw new SQLException(String.format("Result set doesn't contain index %d", index));
         }
-        return recordData[index - 1] == null ? 0.0 : Double.parseDouble(recordData[index - 1].toString());
+        Object value = recordData[index - 1];
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        return value == null ? 0.0 : Double.parseDouble(value.toString());
     }
 
     public double getDouble(String column) throws SQLException {
@@ -163,7 +228,11 @@ public class FabricResultSet extends AbstractResultSet {
         if (index > recordData.length) {
             throw new SQLException(String.format("Result set doesn't contain index %d", index));
         }
-        return recordData[index - 1] == null ? 0.0f : Float.parseFloat(recordData[index - 1].toString());
+        Object value = recordData[index - 1];
+        if (value instanceof Number) {
+            return ((Number) value).floatValue();
+        }
+        return value == null ? 0.0f : Float.parseFloat(value.toString());
     }
 
     public float getFloat(String column) throws SQLException {
@@ -178,7 +247,11 @@ public class FabricResultSet extends AbstractResultSet {
         if (index > recordData.length) {
             throw new SQLException(String.format("Result set doesn't contain index %d", index));
         }
-        return recordData[index - 1] == null ? 0 : Integer.parseInt(recordData[index - 1].toString());
+        Object value = recordData[index - 1];
+        if (value instanceof Number) {
+            return ((Number) value).intValue();
+        }
+        return value == null ? 0 : Integer.parseInt(value.toString());
     }
 
     public int getInt(String column) throws SQLException {
@@ -189,7 +262,11 @@ public class FabricResultSet extends AbstractResultSet {
         if (index > recordData.length) {
             throw new SQLException(String.format("Result set doesn't contain index %d", index));
         }
-        return recordData[index - 1] == null ? 0 : Long.parseLong(recordData[index - 1].toString());
+        Object value = recordData[index - 1];
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        return value == null ? 0 : Long.parseLong(value.toString());
     }
 
     public long getLong(String column) throws SQLException {
@@ -211,13 +288,48 @@ public class FabricResultSet extends AbstractResultSet {
         if (index > recordData.length) {
             throw new SQLException(String.format("Result set doesn't contain index %d", index));
         }
-        return recordData[index - 1] == null ? 0 : Short.parseShort(recordData[index - 1].toString());
+        Object value = recordData[index - 1];
+        if (value instanceof Number) {
+            return ((Number) value).shortValue();
+        }
+        return value == null ? 0 : Short.parseShort(value.toString());
     }
 
     public short getShort(String column) throws SQLException {
         return getShort(getColumnIndex(column));
     }
 
+    /**
+     * Large write values are kept off the heap as Clob, other text is wrapped.
+     */
+    @Override
+    public Clob getClob(int index) throws SQLException {
+        if (index > recordData.length) {
+            throw new SQLException(String.format("Result set doesn't contain index %d", index));
+        }
+        Object value = recordData[index - 1];
+        if (value == null || value instanceof Clob) {
+            return (Clob) value;
+        }
+        return new SerialClob(value.toString().toCharArray());
+    }
+
+    @Override
+    public Clob getClob(String column) throws SQLException {
+        return getClob(getColumnIndex(column));
+    }
+
+    @Override
+    public Reader getCharacterStream(int index) throws SQLException {
+        Clob clob = getClob(index);
+        return clob == null ? null : clob.getCharacterStream();
+    }
+
+    @Override
+    public Reader getCharacterStream(String column) throws SQLException {
+        return getCharacterStream(getColumnIndex(column));
+    }
+
     public Statement getStatement() throws SQLException {
         return statement;
     }
@@ -272,12 +384,20 @@ public class FabricResultSet extends AbstractResultSet {
     }
 
     public boolean isLast() throws SQLException {
-        return recIdx == dataframe.getData().size() - 1;
+        return recIdx == dataframe.getData().size() - 1 && (pages == null || !pages.hasNext());
     }
 
     public boolean next() throws SQLException {
-        if (++recIdx >= dataframe.getData().size()) {
-            return false;
+        while (++recIdx >= dataframe.getData().size()) {
+            if (pages == null || !pages.hasNext()) {
+                return false;
+            }
+            try {
+                dataframe = pages.next();
+            } catch (BlkchnException e) {
+                throw new SQLException(e.getMessage(), e);
+            }
+            recIdx = BEFORE_FIRST;
         }
         recordData = dataframe.getData().get(recIdx).toArray();
         return true;
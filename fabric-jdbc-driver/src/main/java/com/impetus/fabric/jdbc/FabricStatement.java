@@ -21,9 +21,16 @@ import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.SQLWarning;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import org.antlr.v4.runtime.CommonTokenStream;
 
@@ -49,11 +56,13 @@ import com.impetus.blkch.sql.query.SelectItem;
 import com.impetus.blkch.sql.query.StarNode;
 import com.impetus.blkch.sql.query.Table;
 import com.impetus.blkch.util.Utilities;
+import com.impetus.fabric.parser.AssetSchema;
 import com.impetus.fabric.parser.CAManager;
 import com.impetus.fabric.parser.FabricAssetManager;
 import com.impetus.fabric.parser.FabricPhysicalPlan;
 import com.impetus.fabric.parser.FunctionExecutor;
 import com.impetus.fabric.parser.InsertExecutor;
+import com.impetus.fabric.parser.PagedCall;
 import com.impetus.fabric.parser.QueryExecutor;
 import com.impetus.fabric.query.FabricTables;
 import com.impetus.fabric.query.QueryBlock;
@@ -136,6 +145,7 @@ public class FabricStatement implements BlkchnStatement {
 
             case CREATE_ASSET:
                 new FabricAssetManager(logicalPlan, queryBlock.getConf()).executeCreateAsset();
+                AssetSchema.invalidateCache(queryBlock.getConf());
                 return false;
 
             case DELETE_FUNCTION:
@@ -146,6 +156,7 @@ public class FabricStatement implements BlkchnStatement {
 
             case DROP_ASSET:
                 new FabricAssetManager(logicalPlan, queryBlock.getConf()).executeDropAsset();
+                AssetSchema.invalidateCache(queryBlock.getConf());
                 return false;
                 
             case UPGRADE_FUNCTION:
@@ -184,15 +195,15 @@ public class FabricStatement implements BlkchnStatement {
         String tableName;
         switch (logicalPlan.getType()) {
             case CALL_FUNCTION:
-                CallFunction callFunc = logicalPlan.getCallFunction();
-                if (!callFunc.hasChildType(Asset.class)) {
-                    tableName = null;
+                tableName = getCallAssetName(logicalPlan);
+                FunctionExecutor functionExecutor = new FunctionExecutor(logicalPlan, queryBlock);
+                PagedCall pagedCall = functionExecutor.executePagedCall();
+                if (pagedCall != null) {
+                    resultSet = new FabricResultSet(this, pagedCall, tableName);
                 } else {
-                    tableName = callFunc.getChildType(Asset.class, 0).getChildType(IdentifierNode.class, 0)
-                            .getValue();
+                    dataframe = functionExecutor.executeCall();
+                    resultSet = new FabricResultSet(this, dataframe, tableName);
                 }
-                dataframe = new FunctionExecutor(logicalPlan, queryBlock).executeCall();
-                resultSet = new FabricResultSet(this, dataframe, tableName);
                 break;
 
             default:
@@ -209,6 +220,7 @@ public class FabricStatement implements BlkchnStatement {
                 } else {
                     resultSet = new FabricResultSet(this, dataframe, tableName);
                 }
+                resultSet.setRawDataSize(executor.getRawDataSize());
         }
         return resultSet;
     }
@@ -419,6 +431,121 @@ public class FabricStatement implements BlkchnStatement {
         return connection.getQueryObject().getChannelHeight();
     }
 
+    /**
+     * Invokes a chaincode function with the given arguments directly, without going
+     * through an INSERT statement. See {@link QueryBlock#invokeChaincodeAsync}.
+     */
+    public CompletableFuture<String> invokeChaincodeAsync(String chaincodeName, String function, String[] args) {
+        return connection.getQueryObject().invokeChaincodeAsync(chaincodeName, function, args);
+    }
+
+    /**
+     * Runs CALL statements concurrently and returns the rows of all of them in one
+     * result set, like UNION ALL, or like UNION when distinct is set. The calls have
+     * to return the same columns, in any order.
+     */
+    public ResultSet executeMultiCall(boolean distinct, String... calls) throws SQLException {
+        if (calls.length == 0) {
+            throw new SQLException("No CALL statement to execute");
+        }
+        QueryBlock queryBlock = this.connection.getQueryObject();
+        List<LogicalPlan> logicalPlans = new ArrayList<>();
+        for (String call : calls) {
+            LogicalPlan logicalPlan = getLogicalPlan(call);
+            if (!logicalPlan.getType().equals(SQLType.CALL_FUNCTION)) {
+                throw new SQLException("Only CALL statements can be executed together: " + call);
+            }
+            logicalPlans.add(logicalPlan);
+        }
+        // Submitted rather than run with supplyAsync, so that cancel interrupts the calls still running
+        List<Future<List<DataFrame>>> futures = new ArrayList<>();
+        for (LogicalPlan logicalPlan : logicalPlans) {
+            futures.add(queryBlock.getInvokePool().submit(() -> executeCall(logicalPlan, queryBlock)));
+        }
+        List<DataFrame> dataframes = new ArrayList<>();
+        try {
+            for (Future<List<DataFrame>> future : futures) {
+                dataframes.addAll(future.get());
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while executing CALL statements", e);
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw new SQLException("Error executing CALL statement: " + e.getCause().getMessage(), e.getCause());
+        }
+        String tableName = getCallAssetName(logicalPlans.get(0));
+        for (LogicalPlan logicalPlan : logicalPlans) {
+            if (tableName != null && !tableName.equals(getCallAssetName(logicalPlan))) {
+                tableName = null;
+            }
+        }
+        resultSet = new FabricResultSet(this, union(dataframes, distinct), tableName);
+        return resultSet;
+    }
+
+    private static List<DataFrame> executeCall(LogicalPlan logicalPlan, QueryBlock queryBlock) {
+        FunctionExecutor functionExecutor = new FunctionExecutor(logicalPlan, queryBlock);
+        PagedCall pagedCall = functionExecutor.executePagedCall();
+        if (pagedCall == null) {
+            return Collections.singletonList(functionExecutor.executeCall());
+        }
+        List<DataFrame> pages = new ArrayList<>();
+        while (pagedCall.hasNext()) {
+            pages.add(pagedCall.next());
+        }
+        return pages;
+    }
+
+    static DataFrame union(List<DataFrame> dataframes, boolean distinct) throws SQLException {
+        List<String> columns = null;
+        Collection<List<Object>> rows = distinct ? new LinkedHashSet<>() : new ArrayList<>();
+        for (DataFrame dataframe : dataframes) {
+            // Calls without asset which returned no record have no columns
+            if (dataframe.getColumns().isEmpty()) {
+                continue;
+            }
+            if (columns == null || columns.equals(dataframe.getColumns())) {
+                columns = dataframe.getColumns();
+                rows.addAll(dataframe.getData());
+                continue;
+            }
+            int[] positions = new int[columns.size()];
+            for (int i = 0; i < positions.length; i++) {
+                positions[i] = dataframe.getColumns().indexOf(columns.get(i));
+                if (positions[i] < 0 || columns.size() != dataframe.getColumns().size()) {
+                    throw new SQLException(String.format("CALL statements return different columns %s and %s",
+                            columns, dataframe.getColumns()));
+                }
+            }
+            for (List<Object> row : dataframe.getData()) {
+                List<Object> reordered = new ArrayList<>(positions.length);
+                for (int position : positions) {
+                    reordered.add(row.get(position));
+                }
+                rows.add(reordered);
+            }
+        }
+        return new DataFrame(new ArrayList<>(rows), columns == null ? new ArrayList<>() : columns,
+                new HashMap<>());
+    }
+
+    private static String getCallAssetName(LogicalPlan logicalPlan) {
+        CallFunction callFunc = logicalPlan.getCallFunction();
+        if (!callFunc.hasChildType(Asset.class)) {
+            return null;
+        }
+        return callFunc.getChildType(Asset.class, 0).getChildType(IdentifierNode.class, 0).getValue();
+    }
+
+    /**
+     * Number of transactions in each of the given blocks.
+     */
+    public Map<Long, Integer> getEnvelopeCounts(Collection<Long> blockNumbers) {
+        return connection.getQueryObject().getEnvelopeCounts(blockNumbers);
+    }
+
     @Override
     public RangeNode getProbableRange(String sql) {
         LogicalPlan logicalPlan = getLogicalPlan(sql);
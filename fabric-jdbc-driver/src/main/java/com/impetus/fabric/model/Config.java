@@ -22,12 +22,14 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -35,6 +37,8 @@ import org.apache.commons.logging.LogFactory;
 import org.hyperledger.fabric.sdk.helper.Utils;
 
 import com.impetus.blkch.BlkchnException;
+import com.impetus.fabric.objects.PrintableSanitizer;
+import com.impetus.fabric.query.ReadConsistency;
 
 /**
  * Config allows for a global config of the toolkit. Central location for all
@@ -72,6 +76,50 @@ public class Config {
 
     private static final String BLOCKCHAINTLS = PROPBASE + "blockchain.tls";
 
+    private static final String HEDGE_ENABLED = PROPBASE + "hedge.enabled";
+
+    private static final String HEDGE_PERCENTILE = PROPBASE + "hedge.percentile";
+
+    private static final String HEDGE_MIN_DELAY = PROPBASE + "hedge.minDelay";
+
+    private static final String PEER_FAILURE_THRESHOLD = PROPBASE + "peer.failureThreshold";
+
+    private static final String PEER_OPEN_DURATION = PROPBASE + "peer.openDuration";
+
+    private static final String PEER_PROBE_INTERVAL = PROPBASE + "peer.probeInterval";
+
+    private static final String DECODE_PARALLELISM = PROPBASE + "decode.parallelism";
+
+    private static final String RETAIN_RAW_DATA = PROPBASE + "query.retainRawData";
+
+    private static final String VALUE_ENCODING = PROPBASE + "query.valueEncoding";
+
+    private static final String OFF_HEAP_VALUE_SIZE = PROPBASE + "query.offHeapValueSize";
+
+    private static final String HEADER_CACHE_SIZE = PROPBASE + "query.headerCacheSize";
+
+    private static final String MAX_ESTIMATED_ROWS = PROPBASE + "query.maxEstimatedRows";
+
+    private static final String ASSET_SCHEMA_CACHE_TTL = PROPBASE + "asset.schemaCacheTtl";
+
+    private static final String READ_CONSISTENCY = PROPBASE + "query.readConsistency";
+
+    private static final String CALL_RESULT_CACHE_SIZE = PROPBASE + "call.resultCacheSize";
+
+    private static final String CALL_RESULT_CACHE_BY_NAMESPACE = PROPBASE + "call.resultCacheByNamespace";
+
+    private static final String CALL_RESULT_CACHE_TTL = PROPBASE + "call.resultCacheTtl";
+
+    private static final String PAGED_FUNCTIONS = PROPBASE + "call.pagedFunctions";
+
+    private static final String PAGE_SIZE = PROPBASE + "call.pageSize";
+
+    private static final String PAGE_ARGS = PROPBASE + "call.pageArgs";
+
+    private static final String PAGE_RECORDS_FIELD = PROPBASE + "call.recordsField";
+
+    private static final String PAGE_BOOKMARK_FIELD = PROPBASE + "call.bookmarkField";
+
     private final Properties sdkProperties = new Properties();
 
     private final boolean runningTLS;
@@ -115,6 +163,28 @@ public class Config {
             defaultProperty(INVOKEWAITTIME, "100000");
             defaultProperty(DEPLOYWAITTIME, "120000");
             defaultProperty(PROPOSALWAITTIME, "120000");
+            defaultProperty(HEDGE_ENABLED, "false");
+            defaultProperty(HEDGE_PERCENTILE, "95");
+            defaultProperty(HEDGE_MIN_DELAY, "10");
+            defaultProperty(PEER_FAILURE_THRESHOLD, "3");
+            defaultProperty(PEER_OPEN_DURATION, "30000");
+            defaultProperty(PEER_PROBE_INTERVAL, "10000");
+            defaultProperty(DECODE_PARALLELISM, Integer.toString(Runtime.getRuntime().availableProcessors()));
+            defaultProperty(RETAIN_RAW_DATA, "false");
+            defaultProperty(VALUE_ENCODING, PrintableSanitizer.Mode.PRINTABLE.name());
+            defaultProperty(OFF_HEAP_VALUE_SIZE, "0");
+            defaultProperty(HEADER_CACHE_SIZE, "10000");
+            defaultProperty(MAX_ESTIMATED_ROWS, "0");
+            defaultProperty(ASSET_SCHEMA_CACHE_TTL, "60000");
+            defaultProperty(READ_CONSISTENCY, ReadConsistency.SINGLE.name());
+            defaultProperty(CALL_RESULT_CACHE_SIZE, "0");
+            defaultProperty(CALL_RESULT_CACHE_BY_NAMESPACE, "false");
+            defaultProperty(CALL_RESULT_CACHE_TTL, "10000");
+            defaultProperty(PAGED_FUNCTIONS, "");
+            defaultProperty(PAGE_SIZE, "100");
+            defaultProperty(PAGE_ARGS, "pageSize,bookmark");
+            defaultProperty(PAGE_RECORDS_FIELD, "records");
+            defaultProperty(PAGE_BOOKMARK_FIELD, "bookmark");
 
             defaultProperty(BLOCKCHAINTLS, null);
             defaultProperty(LOGGERLEVEL, "DEBUG");
@@ -305,6 +375,133 @@ public class Config {
         return Integer.parseInt(getProperty(PROPOSALWAITTIME));
     }
 
+    public boolean isHedgeEnabled() {
+        return Boolean.parseBoolean(getProperty(HEDGE_ENABLED));
+    }
+
+    public double getHedgePercentile() {
+        return Double.parseDouble(getProperty(HEDGE_PERCENTILE));
+    }
+
+    public long getHedgeMinDelay() {
+        return Long.parseLong(getProperty(HEDGE_MIN_DELAY));
+    }
+
+    public int getPeerFailureThreshold() {
+        return Integer.parseInt(getProperty(PEER_FAILURE_THRESHOLD));
+    }
+
+    public long getPeerOpenDuration() {
+        return Long.parseLong(getProperty(PEER_OPEN_DURATION));
+    }
+
+    public long getPeerProbeInterval() {
+        return Long.parseLong(getProperty(PEER_PROBE_INTERVAL));
+    }
+
+    public int getDecodeParallelism() {
+        return Integer.parseInt(getProperty(DECODE_PARALLELISM));
+    }
+
+    public boolean isRetainRawData() {
+        return Boolean.parseBoolean(getProperty(RETAIN_RAW_DATA));
+    }
+
+    /**
+     * How keys, values and arguments read from the ledger are turned into text:
+     * PRINTABLE keeps printable ascii characters only, RAW and HEX skip sanitizing.
+     */
+    public PrintableSanitizer.Mode getValueEncoding() {
+        return PrintableSanitizer.Mode.valueOf(getProperty(VALUE_ENCODING).trim().toUpperCase());
+    }
+
+    /**
+     * Write values of read_write_set rows of at least this many bytes are kept off
+     * the heap and returned as Clob, never when not positive. This shrinks the
+     * result set held by the caller, not the heap used while the query runs. Queries
+     * with ORDER BY or GROUP BY keep values on the heap.
+     */
+    public int getOffHeapValueSize() {
+        return Integer.parseInt(getProperty(OFF_HEAP_VALUE_SIZE));
+    }
+
+    public int getHeaderCacheSize() {
+        return Integer.parseInt(getProperty(HEADER_CACHE_SIZE));
+    }
+
+    /**
+     * Queries estimated to read more rows are refused, no limit when not positive.
+     */
+    public long getMaxEstimatedRows() {
+        return Long.parseLong(getProperty(MAX_ESTIMATED_ROWS));
+    }
+
+    /**
+     * Milliseconds an asset schema read from the database is used for, caching is
+     * off when not positive.
+     */
+    public long getAssetSchemaCacheTtl() {
+        return Long.parseLong(getProperty(ASSET_SCHEMA_CACHE_TTL));
+    }
+
+    public ReadConsistency getReadConsistency() {
+        return ReadConsistency.valueOf(getProperty(READ_CONSISTENCY).trim().toUpperCase());
+    }
+
+    /**
+     * Number of CALL results kept until the next block, caching is off when not
+     * positive.
+     */
+    public int getCallResultCacheSize() {
+        return Integer.parseInt(getProperty(CALL_RESULT_CACHE_SIZE));
+    }
+
+    /**
+     * Whether a block drops only the cached CALL results of the chaincodes it wrote
+     * to. Chaincodes which read other chaincodes' state through chaincode to
+     * chaincode calls can then return stale results, so leave it off for them.
+     */
+    public boolean isCallResultCacheByNamespace() {
+        return Boolean.parseBoolean(getProperty(CALL_RESULT_CACHE_BY_NAMESPACE));
+    }
+
+    /**
+     * Milliseconds a CALL result is kept at most, even when no block commits.
+     * Caching is off when not positive.
+     */
+    public long getCallResultCacheTtl() {
+        return Long.parseLong(getProperty(CALL_RESULT_CACHE_TTL));
+    }
+
+    /**
+     * Whether CALL fetches the results of the chaincode function page by page. Paged
+     * functions are listed in config.call.pagedFunctions as chaincode.function.
+     */
+    public boolean isPagedFunction(String chaincodeName, String function) {
+        String name = chaincodeName + "." + function;
+        return Arrays.stream(getProperty(PAGED_FUNCTIONS).split(",")).map(String::trim).anyMatch(name::equals);
+    }
+
+    public int getPageSize() {
+        return Integer.parseInt(getProperty(PAGE_SIZE));
+    }
+
+    /**
+     * Order of the page size and bookmark arguments appended to the arguments of a
+     * paged function.
+     */
+    public List<String> getPageArgs() {
+        return Arrays.stream(getProperty(PAGE_ARGS).split(",")).map(String::trim).collect(Collectors.toList());
+    }
+
+    public String getPageRecordsField() {
+        return getProperty(PAGE_RECORDS_FIELD);
+    }
+
+    public String getPageBookmarkField() {
+        return getProperty(PAGE_BOOKMARK_FIELD);
+    }
+
     public Org getSampleOrg() {
         return configOrg;
     }
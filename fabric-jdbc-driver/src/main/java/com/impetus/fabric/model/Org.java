@@ -18,10 +18,10 @@ package com.impetus.fabric.model;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.hyperledger.fabric.sdk.Peer;
 import org.hyperledger.fabric_ca.sdk.HFCAClient;
@@ -45,7 +45,8 @@ public class Org {
 
     Map<String, String> eventHubLocations = new HashMap<>();
 
-    Set<Peer> peers = new HashSet<>();
+    // Channels are built concurrently by the statements sharing a connection
+    Set<Peer> peers = ConcurrentHashMap.newKeySet();
 
     private String caLocation;
 
@@ -0,0 +1,78 @@
+/*******************************************************************************
+ * * Copyright 2018 Impetus Infotech.
+ * *
+ * * Licensed under the Apache License, Version 2.0 (the "License");
+ * * you may not use this file except in compliance with the License.
+ * * You may obtain a copy of the License at
+ * *
+ * * http://www.apache.org/licenses/LICENSE-2.0
+ * *
+ * * Unless required by applicable law or agreed to in writing, software
+ * * distributed under the License is distributed on an "AS IS" BASIS,
+ * * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * * See the License for the specific language governing permissions and
+ * * limitations under the License.
+ ******************************************************************************/
+
+package com.impetus.fabric.objects;
+
+import org.hyperledger.fabric.sdk.BlockInfo;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.impetus.blkch.BlkchnException;
+
+/**
+ * Fields of the block table taken out of a block, so that the envelopes need not
+ * be kept in memory. Instances never change and can be shared between queries.
+ */
+public class BlockHeaderObject {
+
+    private final long blockNo;
+
+    private final byte[] previousHash;
+
+    private final byte[] dataHash;
+
+    private final byte[] transActionsMetaData;
+
+    private final int envelopeCount;
+
+    private final String channelId;
+
+    public BlockHeaderObject(BlockInfo blockInfo) {
+        this.blockNo = blockInfo.getBlockNumber();
+        this.previousHash = blockInfo.getPreviousHash();
+        this.dataHash = blockInfo.getDataHash();
+        this.transActionsMetaData = blockInfo.getTransActionsMetaData();
+        this.envelopeCount = blockInfo.getEnvelopeCount();
+        try {
+            this.channelId = blockInfo.getChannelId();
+        } catch (InvalidProtocolBufferException e) {
+            throw new BlkchnException("Unable to get channel id from block info", e);
+        }
+    }
+
+    public long getBlockNo() {
+        return blockNo;
+    }
+
+    public byte[] getPreviousHash() {
+        return previousHash;
+    }
+
+    public byte[] getDataHash() {
+        return dataHash;
+    }
+
+    public byte[] getTransActionsMetaData() {
+        return transActionsMetaData;
+    }
+
+    public int getEnvelopeCount() {
+        return envelopeCount;
+    }
+
+    public String getChannelId() {
+        return channelId;
+    }
+}
@@ -0,0 +1,185 @@
+/*******************************************************************************
+ * * Copyright 2018 Impetus Infotech.
+ * *
+ * * Licensed under the Apache License, Version 2.0 (the "License");
+ * * you may not use this file except in compliance with the License.
+ * * You may obtain a copy of the License at
+ * *
+ * * http://www.apache.org/licenses/LICENSE-2.0
+ * *
+ * * Unless required by applicable law or agreed to in writing, software
+ * * distributed under the License is distributed on an "AS IS" BASIS,
+ * * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * * See the License for the specific language governing permissions and
+ * * limitations under the License.
+ ******************************************************************************/
+
+package com.impetus.fabric.objects;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.sql.Clob;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+
+/**
+ * Read only text value kept off the heap as utf-8 bytes. Like the on-heap values,
+ * the text holds the printable ascii characters of the value only. It is built when
+ * read, through the streams without materializing the whole value.
+ */
+public class FabricClob implements Clob {
+
+    private ByteBuffer bytes;
+
+    private long length = -1;
+
+    FabricClob(ByteBuffer bytes) {
+        this.bytes = bytes;
+    }
+
+    private ByteBuffer getBytes() throws SQLException {
+        if (bytes == null) {
+            throw new SQLException("Clob has been freed");
+        }
+        return bytes;
+    }
+
+    @Override
+    public synchronized long length() throws SQLException {
+        if (length < 0) {
+            ByteBuffer buffer = getBytes();
+            long count = 0;
+            for (int i = 0; i < buffer.limit(); i++) {
+                if (PrintableSanitizer.isPrintable(buffer.get(i))) {
+                    count++;
+                }
+            }
+            length = count;
+        }
+        return length;
+    }
+
+    @Override
+    public String getSubString(long pos, int length) throws SQLException {
+        if (pos < 1 || length < 0) {
+            throw new SQLException(String.format("Invalid position %d or length %d", pos, length));
+        }
+        ByteBuffer buffer = getBytes();
+        StringBuilder sb = new StringBuilder(Math.min(length, buffer.limit()));
+        long skip = pos - 1;
+        for (int i = 0; i < buffer.limit() && sb.length() < length; i++) {
+            byte b = buffer.get(i);
+            if (PrintableSanitizer.isPrintable(b) && skip-- <= 0) {
+                sb.append((char) b);
+            }
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public Reader getCharacterStream() throws SQLException {
+        InputStream in = getAsciiStream();
+        return new Reader() {
+
+            @Override
+            public int read(char[] cbuf, int off, int len) throws java.io.IOException {
+                int count = 0;
+                while (count < len) {
+                    int b = in.read();
+                    if (b < 0) {
+                        break;
+                    }
+                    cbuf[off + count++] = (char) b;
+                }
+                return count == 0 && len > 0 ? -1 : count;
+            }
+
+            @Override
+            public void close() {
+                // Nothing to release, the bytes belong to the clob
+            }
+        };
+    }
+
+    @Override
+    public InputStream getAsciiStream() throws SQLException {
+        ByteBuffer buffer = getBytes().duplicate();
+        return new InputStream() {
+
+            @Override
+            public int read() {
+                while (buffer.hasRemaining()) {
+                    byte b = buffer.get();
+                    if (PrintableSanitizer.isPrintable(b)) {
+                        return b;
+                    }
+                }
+                return -1;
+            }
+        };
+    }
+
+    @Override
+    public Reader getCharacterStream(long pos, long length) throws SQLException {
+        if (length > Integer.MAX_VALUE) {
+            throw new SQLException("Length too large " + length);
+        }
+        return new java.io.StringReader(getSubString(pos, (int) length));
+    }
+
+    @Override
+    public long position(String searchstr, long start) throws SQLException {
+        int index = toString().indexOf(searchstr, (int) start - 1);
+        return index < 0 ? -1 : index + 1;
+    }
+
+    @Override
+    public long position(Clob searchstr, long start) throws SQLException {
+        return position(searchstr.getSubString(1, (int) searchstr.length()), start);
+    }
+
+    @Override
+    public int setString(long pos, String str) throws SQLException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public int setString(long pos, String str, int offset, int len) throws SQLException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public OutputStream setAsciiStream(long pos) throws SQLException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public Writer setCharacterStream(long pos) throws SQLException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public void truncate(long len) throws SQLException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public synchronized void free() {
+        bytes = null;
+    }
+
+    /**
+     * The whole text, as the on-heap value would have been.
+     */
+    @Override
+    public String toString() {
+        try {
+            return getSubString(1, Integer.MAX_VALUE);
+        } catch (SQLException e) {
+            return "";
+        }
+    }
+}
@@ -0,0 +1,51 @@
+/*******************************************************************************
+ * * Copyright 2018 Impetus Infotech.
+ * *
+ * * Licensed under the Apache License, Version 2.0 (the "License");
+ * * you may not use this file except in compliance with the License.
+ * * You may obtain a copy of the License at
+ * *
+ * * http://www.apache.org/licenses/LICENSE-2.0
+ * *
+ * * Unless required by applicable law or agreed to in writing, software
+ * * distributed under the License is distributed on an "AS IS" BASIS,
+ * * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * * See the License for the specific language governing permissions and
+ * * limitations under the License.
+ ******************************************************************************/
+
+package com.impetus.fabric.objects;
+
+import java.nio.ByteBuffer;
+
+import com.google.protobuf.ByteString;
+
+/**
+ * Copies values out of the heap into direct buffers, allocated in chunks shared by
+ * the values of a query. A chunk is released once none of its values is reachable.
+ */
+public class OffHeapValueStore {
+
+    private static final int CHUNK_SIZE = 4 * 1024 * 1024;
+
+    private ByteBuffer chunk;
+
+    public synchronized FabricClob store(ByteString value) {
+        int size = value.size();
+        ByteBuffer buffer;
+        if (size > CHUNK_SIZE / 4) {
+            // Large values get a buffer of their own, not to waste the rest of a chunk
+            buffer = ByteBuffer.allocateDirect(size);
+        } else {
+            if (chunk == null || chunk.remaining() < size) {
+                chunk = ByteBuffer.allocateDirect(CHUNK_SIZE);
+            }
+            buffer = chunk.slice();
+            buffer.limit(size);
+            chunk.position(chunk.position() + size);
+        }
+        value.copyTo(buffer);
+        buffer.flip();
+        return new FabricClob(buffer.asReadOnlyBuffer());
+    }
+}
@@ -0,0 +1,122 @@
+/*******************************************************************************
+ * * Copyright 2018 Impetus Infotech.
+ * *
+ * * Licensed under the Apache License, Version 2.0 (the "License");
+ * * you may not use this file except in compliance with the License.
+ * * You may obtain a copy of the License at
+ * *
+ * * http://www.apache.org/licenses/LICENSE-2.0
+ * *
+ * * Unless required by applicable law or agreed to in writing, software
+ * * distributed under the License is distributed on an "AS IS" BASIS,
+ * * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * * See the License for the specific language governing permissions and
+ * * limitations under the License.
+ ******************************************************************************/
+
+package com.impetus.fabric.objects;
+
+import java.nio.charset.StandardCharsets;
+
+import com.google.protobuf.ByteString;
+
+/**
+ * Turns ledger bytes into column text. In PRINTABLE mode only printable ascii
+ * characters are kept, as [^\p{Print}] regular expressions did, but working on the
+ * utf-8 bytes: all characters outside ascii are encoded as bytes above 0x7f. RAW
+ * mode returns the decoded text as is and HEX mode the bytes in hexadecimal, both
+ * without looking for unprintable characters.
+ */
+public class PrintableSanitizer {
+
+    public enum Mode {
+        PRINTABLE, RAW, HEX
+    }
+
+    public static final PrintableSanitizer PRINTABLE = new PrintableSanitizer(Mode.PRINTABLE);
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final Mode mode;
+
+    public PrintableSanitizer(Mode mode) {
+        this.mode = mode;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public static boolean isPrintable(int c) {
+        return c >= 0x20 && c < 0x7f;
+    }
+
+    /**
+     * Text of the bytes with the characters which aren't printable left out.
+     */
+    public String strip(ByteString bytes) {
+        if (mode != Mode.PRINTABLE) {
+            return convert(bytes);
+        }
+        int size = bytes.size();
+        int first = firstUnprintable(bytes);
+        if (first == size) {
+            return bytes.toString(StandardCharsets.US_ASCII);
+        }
+        byte[] printable = new byte[size - 1];
+        bytes.copyTo(printable, 0, 0, first);
+        int length = first;
+        for (int i = first + 1; i < size; i++) {
+            byte b = bytes.byteAt(i);
+            if (isPrintable(b)) {
+                printable[length++] = b;
+            }
+        }
+        return new String(printable, 0, length, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Text of the bytes with every character which isn't printable replaced.
+     */
+    public String replace(ByteString bytes, String replacement) {
+        if (mode != Mode.PRINTABLE) {
+            return convert(bytes);
+        }
+        if (firstUnprintable(bytes) == bytes.size()) {
+            return bytes.toString(StandardCharsets.US_ASCII);
+        }
+        String text = bytes.toStringUtf8();
+        StringBuilder sb = new StringBuilder(text.length());
+        text.codePoints().forEach(c -> {
+            if (isPrintable(c)) {
+                sb.append((char) c);
+            } else {
+                sb.append(replacement);
+            }
+        });
+        return sb.toString();
+    }
+
+    private String convert(ByteString bytes) {
+        if (mode == Mode.RAW) {
+            return bytes.toStringUtf8();
+        }
+        char[] hex = new char[bytes.size() * 2];
+        for (int i = 0; i < bytes.size(); i++) {
+            byte b = bytes.byteAt(i);
+            hex[2 * i] = HEX_DIGITS[(b >> 4) & 0xf];
+            hex[2 * i + 1] = HEX_DIGITS[b & 0xf];
+        }
+        return new String(hex);
+    }
+
+    private static int firstUnprintable(ByteString bytes) {
+        int size = bytes.size();
+        for (int i = 0; i < size; i++) {
+            if (!isPrintable(bytes.byteAt(i))) {
+                return i;
+            }
+        }
+        return size;
+    }
+}
@@ -20,6 +20,8 @@ import org.hyperledger.fabric.protos.ledger.rwset.kvrwset.KvRwset.KVRead;
 import org.hyperledger.fabric.protos.ledger.rwset.kvrwset.KvRwset.KVWrite;
 import org.hyperledger.fabric.protos.ledger.rwset.kvrwset.KvRwset.RangeQueryInfo;
 
+import com.google.protobuf.ByteString;
+
 public class ReadWriteSetDeserializer {
 
     private KVRead read;
@@ -40,6 +42,13 @@ public class ReadWriteSetDeserializer {
         this.write = write;
     }
     
+    public int getSerializedSize() {
+        if (read != null) {
+            return read.getSerializedSize();
+        }
+        return rangeQueryInfo != null ? rangeQueryInfo.getSerializedSize() : write.getSerializedSize();
+    }
+
     public String getReadKey() {
         return read == null ? null : read.getKey();
     }
@@ -69,14 +78,39 @@ public class ReadWriteSetDeserializer {
     }
     
     public String getWriteKey() {
-        return (write == null || write.getKey() == null) ? null : write.getKey().replaceAll("[^\\p{Print}]", "");
+        return getWriteKey(PrintableSanitizer.PRINTABLE);
+    }
+
+    public String getWriteKey(PrintableSanitizer sanitizer) {
+        return write == null ? null : sanitizer.strip(write.getKeyBytes());
     }
     
     public Boolean getIsDelete() {
         return write == null ? null : write.getIsDelete();
     }
     
+    /**
+     * Raw bytes of the write value, null like the value when they aren't utf-8.
+     */
+    public ByteString getWriteValueBytes() {
+        return (write == null || !write.getValue().isValidUtf8()) ? null : write.getValue();
+    }
+
+    public int getWriteValueSize() {
+        return write == null ? 0 : write.getValue().size();
+    }
+
     public String getWriteValue() {
-        return (write == null || !write.getValue().isValidUtf8()) ? null : write.getValue().toStringUtf8().replaceAll("[^\\p{Print}]", "");
+        return getWriteValue(PrintableSanitizer.PRINTABLE);
+    }
+
+    /**
+     * The write value as text, null when it isn't utf-8 unless shown in hexadecimal.
+     */
+    public String getWriteValue(PrintableSanitizer sanitizer) {
+        if (write == null || (sanitizer.getMode() != PrintableSanitizer.Mode.HEX && !write.getValue().isValidUtf8())) {
+            return null;
+        }
+        return sanitizer.strip(write.getValue());
     }
 }
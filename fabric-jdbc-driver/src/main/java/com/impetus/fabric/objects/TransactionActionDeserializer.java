@@ -52,6 +52,10 @@ public class TransactionActionDeserializer {
     public TransactionActionDeserializer(TransactionAction transactionAction) {
         this.transactionAction = transactionAction;
     }
+
+    public int getSerializedSize() {
+        return transactionAction.getSerializedSize();
+    }
     
     public String getIdGenerationAlg() {
         if(_chaincodeInvocationSpec == null || _chaincodeInvocationSpec.get() == null) {
@@ -89,11 +93,15 @@ public class TransactionActionDeserializer {
     }
     
     public Array getChaincodeArgs() {
+        return getChaincodeArgs(PrintableSanitizer.PRINTABLE);
+    }
+
+    public Array getChaincodeArgs(PrintableSanitizer sanitizer) {
         if(_chaincodeInvocationSpec == null || _chaincodeInvocationSpec.get() == null) {
             populateChaincodeInvocationSpec();
         }
         ChaincodeInput chaincodeInput = _chaincodeInvocationSpec.get().getChaincodeSpec().getInput();
-        Object[] args = chaincodeInput.getArgsList().stream().map(arg -> arg.toStringUtf8().replaceAll("[^\\p{Print}]", "??")).toArray();
+        Object[] args = chaincodeInput.getArgsList().stream().map(arg -> sanitizer.replace(arg, "??")).toArray();
         return new FabricArray(args);
     }
     
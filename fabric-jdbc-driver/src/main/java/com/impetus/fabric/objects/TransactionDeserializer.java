@@ -27,7 +27,6 @@ import org.hyperledger.fabric.protos.common.Common.Header;
 import org.hyperledger.fabric.protos.common.Common.Payload;
 import org.hyperledger.fabric.protos.common.Common.SignatureHeader;
 import org.hyperledger.fabric.protos.msp.Identities.SerializedIdentity;
-import org.hyperledger.fabric.protos.peer.FabricTransaction.ProcessedTransaction;
 import org.hyperledger.fabric.protos.peer.FabricTransaction.Transaction;
 import org.hyperledger.fabric.protos.peer.FabricTransaction.TransactionAction;
 import org.hyperledger.fabric.sdk.TransactionInfo;
@@ -37,7 +36,9 @@ import com.impetus.blkch.BlkchnException;
 
 public class TransactionDeserializer {
 
-    private TransactionInfo transactionInfo;
+    private String transactionId;
+
+    private Envelope envelope;
     
     private WeakReference<Header> _header;
     
@@ -48,11 +49,24 @@ public class TransactionDeserializer {
     private WeakReference<SerializedIdentity> _serializedIdentity;
     
     public TransactionDeserializer(TransactionInfo transactionInfo) {
-        this.transactionInfo = transactionInfo;
+        this(transactionInfo.getTransactionID(), transactionInfo.getProcessedTransaction().getTransactionEnvelope());
+    }
+
+    /**
+     * Deserializer over an envelope taken from a block, which holds the same envelope
+     * queryTransactionByID would return.
+     */
+    public TransactionDeserializer(String transactionId, Envelope envelope) {
+        this.transactionId = transactionId;
+        this.envelope = envelope;
     }
     
+    public int getSerializedSize() {
+        return envelope.getSerializedSize();
+    }
+
     public String getTransactionId() {
-        return transactionInfo.getTransactionID();
+        return transactionId;
     }
     
     public int getHeaderType() {
@@ -117,8 +131,6 @@ public class TransactionDeserializer {
     }
     
     public List<TransactionAction> getTransactionActions() {
-        ProcessedTransaction processedTransaction = transactionInfo.getProcessedTransaction();
-        Envelope envelope = processedTransaction.getTransactionEnvelope();
         Payload payload;
         try {
             payload = Payload.parseFrom(envelope.getPayload());
@@ -130,8 +142,6 @@ public class TransactionDeserializer {
     }
     
     private void populateHeader() {
-        ProcessedTransaction processedTransaction = transactionInfo.getProcessedTransaction();
-        Envelope envelope = processedTransaction.getTransactionEnvelope();
         Payload payload;
         try {
             payload = Payload.parseFrom(envelope.getPayload());
@@ -16,6 +16,7 @@
 
 package com.impetus.fabric.objects;
 
+import org.hyperledger.fabric.protos.common.Common.Envelope;
 import org.hyperledger.fabric.sdk.TransactionInfo;
 
 public class TransactionObject {
@@ -29,6 +30,11 @@ public class TransactionObject {
         this.deserializer = new TransactionDeserializer(transactionInfo);
     }
 
+    public TransactionObject(Long blockNo, String transactionId, Envelope envelope) {
+        this.blockNo = blockNo;
+        this.deserializer = new TransactionDeserializer(transactionId, envelope);
+    }
+
     public Long getBlockNo() {
         return blockNo;
     }
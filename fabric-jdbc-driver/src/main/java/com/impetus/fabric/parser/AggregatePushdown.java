@@ -0,0 +1,225 @@
+/*******************************************************************************
+ * * Copyright 2018 Impetus Infotech.
+ * *
+ * * Licensed under the Apache License, Version 2.0 (the "License");
+ * * you may not use this file except in compliance with the License.
+ * * You may obtain a copy of the License at
+ * *
+ * * http://www.apache.org/licenses/LICENSE-2.0
+ * *
+ * * Unless required by applicable law or agreed to in writing, software
+ * * distributed under the License is distributed on an "AS IS" BASIS,
+ * * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * * See the License for the specific language governing permissions and
+ * * limitations under the License.
+ ******************************************************************************/
+
+package com.impetus.fabric.parser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import org.hyperledger.fabric.sdk.exception.InvalidArgumentException;
+import org.hyperledger.fabric.sdk.exception.ProposalException;
+
+import com.impetus.blkch.BlkchnException;
+import com.impetus.blkch.sql.DataFrame;
+import com.impetus.blkch.sql.parser.LogicalPlan;
+import com.impetus.blkch.sql.parser.PhysicalPlan;
+import com.impetus.blkch.sql.parser.TreeNode;
+import com.impetus.blkch.sql.query.Column;
+import com.impetus.blkch.sql.query.DirectAPINode;
+import com.impetus.blkch.sql.query.FromItem;
+import com.impetus.blkch.sql.query.FunctionNode;
+import com.impetus.blkch.sql.query.GroupByClause;
+import com.impetus.blkch.sql.query.HavingClause;
+import com.impetus.blkch.sql.query.IdentifierNode;
+import com.impetus.blkch.sql.query.LogicalOperation;
+import com.impetus.blkch.sql.query.RangeNode;
+import com.impetus.blkch.sql.query.SelectItem;
+import com.impetus.blkch.sql.query.StarNode;
+import com.impetus.blkch.sql.query.Table;
+import com.impetus.blkch.util.Range;
+import com.impetus.blkch.util.RangeOperations;
+import com.impetus.blkch.util.Utilities;
+import com.impetus.fabric.query.FabricColumns;
+import com.impetus.fabric.query.FabricTables;
+import com.impetus.fabric.query.QueryBlock;
+
+/**
+ * Answers aggregate queries over block and transaction whose where clause is a
+ * block_no range, without decoding any row. count, min and max of block_no need
+ * the channel height alone; sum of transaction_count and count of transactions
+ * need the envelope count of every block in the range.
+ */
+public class AggregatePushdown {
+
+    private final LogicalPlan logicalPlan;
+
+    private final PhysicalPlan physicalPlan;
+
+    private final QueryBlock queryBlock;
+
+    public AggregatePushdown(LogicalPlan logicalPlan, PhysicalPlan physicalPlan, QueryBlock queryBlock) {
+        this.logicalPlan = logicalPlan;
+        this.physicalPlan = physicalPlan;
+        this.queryBlock = queryBlock;
+    }
+
+    /**
+     * Returns the single row answer of the query, or null when the query has a shape
+     * which has to be executed row by row.
+     */
+    public DataFrame execute() {
+        if (logicalPlan.getQuery().hasChildType(GroupByClause.class)
+                || logicalPlan.getQuery().hasChildType(HavingClause.class)) {
+            return null;
+        }
+        Table table = logicalPlan.getQuery().getChildType(FromItem.class, 0).getChildType(Table.class, 0);
+        String tableName = table.getChildType(IdentifierNode.class, 0).getValue();
+        if (!FabricTables.BLOCK.equals(tableName) && !FabricTables.TRANSACTION.equals(tableName)) {
+            return null;
+        }
+        RangeNode<Long> rangeNode = getBlockRange();
+        if (rangeNode == null) {
+            return null;
+        }
+        List<FunctionNode> functions = new ArrayList<>();
+        for (SelectItem selectItem : physicalPlan.getSelectItems()) {
+            if (!selectItem.hasChildType(FunctionNode.class)) {
+                return null;
+            }
+            FunctionNode function = selectItem.getChildType(FunctionNode.class, 0);
+            if (getAggregate(tableName, function) == null) {
+                return null;
+            }
+            functions.add(function);
+        }
+        if (functions.isEmpty()) {
+            return null;
+        }
+
+        List<long[]> ranges = getBlockRanges(rangeNode);
+        Map<Long, Integer> envelopeCounts = null;
+        List<Object> row = new ArrayList<>();
+        List<String> columns = new ArrayList<>();
+        for (FunctionNode function : functions) {
+            Aggregate aggregate = getAggregate(tableName, function);
+            if (aggregate == Aggregate.SUM_TRANSACTIONS && envelopeCounts == null) {
+                List<Long> blockNumbers = ranges.stream()
+                        .flatMap(range -> LongStream.rangeClosed(range[0], range[1]).boxed())
+                        .collect(Collectors.toList());
+                envelopeCounts = queryBlock.getEnvelopeCounts(blockNumbers);
+            }
+            row.add(evaluate(aggregate, ranges, envelopeCounts));
+            columns.add(Utilities.createFunctionColName(function));
+        }
+        List<List<Object>> data = new ArrayList<>();
+        data.add(row);
+        return new DataFrame(data, columns, physicalPlan.getColumnAliasMapping());
+    }
+
+    private enum Aggregate {
+        COUNT_BLOCKS, MIN_BLOCK, MAX_BLOCK, SUM_TRANSACTIONS
+    }
+
+    private Aggregate getAggregate(String tableName, FunctionNode function) {
+        if (!function.hasChildType(IdentifierNode.class)) {
+            return null;
+        }
+        String name = function.getChildType(IdentifierNode.class, 0).getValue().toLowerCase();
+        String argument = null;
+        if (function.hasChildType(Column.class)) {
+            argument = function.getChildType(Column.class, 0).getChildType(IdentifierNode.class, 0).getValue();
+        } else if (!function.hasChildType(StarNode.class)) {
+            return null;
+        }
+        boolean blockTable = FabricTables.BLOCK.equals(tableName);
+        switch (name) {
+            case "count":
+                if (argument != null && !FabricColumns.BLOCK_NO.equals(argument)) {
+                    return null;
+                }
+                return blockTable ? Aggregate.COUNT_BLOCKS : Aggregate.SUM_TRANSACTIONS;
+            case "min":
+                return FabricColumns.BLOCK_NO.equals(argument) ? Aggregate.MIN_BLOCK : null;
+            case "max":
+                return FabricColumns.BLOCK_NO.equals(argument) ? Aggregate.MAX_BLOCK : null;
+            case "sum":
+                return blockTable && FabricColumns.TRANSACTION_COUNT.equals(argument) ? Aggregate.SUM_TRANSACTIONS
+                        : null;
+            default:
+                return null;
+        }
+    }
+
+    private Object evaluate(Aggregate aggregate, List<long[]> ranges, Map<Long, Integer> envelopeCounts) {
+        switch (aggregate) {
+            case COUNT_BLOCKS:
+                return ranges.stream().mapToLong(range -> range[1] - range[0] + 1).sum();
+            case MIN_BLOCK:
+                return ranges.isEmpty() ? null : ranges.get(0)[0];
+            case MAX_BLOCK:
+                return ranges.isEmpty() ? null : ranges.get(ranges.size() - 1)[1];
+            case SUM_TRANSACTIONS:
+                return envelopeCounts.values().stream().mapToLong(Integer::longValue).sum();
+            default:
+                throw new BlkchnException("Unsupported aggregate " + aggregate);
+        }
+    }
+
+    /*
+     * The physical plan reduces a where clause on block_no alone to a single range
+     * node, anything else leaves logical operations or direct API nodes behind.
+     */
+    @SuppressWarnings("unchecked")
+    private RangeNode<Long> getBlockRange() {
+        TreeNode whereClause = physicalPlan.getWhereClause();
+        if (whereClause == null || whereClause.hasChildType(LogicalOperation.class)
+                || whereClause.hasChildType(DirectAPINode.class) || !whereClause.hasChildType(RangeNode.class)) {
+            return null;
+        }
+        RangeNode<Long> rangeNode = whereClause.getChildType(RangeNode.class, 0);
+        return FabricColumns.BLOCK_NO.equals(rangeNode.getColumn()) ? rangeNode : null;
+    }
+
+    /*
+     * Sorted, disjoint block ranges of the range node clipped to the blocks of the
+     * ledger, leaving out the genesis block like range scans do.
+     */
+    @SuppressWarnings("unchecked")
+    private List<long[]> getBlockRanges(RangeNode<Long> rangeNode) {
+        RangeOperations<Long> rangeOps = (RangeOperations<Long>) physicalPlan.getRangeOperations(rangeNode.getTable(),
+                rangeNode.getColumn());
+        long height;
+        try {
+            height = queryBlock.queryBlockchainInfo().getHeight();
+        } catch (ProposalException | InvalidArgumentException e) {
+            throw new BlkchnException("Error getting height of ledger", e);
+        }
+        List<long[]> clipped = new ArrayList<>();
+        for (Range<Long> range : rangeNode.getRangeList().getRanges()) {
+            long min = range.getMin().equals(rangeOps.getMinValue()) ? 1l : Math.max(1l, range.getMin().longValue());
+            long max = range.getMax().equals(rangeOps.getMaxValue()) ? height - 1
+                    : Math.min(height - 1, range.getMax().longValue());
+            if (min <= max) {
+                clipped.add(new long[] { min, max });
+            }
+        }
+        clipped.sort((a, b) -> Long.compare(a[0], b[0]));
+        List<long[]> merged = new ArrayList<>();
+        for (long[] range : clipped) {
+            long[] last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if (last != null && range[0] <= last[1] + 1) {
+                last[1] = Math.max(last[1], range[1]);
+            } else {
+                merged.add(Arrays.copyOf(range, 2));
+            }
+        }
+        return merged;
+    }
+}
@@ -16,21 +16,35 @@
 
 package com.impetus.fabric.parser;
 
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
+import org.json.simple.parser.ContentHandler;
 import org.json.simple.parser.JSONParser;
 import org.json.simple.parser.ParseException;
 
+import com.google.protobuf.ByteString;
+
 import com.impetus.blkch.BlkchnException;
 import com.impetus.blkch.sql.DataFrame;
 import com.impetus.blkch.sql.parser.LogicalPlan;
@@ -40,6 +54,9 @@ public class AssetSchema {
     
     private static final Log LOGGER = LogFactory.getLog(AssetSchema.class);
 
+    // Schemas read from the database, by config path and asset name
+    private static final Map<String, CachedSchema> SCHEMA_CACHE = new ConcurrentHashMap<>();
+
     private StorageType storageType;
     
     private Map<String, String> columnDetails;
@@ -47,54 +64,206 @@ public class AssetSchema {
     private String fieldDelimiter;
     
     private String lineDelimiter;
+
+    // Columns of JSON assets come from the first record unless the schema lists them
+    private boolean typedColumns;
+
+    // Types of the columns in schema order, null when the columns come from the data
+    private ColumnType[] columnTypes;
     
     private AssetSchema(AssetSchemaBuilder builder) {
         this.storageType = builder.storageType;
         this.columnDetails = builder.columnDetails;
         this.fieldDelimiter = builder.fieldDelimiter;
         this.lineDelimiter = builder.lineDelimiter;
+        this.typedColumns = storageType == StorageType.JSON && columnDetails != null;
+        if(columnDetails != null) {
+            this.columnTypes = columnDetails.values().stream().map(ColumnType::of).toArray(ColumnType[]::new);
+        }
+    }
+
+    /* Columns of untyped JSON assets are replaced per query, so cached schemas are copied before use */
+    private AssetSchema(AssetSchema schema) {
+        this.storageType = schema.storageType;
+        this.columnDetails = schema.columnDetails;
+        this.fieldDelimiter = schema.fieldDelimiter;
+        this.lineDelimiter = schema.lineDelimiter;
+        this.typedColumns = schema.typedColumns;
+        this.columnTypes = schema.columnTypes;
     }
     
-    public DataFrame createDataFrame(String queryData) {
+    /**
+     * Turns the chaincode result into rows, reading the payload in place.
+     */
+    public DataFrame createDataFrame(ByteString payload) {
         List<List<Object>> data = new ArrayList<>();
-        if(storageType == StorageType.RAW) {
-            String[] records = queryData.split(lineDelimiter);
-            for(String record : records) {
-                data.add(Arrays.asList(record));
-            }
-            return new DataFrame(data, columnDetails.keySet().toArray(new String[]{}), new HashMap<>());
-        } else if(storageType == StorageType.CSV) {
-            if(queryData.isEmpty()) {
-                return new DataFrame(data, columnDetails.keySet().toArray(new String[]{}), new HashMap<>());
+        if(storageType == StorageType.RAW || storageType == StorageType.CSV) {
+            DelimitedScanner scanner;
+            try {
+                scanner = new DelimitedScanner(newReader(payload), lineDelimiter,
+                        storageType == StorageType.CSV ? fieldDelimiter : null);
+            } catch (IllegalArgumentException e) {
+                throw new BlkchnException("Invalid delimiter in asset schema: " + e.getMessage(), e);
             }
-            String[] records = queryData.split(lineDelimiter);
-            for(String record : records) {
-                data.add(Arrays.asList(record.split(fieldDelimiter)));
+            try {
+                String[] columns = columnDetails.keySet().toArray(new String[]{});
+                List<String> record;
+                while((record = scanner.nextRecord()) != null) {
+                    List<Object> row = new ArrayList<>(record.size());
+                    for(int i = 0 ; i < record.size() ; i++) {
+                        row.add(i < columnTypes.length ? convertValue(columns[i], columnTypes[i], record.get(i))
+                                : record.get(i));
+                    }
+                    data.add(row);
+                }
+            } catch (IOException e) {
+                throw new BlkchnException("Error reading query data", e);
             }
             return new DataFrame(data, columnDetails.keySet().toArray(new String[]{}), new HashMap<>());
         } else {
-            Object obj;
+            /* Records are turned into rows as they are parsed, only one record is held as json at a time */
+            RecordHandler handler = new RecordHandler(json -> addJSONRecord(data, json));
             try {
-                obj = new JSONParser().parse(queryData);
-            } catch (ParseException e) {
+                new JSONParser().parse(newReader(payload), handler);
+            } catch (ParseException | IOException e) {
                 LOGGER.error("unable to create dataframe as query data is not parsable into json", e);
                 throw new BlkchnException("unable to create dataframe as query data is not parsable into json", e);
             }
-            if(obj instanceof JSONArray) {
-                JSONArray arr = (JSONArray) obj;
-                if(arr.size() == 0) {
-                    return new DataFrame(data, new ArrayList<>(), new HashMap<>());
-                }
-                updateJSONColumns((JSONObject)arr.get(0));
-                for(int i = 0 ; i < arr.size() ; i++) {
-                    data.add(getJSONRecord((JSONObject) arr.get(i)));
+            return jsonDataFrame(data);
+        }
+    }
+
+    /**
+     * Turns a page of records fetched by a paged call into rows. Columns taken from
+     * the first record of an earlier page are kept for the later pages.
+     */
+    DataFrame createDataFrame(JSONArray records) {
+        if(storageType != StorageType.JSON) {
+            throw new BlkchnException("Paged results can only be read into json assets");
+        }
+        List<List<Object>> data = new ArrayList<>();
+        for(Object record : records) {
+            if(!(record instanceof JSONObject)) {
+                throw new BlkchnException("Records of a page should be json objects");
+            }
+            addJSONRecord(data, (JSONObject) record);
+        }
+        return jsonDataFrame(data);
+    }
+
+    boolean isJSON() {
+        return storageType == StorageType.JSON;
+    }
+
+    private void addJSONRecord(List<List<Object>> data, JSONObject json) {
+        if(columnDetails == null) {
+            updateJSONColumns(json);
+        }
+        data.add(getJSONRecord(json));
+    }
+
+    private DataFrame jsonDataFrame(List<List<Object>> data) {
+        if(columnDetails == null) {
+            return new DataFrame(data, new ArrayList<>(), new HashMap<>());
+        }
+        return new DataFrame(data, columnDetails.keySet().toArray(new String[]{}), new HashMap<>());
+    }
+
+    private static Reader newReader(ByteString payload) {
+        return new InputStreamReader(payload.newInput(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Builds the records of a json document, which is either a record or an array
+     * of records, and hands each over as soon as it is complete.
+     */
+    static class RecordHandler implements ContentHandler {
+
+        private final Consumer<JSONObject> recordConsumer;
+
+        private final Deque<Object> containers = new ArrayDeque<>();
+
+        private final Deque<String> keys = new ArrayDeque<>();
+
+        private boolean inRecordArray = false;
+
+        RecordHandler(Consumer<JSONObject> recordConsumer) {
+            this.recordConsumer = recordConsumer;
+        }
+
+        @Override
+        public void startJSON() {
+            containers.clear();
+            keys.clear();
+            inRecordArray = false;
+        }
+
+        @Override
+        public void endJSON() {
+            // Nothing to do
+        }
+
+        @Override
+        public boolean startObject() {
+            containers.push(new JSONObject());
+            return true;
+        }
+
+        @Override
+        public boolean endObject() {
+            value(containers.pop());
+            return true;
+        }
+
+        @Override
+        public boolean startObjectEntry(String key) {
+            keys.push(key);
+            return true;
+        }
+
+        @Override
+        public boolean endObjectEntry() {
+            keys.pop();
+            return true;
+        }
+
+        @Override
+        public boolean startArray() {
+            if(containers.isEmpty() && !inRecordArray) {
+                inRecordArray = true;
+            } else {
+                containers.push(new JSONArray());
+            }
+            return true;
+        }
+
+        @Override
+        public boolean endArray() {
+            if(containers.isEmpty()) {
+                inRecordArray = false;
+            } else {
+                value(containers.pop());
+            }
+            return true;
+        }
+
+        @Override
+        public boolean primitive(Object value) {
+            value(value);
+            return true;
+        }
+
+        @SuppressWarnings("unchecked")
+        private void value(Object value) {
+            if(containers.isEmpty()) {
+                if(!(value instanceof JSONObject)) {
+                    throw new BlkchnException("Query data should be a json object or an array of json objects");
                 }
-                return new DataFrame(data, columnDetails.keySet().toArray(new String[]{}), new HashMap<>());
+                recordConsumer.accept((JSONObject) value);
+            } else if(containers.peek() instanceof JSONObject) {
+                ((JSONObject) containers.peek()).put(keys.peek(), value);
             } else {
-                JSONObject json = (JSONObject) obj;
-                updateJSONColumns(json);
-                data.add(getJSONRecord(json));
-                return new DataFrame(data, columnDetails.keySet().toArray(new String[]{}), new HashMap<>());
+                ((JSONArray) containers.peek()).add(value);
             }
         }
     }
@@ -111,18 +280,120 @@ public class AssetSchema {
     
     private List<Object> getJSONRecord(JSONObject json) {
         List<Object> record = new ArrayList<>();
-        for(String key : columnDetails.keySet()) {
-            if(json.containsKey(key)) {
-                record.add(json.get(key));
-            } else {
-                record.add(null);
-            }
+        int i = 0;
+        for(String column : columnDetails.keySet()) {
+            Object value = json.get(column);
+            record.add(typedColumns ? convertValue(column, columnTypes[i++], value) : value);
         }
         return record;
     }
+
+    /**
+     * Column types of asset schemas, values of other types are left as they are.
+     */
+    static enum ColumnType {
+        STRING,
+        INT,
+        LONG,
+        DOUBLE,
+        DECIMAL,
+        BOOLEAN,
+        TIMESTAMP,
+        OTHER;
+
+        static ColumnType of(String colType) {
+            switch(colType.toLowerCase()) {
+                case "string":
+                case "varchar":
+                case "text":
+                    return STRING;
+                case "int":
+                case "integer":
+                    return INT;
+                case "long":
+                case "bigint":
+                    return LONG;
+                case "float":
+                case "double":
+                    return DOUBLE;
+                case "decimal":
+                case "numeric":
+                    return DECIMAL;
+                case "boolean":
+                case "bool":
+                    return BOOLEAN;
+                case "timestamp":
+                case "datetime":
+                    return TIMESTAMP;
+                default:
+                    return OTHER;
+            }
+        }
+    }
+
+    /**
+     * Converts a parsed value to the type of its column once, so that rows hold
+     * numbers, booleans and timestamps rather than their text. Empty text is null
+     * for columns other than strings. Timestamps are epoch milliseconds, JDBC
+     * timestamp escapes or ISO-8601 instants.
+     */
+    static Object convertValue(String column, ColumnType type, Object value) {
+        if(value == null || type == ColumnType.OTHER || (type == ColumnType.STRING && value instanceof String)) {
+            return value;
+        }
+        if(type == ColumnType.STRING) {
+            return value.toString();
+        }
+        String text = value.toString().trim();
+        if(value instanceof String && text.isEmpty()) {
+            return null;
+        }
+        try {
+            switch(type) {
+                case INT:
+                    return value instanceof Number ? ((Number) value).intValue() : Integer.parseInt(text);
+                case LONG:
+                    return value instanceof Number ? ((Number) value).longValue() : Long.parseLong(text);
+                case DOUBLE:
+                    return value instanceof Number ? ((Number) value).doubleValue() : Double.parseDouble(text);
+                case DECIMAL:
+                    return new BigDecimal(text);
+                case BOOLEAN:
+                    return value instanceof Boolean ? value : Boolean.parseBoolean(text);
+                case TIMESTAMP:
+                    if(value instanceof Number) {
+                        return new Timestamp(((Number) value).longValue());
+                    }
+                    return text.indexOf('T') > 0 ? Timestamp.from(Instant.parse(text)) : Timestamp.valueOf(text);
+                default:
+                    return value;
+            }
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new BlkchnException(String.format("Value %s of column %s is not of type %s", value, column,
+                    type.name().toLowerCase()), e);
+        }
+    }
     
     
+    /**
+     * Schema of json results of calls without asset, columns are taken from the data.
+     */
+    static AssetSchema getJSONSchema() {
+        return new AssetSchemaBuilder().setStorageType(StorageType.JSON).build();
+    }
+
     public static AssetSchema getAssetSchema(LogicalPlan logicalPlan, Config config, String asset) {
+        return getAssetSchema(config, asset, name -> new FabricAssetManager(logicalPlan, config).getSchemaJSON(name));
+    }
+
+    /**
+     * Reads the schema json of an asset from the database.
+     */
+    interface SchemaSource {
+        String getSchemaJSON(String asset) throws SQLException;
+    }
+
+    static AssetSchema getAssetSchema(Config config, String asset, SchemaSource schemaSource) {
         AssetSchemaBuilder builder = new AssetSchemaBuilder();
         if(asset == null) {
             LinkedHashMap<String, String> columns = new LinkedHashMap<>();
@@ -134,16 +405,30 @@ public class AssetSchema {
             columns.put("data", "string");
             return builder.setColumnDetails(columns).setLineDelimiter("\n").setStorageType(StorageType.RAW).build();
         }
+        String cacheKey = config.getConfigPath() + "|" + asset;
+        long ttl = config.getAssetSchemaCacheTtl();
+        CachedSchema cached = SCHEMA_CACHE.get(cacheKey);
+        if(cached != null && System.currentTimeMillis() - cached.loadTime < ttl) {
+            return new AssetSchema(cached.schema);
+        }
         String schemaJSON;
-        FabricAssetManager assetManager = new FabricAssetManager(logicalPlan, config);
         try {
-            schemaJSON = assetManager.getSchemaJSON(asset);
+            schemaJSON = schemaSource.getSchemaJSON(asset);
         } catch (SQLException | BlkchnException e) {
             LOGGER.error("Error reading schema json from database. Falling back to RAW storage type", e);
             LinkedHashMap<String, String> columns = new LinkedHashMap<>();
             columns.put("data", "string");
             return builder.setColumnDetails(columns).setLineDelimiter("\n").setStorageType(StorageType.RAW).build();
         }
+        AssetSchema schema = parseSchema(schemaJSON);
+        if(ttl > 0) {
+            SCHEMA_CACHE.put(cacheKey, new CachedSchema(schema));
+        }
+        return new AssetSchema(schema);
+    }
+
+    private static AssetSchema parseSchema(String schemaJSON) {
+        AssetSchemaBuilder builder = new AssetSchemaBuilder();
         JSONObject json;
         try {
             json = (JSONObject)new JSONParser().parse(schemaJSON);
@@ -175,10 +460,39 @@ public class AssetSchema {
             return builder.build();
         } else {
             builder.setStorageType(StorageType.JSON);
+            if(json.containsKey("columnDetails")) {
+                JSONArray columnDetails = (JSONArray)json.get("columnDetails");
+                LinkedHashMap<String, String> columns = new LinkedHashMap<>();
+                for(int i = 0 ; i < columnDetails.size() ; i++) {
+                    JSONObject columnDetail = (JSONObject) columnDetails.get(i);
+                    columns.put(columnDetail.get("colName").toString().trim(), columnDetail.get("colType").toString().trim());
+                }
+                builder.setColumnDetails(columns);
+            }
             return builder.build();
         }
     }
     
+    /**
+     * Forgets the cached schemas of the assets under the config path, after assets
+     * have been created or dropped through it.
+     */
+    public static void invalidateCache(Config config) {
+        String prefix = config.getConfigPath() + "|";
+        SCHEMA_CACHE.keySet().removeIf(key -> key.startsWith(prefix));
+    }
+
+    private static class CachedSchema {
+
+        private final AssetSchema schema;
+
+        private final long loadTime = System.currentTimeMillis();
+
+        CachedSchema(AssetSchema schema) {
+            this.schema = schema;
+        }
+    }
+    
     private static enum StorageType {
         JSON,
         CSV,
@@ -0,0 +1,211 @@
+/*******************************************************************************
+ * * Copyright 2018 Impetus Infotech.
+ * *
+ * * Licensed under the Apache License, Version 2.0 (the "License");
+ * * you may not use this file except in compliance with the License.
+ * * You may obtain a copy of the License at
+ * *
+ * * http://www.apache.org/licenses/LICENSE-2.0
+ * *
+ * * Unless required by applicable law or agreed to in writing, software
+ * * distributed under the License is distributed on an "AS IS" BASIS,
+ * * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * * See the License for the specific language governing permissions and
+ * * limitations under the License.
+ ******************************************************************************/
+
+package com.impetus.fabric.parser;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.hyperledger.fabric.protos.ledger.rwset.Rwset.NsReadWriteSet;
+import org.hyperledger.fabric.protos.ledger.rwset.Rwset.TxReadWriteSet;
+import org.hyperledger.fabric.protos.ledger.rwset.kvrwset.KvRwset.KVRWSet;
+import org.hyperledger.fabric.protos.peer.FabricTransaction.TransactionAction;
+import org.hyperledger.fabric.sdk.BlockInfo;
+import org.hyperledger.fabric.sdk.BlockInfo.EnvelopeInfo;
+import org.hyperledger.fabric.protos.common.Common.Envelope;
+import org.hyperledger.fabric.sdk.exception.InvalidArgumentException;
+import org.hyperledger.fabric.sdk.exception.ProposalException;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.impetus.blkch.BlkchnException;
+import com.impetus.fabric.objects.ReadWriteSetObject;
+import com.impetus.fabric.objects.TransactionActionDeserializer;
+import com.impetus.fabric.objects.TransactionActionObject;
+import com.impetus.fabric.objects.TransactionObject;
+import com.impetus.fabric.query.FabricTables;
+import com.impetus.fabric.query.QueryBlock;
+
+/**
+ * Turns blocks into the row objects of a fabric table. Each block is fetched and
+ * decoded as a separate task on the decode pool of {@link QueryBlock}, results
+ * are always returned in the order the blocks were requested in. Rows of the block
+ * table are header objects from the header cache of {@link QueryBlock}, unless the
+ * whole blocks are asked for.
+ */
+public class BlockDecoder {
+
+    private final QueryBlock queryBlock;
+
+    private final boolean headersOnly;
+
+    public BlockDecoder(QueryBlock queryBlock, boolean headersOnly) {
+        this.queryBlock = queryBlock;
+        this.headersOnly = headersOnly;
+    }
+
+    /**
+     * Fetches and decodes the given blocks in parallel. The returned list holds one
+     * row map per block, in the order of {@code blockNumbers}.
+     */
+    public List<LinkedHashMap<String, Object>> decodeBlocks(String table, List<Long> blockNumbers) {
+        if (blockNumbers.size() == 1) {
+            return Collections.singletonList(fetchAndDecode(table, blockNumbers.get(0)));
+        }
+        List<Callable<LinkedHashMap<String, Object>>> tasks = blockNumbers.stream()
+                .map(blockNo -> (Callable<LinkedHashMap<String, Object>>) () -> fetchAndDecode(table, blockNo))
+                .collect(Collectors.toList());
+        List<LinkedHashMap<String, Object>> decoded = new ArrayList<>(tasks.size());
+        for (Future<LinkedHashMap<String, Object>> future : queryBlock.getDecodePool().invokeAll(tasks)) {
+            decoded.add(getResult(future));
+        }
+        return decoded;
+    }
+
+    /**
+     * Builds one output row per key on the decode pool, preserving the key order.
+     */
+    public <K> List<List<Object>> decodeRows(List<K> keys, Function<K, List<Object>> rowMapper) {
+        if (keys.size() < 2) {
+            return keys.stream().map(rowMapper).collect(Collectors.toList());
+        }
+        ForkJoinPool pool = queryBlock.getDecodePool();
+        return getResult(pool.submit(() -> keys.parallelStream().map(rowMapper).collect(Collectors.toList())));
+    }
+
+    private LinkedHashMap<String, Object> fetchAndDecode(String table, long blockNo) {
+        try {
+            if (headersOnly && FabricTables.BLOCK.equals(table)) {
+                LinkedHashMap<String, Object> rows = new LinkedHashMap<>();
+                rows.put(RowKey.block(blockNo), queryBlock.getBlockHeader(blockNo));
+                return rows;
+            }
+            BlockInfo blockInfo = queryBlock.queryBlockByNumber(blockNo);
+            return decodeBlock(table, blockInfo);
+        } catch (Exception e) {
+            throw new BlkchnException("Error query block by number " + blockNo, e);
+        }
+    }
+
+    public LinkedHashMap<String, Object> decodeBlock(String table, BlockInfo blockInfo) throws ProposalException,
+            InvalidArgumentException, InvalidProtocolBufferException {
+        LinkedHashMap<String, Object> rows = new LinkedHashMap<>();
+        long blockNo = blockInfo.getBlockNumber();
+        if (FabricTables.BLOCK.equals(table)) {
+            rows.put(RowKey.block(blockNo), blockRow(blockInfo));
+            return rows;
+        }
+        int txIndex = 0;
+        for (EnvelopeInfo envelopeInfo : blockInfo.getEnvelopeInfos()) {
+            TransactionObject transactionObject = transactionObject(blockInfo, txIndex,
+                    envelopeInfo.getTransactionID());
+            rows.putAll(decodeTransaction(table, blockNo, txIndex++, transactionObject));
+        }
+        queryBlock.getStatistics().recordBlock(table, blockNo, rows.values());
+        return rows;
+    }
+
+    public LinkedHashMap<String, Object> decodeTransaction(String table, long blockNo, int txIndex,
+            TransactionObject transactionObject) throws InvalidProtocolBufferException {
+        LinkedHashMap<String, Object> rows = new LinkedHashMap<>();
+        String transactionId = transactionObject.getDeserializer().getTransactionId();
+        if (FabricTables.TRANSACTION.equals(table)) {
+            rows.put(transactionId, transactionObject);
+            return rows;
+        }
+        List<TransactionAction> transactionActions = transactionObject.getDeserializer().getTransactionActions();
+        for (int i = 0; i < transactionActions.size(); i++) {
+            if (FabricTables.TRANSACTION_ACTION.equals(table)) {
+                rows.put(RowKey.action(blockNo, txIndex, i),
+                        new TransactionActionObject(blockNo, transactionId, transactionActions.get(i)));
+                continue;
+            }
+            TxReadWriteSet readWriteSet = new TransactionActionDeserializer(transactionActions.get(i))
+                    .getTxReadWriteSet();
+            for (int j = 0; j < readWriteSet.getNsRwsetCount(); j++) {
+                NsReadWriteSet ns = readWriteSet.getNsRwset(j);
+                String namespace = ns.getNamespace();
+                KVRWSet set = KVRWSet.parseFrom(ns.getRwset());
+                for (int k = 0; k < set.getReadsCount(); k++) {
+                    rows.put(RowKey.readWriteSet(blockNo, txIndex, i, j, RowKey.READ, k),
+                            new ReadWriteSetObject(blockNo, transactionId, namespace, set.getReads(k)));
+                }
+                for (int k = 0; k < set.getRangeQueriesInfoCount(); k++) {
+                    rows.put(RowKey.readWriteSet(blockNo, txIndex, i, j, RowKey.RANGE_QUERY, k),
+                            new ReadWriteSetObject(blockNo, transactionId, namespace, set.getRangeQueriesInfo(k)));
+                }
+                for (int k = 0; k < set.getWritesCount(); k++) {
+                    rows.put(RowKey.readWriteSet(blockNo, txIndex, i, j, RowKey.WRITE, k),
+                            new ReadWriteSetObject(blockNo, transactionId, namespace, set.getWrites(k)));
+                }
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Row of the block table for the block, its header unless whole blocks are kept.
+     */
+    public Object blockRow(BlockInfo blockInfo) {
+        return headersOnly ? queryBlock.cacheBlockHeader(blockInfo) : blockInfo;
+    }
+
+    /**
+     * Transaction at the given position of the block, read from the envelope in the
+     * block rather than queried from a peer.
+     */
+    public static TransactionObject transactionObject(BlockInfo blockInfo, int txIndex, String transactionId)
+            throws InvalidProtocolBufferException {
+        Envelope envelope = Envelope.parseFrom(blockInfo.getBlock().getData().getData(txIndex));
+        return new TransactionObject(blockInfo.getBlockNumber(), transactionId, envelope);
+    }
+
+    /**
+     * Position of the transaction within the block, used in row keys.
+     */
+    public static int transactionIndex(BlockInfo blockInfo, String transactionId) {
+        int txIndex = 0;
+        for (EnvelopeInfo envelopeInfo : blockInfo.getEnvelopeInfos()) {
+            if (transactionId.equals(envelopeInfo.getTransactionID())) {
+                return txIndex;
+            }
+            txIndex++;
+        }
+        throw new BlkchnException(String.format("Transaction %s not found in block %d", transactionId,
+                blockInfo.getBlockNumber()));
+    }
+
+    private static <T> T getResult(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BlkchnException("Interrupted while decoding blocks", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof BlkchnException) {
+                throw (BlkchnException) e.getCause();
+            }
+            throw new BlkchnException("Error decoding blocks", e.getCause());
+        }
+    }
+}
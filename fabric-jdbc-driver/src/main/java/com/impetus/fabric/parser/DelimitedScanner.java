@@ -0,0 +1,226 @@
+/*******************************************************************************
+ * * Copyright 2018 Impetus Infotech.
+ * *
+ * * Licensed under the Apache License, Version 2.0 (the "License");
+ * * you may not use this file except in compliance with the License.
+ * * You may obtain a copy of the License at
+ * *
+ * * http://www.apache.org/licenses/LICENSE-2.0
+ * *
+ * * Unless required by applicable law or agreed to in writing, software
+ * * distributed under the License is distributed on an "AS IS" BASIS,
+ * * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * * See the License for the specific language governing permissions and
+ * * limitations under the License.
+ ******************************************************************************/
+
+package com.impetus.fabric.parser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Splits delimited text into records and fields in a single pass over a reader.
+ * Delimiters are regular expressions, like those of {@link String#split}. Ones
+ * which match a fixed string, such as {@code ","} or {@code "\\|"}, are matched
+ * char by char. Empty fields are kept, a record delimiter at the end of the text
+ * does not start another record.
+ */
+class DelimitedScanner {
+
+    private static final String METACHARACTERS = "\\^$.|?*+()[]{}";
+
+    private final Reader reader;
+
+    // Literal form of the delimiters, null for patterns
+    private final char[] recordDelimiter;
+
+    private final char[] fieldDelimiter;
+
+    private final Pattern recordPattern;
+
+    private final Pattern fieldPattern;
+
+    private final char[] buffer = new char[8192];
+
+    private int position = 0;
+
+    private int limit = 0;
+
+    private final StringBuilder field = new StringBuilder();
+
+    // Text read ahead of the record delimiter pattern
+    private final StringBuilder pending = new StringBuilder();
+
+    private boolean exhausted = false;
+
+    /**
+     * Records are not split into fields when the field delimiter is null.
+     *
+     * @throws IllegalArgumentException
+     *             when a delimiter is not a valid pattern or matches empty text
+     */
+    DelimitedScanner(Reader reader, String recordDelimiter, String fieldDelimiter) {
+        if (recordDelimiter == null || recordDelimiter.isEmpty()) {
+            throw new IllegalArgumentException("Record delimiter can't be empty");
+        }
+        if (fieldDelimiter != null && fieldDelimiter.isEmpty()) {
+            throw new IllegalArgumentException("Field delimiter can't be empty");
+        }
+        this.reader = reader;
+        String recordLiteral = literalOf(recordDelimiter);
+        String fieldLiteral = fieldDelimiter == null ? null : literalOf(fieldDelimiter);
+        this.recordDelimiter = recordLiteral == null ? null : recordLiteral.toCharArray();
+        this.fieldDelimiter = fieldLiteral == null ? null : fieldLiteral.toCharArray();
+        this.recordPattern = recordLiteral == null ? compile("Record", recordDelimiter) : null;
+        this.fieldPattern = fieldDelimiter != null && fieldLiteral == null ? compile("Field", fieldDelimiter) : null;
+    }
+
+    private static Pattern compile(String kind, String delimiter) {
+        Pattern pattern = Pattern.compile(delimiter);
+        if (pattern.matcher("").matches()) {
+            throw new IllegalArgumentException(String.format("%s delimiter %s matches empty text", kind, delimiter));
+        }
+        return pattern;
+    }
+
+    /*
+     * The string a delimiter pattern matches when it is made of plain and escaped
+     * characters only, null otherwise.
+     */
+    static String literalOf(String delimiter) {
+        StringBuilder literal = new StringBuilder(delimiter.length());
+        for (int i = 0; i < delimiter.length(); i++) {
+            char c = delimiter.charAt(i);
+            if (c == '\\') {
+                if (++i == delimiter.length() || Character.isLetterOrDigit(delimiter.charAt(i))) {
+                    return null;
+                }
+                literal.append(delimiter.charAt(i));
+            } else if (METACHARACTERS.indexOf(c) >= 0) {
+                return null;
+            } else {
+                literal.append(c);
+            }
+        }
+        return literal.toString();
+    }
+
+    /**
+     * Returns the fields of the next record, or null when the text is exhausted.
+     */
+    List<String> nextRecord() throws IOException {
+        if (recordPattern != null) {
+            String record = nextPatternRecord();
+            return record == null ? null : split(record);
+        }
+        List<String> record = new ArrayList<>();
+        field.setLength(0);
+        boolean read = false;
+        while (true) {
+            if (position == limit) {
+                limit = reader.read(buffer, 0, buffer.length);
+                position = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    if (!read) {
+                        return null;
+                    }
+                    addField(record, field.toString());
+                    return record;
+                }
+            }
+            read = true;
+            field.append(buffer[position++]);
+            if (endsWith(recordDelimiter)) {
+                field.setLength(field.length() - recordDelimiter.length);
+                addField(record, field.toString());
+                return record;
+            }
+            if (fieldDelimiter != null && endsWith(fieldDelimiter)) {
+                field.setLength(field.length() - fieldDelimiter.length);
+                record.add(field.toString());
+                field.setLength(0);
+            }
+        }
+    }
+
+    /*
+     * A match of the record delimiter is taken once more text could not change it,
+     * so that a pattern like \\s+ takes a whole run of whitespace.
+     */
+    private String nextPatternRecord() throws IOException {
+        while (true) {
+            Matcher matcher = recordPattern.matcher(pending);
+            if (matcher.find() && (!matcher.hitEnd() || exhausted)) {
+                String record = pending.substring(0, matcher.start());
+                pending.delete(0, matcher.end());
+                return record;
+            }
+            if (exhausted) {
+                if (pending.length() == 0) {
+                    return null;
+                }
+                String record = pending.toString();
+                pending.setLength(0);
+                return record;
+            }
+            int read = reader.read(buffer, 0, buffer.length);
+            if (read <= 0) {
+                exhausted = true;
+            } else {
+                pending.append(buffer, 0, read);
+            }
+        }
+    }
+
+    private List<String> split(String record) {
+        if (fieldPattern != null) {
+            return new ArrayList<>(Arrays.asList(fieldPattern.split(record, -1)));
+        }
+        List<String> fields = new ArrayList<>();
+        if (fieldDelimiter == null) {
+            fields.add(record);
+            return fields;
+        }
+        String delimiter = new String(fieldDelimiter);
+        int start = 0;
+        int end;
+        while ((end = record.indexOf(delimiter, start)) >= 0) {
+            fields.add(record.substring(start, end));
+            start = end + delimiter.length();
+        }
+        fields.add(record.substring(start));
+        return fields;
+    }
+
+    /*
+     * The last field of a record read char by char, split by the field pattern
+     * when there is one.
+     */
+    private void addField(List<String> record, String text) {
+        if (fieldPattern != null) {
+            record.addAll(Arrays.asList(fieldPattern.split(text, -1)));
+        } else {
+            record.add(text);
+        }
+    }
+
+    private boolean endsWith(char[] delimiter) {
+        int offset = field.length() - delimiter.length;
+        if (offset < 0) {
+            return false;
+        }
+        for (int i = 0; i < delimiter.length; i++) {
+            if (field.charAt(offset + i) != delimiter[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -20,6 +20,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
+import com.google.protobuf.ByteString;
 import com.impetus.blkch.BlkchnException;
 import com.impetus.blkch.sql.DataFrame;
 import com.impetus.blkch.sql.asset.Asset;
@@ -36,6 +37,7 @@ import com.impetus.blkch.sql.parser.LogicalPlan.SQLType;
 import com.impetus.blkch.sql.parser.TreeNode;
 import com.impetus.blkch.sql.query.IdentifierNode;
 import com.impetus.blkch.util.Utilities;
+import com.impetus.fabric.query.CallResultCache;
 import com.impetus.fabric.query.QueryBlock;
 
 public class FunctionExecutor {
@@ -80,18 +82,7 @@ public class FunctionExecutor {
     public DataFrame executeCall() {
         TreeNode callFunc = logicalPlan.getType().equals(SQLType.CALL_FUNCTION) ? logicalPlan.getCallFunction() : logicalPlan.getDeleteFunction();
         String chaincodeName = callFunc.getChildType(IdentifierNode.class, 0).getValue();
-        List<String> args = new ArrayList<>();
-        if(!callFunc.hasChildType(Parameters.class)) {
-            throw new BlkchnException("Invalid number of parameters");
-        }
-        Parameters params = callFunc.getChildType(Parameters.class, 0);
-        List<IdentifierNode> idents = params.getChildType(IdentifierNode.class);
-        if(idents.size() == 0) {
-            throw new BlkchnException("Invalid number of parameters");
-        }
-        for(IdentifierNode ident : idents) {
-            args.add(Utilities.unquote(ident.getValue()));
-        }
+        List<String> args = getCallArgs(callFunc);
         if(logicalPlan.getType().equals(SQLType.DELETE_FUNCTION)) {
             return queryBlock.invokeChaincode(chaincodeName, args.get(0), args.stream().skip(1).collect(Collectors.toList()).toArray(new String[]{}));
         } else {
@@ -102,11 +93,59 @@ public class FunctionExecutor {
                 String assetName = callFunc.getChildType(Asset.class, 0).getChildType(IdentifierNode.class, 0).getValue();
                 assetSchema = AssetSchema.getAssetSchema(logicalPlan, queryBlock.getConf(), assetName);
             }
-            String result = queryBlock.queryChaincode(chaincodeName, args.get(0), args.stream().skip(1).collect(Collectors.toList()).toArray(new String[]{}));
+            String[] functionArgs = args.stream().skip(1).collect(Collectors.toList()).toArray(new String[]{});
+            CallResultCache resultCache = queryBlock.getCallResultCache();
+            ByteString result = resultCache == null
+                    ? queryBlock.queryChaincodePayload(chaincodeName, args.get(0), functionArgs)
+                    : resultCache.getOrQuery(chaincodeName, args.get(0), functionArgs,
+                            () -> queryBlock.queryChaincodeResponse(chaincodeName, args.get(0), functionArgs));
             DataFrame df = assetSchema.createDataFrame(result);
             return df;
         }
     }
+
+    /**
+     * Returns the pages of a CALL of a function listed in config.call.pagedFunctions,
+     * or null when the function returns all its results at once.
+     */
+    public PagedCall executePagedCall() {
+        if(!logicalPlan.getType().equals(SQLType.CALL_FUNCTION)) {
+            return null;
+        }
+        TreeNode callFunc = logicalPlan.getCallFunction();
+        String chaincodeName = callFunc.getChildType(IdentifierNode.class, 0).getValue();
+        List<String> args = getCallArgs(callFunc);
+        if(!queryBlock.getConf().isPagedFunction(chaincodeName, args.get(0))) {
+            return null;
+        }
+        AssetSchema assetSchema;
+        if(!callFunc.hasChildType(Asset.class)) {
+            assetSchema = AssetSchema.getJSONSchema();
+        } else {
+            String assetName = callFunc.getChildType(Asset.class, 0).getChildType(IdentifierNode.class, 0).getValue();
+            assetSchema = AssetSchema.getAssetSchema(logicalPlan, queryBlock.getConf(), assetName);
+        }
+        if(!assetSchema.isJSON()) {
+            throw new BlkchnException("Results of paged function " + args.get(0) + " can only be read into json assets");
+        }
+        return new PagedCall(queryBlock, assetSchema, chaincodeName, args.get(0), args.subList(1, args.size()));
+    }
+
+    private List<String> getCallArgs(TreeNode callFunc) {
+        if(!callFunc.hasChildType(Parameters.class)) {
+            throw new BlkchnException("Invalid number of parameters");
+        }
+        Parameters params = callFunc.getChildType(Parameters.class, 0);
+        List<IdentifierNode> idents = params.getChildType(IdentifierNode.class);
+        if(idents.size() == 0) {
+            throw new BlkchnException("Invalid number of parameters");
+        }
+        List<String> args = new ArrayList<>();
+        for(IdentifierNode ident : idents) {
+            args.add(Utilities.unquote(ident.getValue()));
+        }
+        return args;
+    }
     
     public void executeUpgrade() {
         TreeNode upgradeFunc = logicalPlan.getUpgradeFunction();
@@ -0,0 +1,233 @@
+/*******************************************************************************
+ * * Copyright 2018 Impetus Infotech.
+ * *
+ * * Licensed under the Apache License, Version 2.0 (the "License");
+ * * you may not use this file except in compliance with the License.
+ * * You may obtain a copy of the License at
+ * *
+ * * http://www.apache.org/licenses/LICENSE-2.0
+ * *
+ * * Unless required by applicable law or agreed to in writing, software
+ * * distributed under the License is distributed on an "AS IS" BASIS,
+ * * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * * See the License for the specific language governing permissions and
+ * * limitations under the License.
+ ******************************************************************************/
+
+package com.impetus.fabric.parser;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.codec.DecoderException;
+import org.apache.commons.codec.binary.Hex;
+import org.hyperledger.fabric.sdk.BlockInfo;
+import org.hyperledger.fabric.sdk.BlockInfo.EnvelopeInfo;
+import org.hyperledger.fabric.sdk.exception.InvalidArgumentException;
+import org.hyperledger.fabric.sdk.exception.ProposalException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.impetus.blkch.BlkchnException;
+import com.impetus.fabric.query.FabricColumns;
+import com.impetus.fabric.query.FabricTables;
+import com.impetus.fabric.query.QueryBlock;
+
+/**
+ * Blocks fetched by the direct API lookups of a query, shared by all its branches.
+ * A block is fetched once however many lookups need it: a lookup finding its block
+ * being fetched waits for that fetch, and the transactions of every fetched block
+ * are indexed so that lookups of other transactions in it need no request.
+ */
+class LedgerLookups {
+
+    private static final Logger logger = LoggerFactory.getLogger(LedgerLookups.class);
+
+    private final QueryBlock queryBlock;
+
+    private final boolean retainRawData;
+
+    // Blocks by "n" and number or "h" and hash, completed once fetched
+    private final Map<String, CompletableFuture<BlockInfo>> fetched = new ConcurrentHashMap<>();
+
+    private final Map<String, Long> transactionBlocks = new ConcurrentHashMap<>();
+
+    private final Set<Long> indexedBlocks = ConcurrentHashMap.newKeySet();
+
+    LedgerLookups(QueryBlock queryBlock, boolean retainRawData) {
+        this.queryBlock = queryBlock;
+        this.retainRawData = retainRawData;
+    }
+
+    /**
+     * Equality condition on a column answered by a direct API call.
+     */
+    static class Lookup {
+
+        final String table;
+
+        final String column;
+
+        final String value;
+
+        Lookup(String table, String column, String value) {
+            this.table = table;
+            this.column = column;
+            this.value = value.replace("'", "");
+        }
+    }
+
+    /**
+     * Fetches the blocks of the lookups concurrently, with the parallelism of the
+     * decode pool. Transaction ids are split into as many contiguous slices, each
+     * resolved in order, as the ids of a block tend to be listed together: an id
+     * whose block an earlier one brought in is skipped.
+     */
+    void prefetch(List<Lookup> lookups) {
+        Set<String> transactionIds = new LinkedHashSet<>();
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (Lookup lookup : lookups) {
+            if (FabricColumns.TRANSACTION_ID.equals(lookup.column)) {
+                transactionIds.add(lookup.value);
+            } else {
+                tasks.add(() -> {
+                    prefetch(lookup);
+                    return null;
+                });
+            }
+        }
+        List<String> ids = new ArrayList<>(transactionIds);
+        int slices = Math.min(ids.size(), queryBlock.getDecodePool().getParallelism());
+        for (int i = 0; i < slices; i++) {
+            List<String> slice = ids.subList(i * ids.size() / slices, (i + 1) * ids.size() / slices);
+            tasks.add(() -> {
+                for (String transactionId : slice) {
+                    if (!transactionBlocks.containsKey(transactionId)) {
+                        prefetch(new Lookup(FabricTables.TRANSACTION, FabricColumns.TRANSACTION_ID, transactionId));
+                    }
+                }
+                return null;
+            });
+        }
+        if (tasks.size() > 1) {
+            queryBlock.getDecodePool().invokeAll(tasks);
+        }
+    }
+
+    private void prefetch(Lookup lookup) {
+        try {
+            if (FabricColumns.TRANSACTION_ID.equals(lookup.column)) {
+                fetchBlockByTransactionId(lookup.value);
+            } else if (FabricColumns.PREVIOUS_HASH.equals(lookup.column)) {
+                fetchBlockByHash(lookup.value);
+            } else if (FabricTables.BLOCK.equals(lookup.table) && !retainRawData) {
+                queryBlock.getBlockHeader(Long.parseLong(lookup.value));
+            } else {
+                fetchBlockByNumber(Long.parseLong(lookup.value));
+            }
+        } catch (Exception e) {
+            // The lookup fetches again when executed and reports the error there
+            logger.debug("Error prefetching " + lookup.column + " " + lookup.value, e);
+        }
+    }
+
+    /**
+     * Number of requests the lookup costs. A lookup by block_no in a transaction
+     * table also decodes every transaction of the block.
+     */
+    double getCost(Lookup lookup) {
+        if (FabricColumns.TRANSACTION_ID.equals(lookup.column)) {
+            return transactionBlocks.containsKey(lookup.value) ? 0 : 1;
+        }
+        if (FabricColumns.PREVIOUS_HASH.equals(lookup.column)) {
+            return fetched.containsKey("h" + lookup.value) ? 0 : 1;
+        }
+        if (FabricTables.BLOCK.equals(lookup.table)) {
+            return 1;
+        }
+        return (fetched.containsKey("n" + lookup.value) ? 0 : 1)
+                + queryBlock.getStatistics().getRowsPerBlock(FabricTables.TRANSACTION);
+    }
+
+    private interface Fetch {
+        BlockInfo get() throws ProposalException, InvalidArgumentException;
+    }
+
+    /*
+     * The first caller for a key fetches the block, later ones wait for it. A failed
+     * fetch is forgotten, so that the lookup executing it retries and reports it.
+     */
+    private BlockInfo fetchOnce(String key, Fetch fetch) throws ProposalException, InvalidArgumentException {
+        CompletableFuture<BlockInfo> claim = new CompletableFuture<>();
+        CompletableFuture<BlockInfo> existing = fetched.putIfAbsent(key, claim);
+        if (existing != null) {
+            return join(existing);
+        }
+        try {
+            BlockInfo blockInfo = fetch.get();
+            claim.complete(blockInfo);
+            return blockInfo;
+        } catch (ProposalException | InvalidArgumentException | RuntimeException e) {
+            fetched.remove(key, claim);
+            claim.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private static BlockInfo join(CompletableFuture<BlockInfo> future) throws ProposalException,
+            InvalidArgumentException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof ProposalException) {
+                throw (ProposalException) cause;
+            } else if (cause instanceof InvalidArgumentException) {
+                throw (InvalidArgumentException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new BlkchnException("Error fetching block", cause);
+        }
+    }
+
+    BlockInfo fetchBlockByNumber(long blockNo) throws ProposalException, InvalidArgumentException {
+        BlockInfo blockInfo = fetchOnce("n" + blockNo, () -> queryBlock.queryBlockByNumber(blockNo));
+        indexTransactions(blockInfo);
+        return blockInfo;
+    }
+
+    BlockInfo fetchBlockByHash(String hash) throws ProposalException, InvalidArgumentException, DecoderException {
+        byte[] blockHash = Hex.decodeHex(hash.toCharArray());
+        BlockInfo blockInfo = fetchOnce("h" + hash, () -> queryBlock.queryBlockByHash(blockHash));
+        fetched.putIfAbsent("n" + blockInfo.getBlockNumber(), CompletableFuture.completedFuture(blockInfo));
+        indexTransactions(blockInfo);
+        return blockInfo;
+    }
+
+    BlockInfo fetchBlockByTransactionId(String transactionId) throws ProposalException, InvalidArgumentException {
+        Long blockNo = transactionBlocks.get(transactionId);
+        if (blockNo != null && fetched.containsKey("n" + blockNo)) {
+            return join(fetched.get("n" + blockNo));
+        }
+        BlockInfo blockInfo = queryBlock.queryBlockByTransactionID(transactionId);
+        fetched.putIfAbsent("n" + blockInfo.getBlockNumber(), CompletableFuture.completedFuture(blockInfo));
+        indexTransactions(blockInfo);
+        return blockInfo;
+    }
+
+    private void indexTransactions(BlockInfo blockInfo) {
+        if (indexedBlocks.add(blockInfo.getBlockNumber())) {
+            for (EnvelopeInfo envelopeInfo : blockInfo.getEnvelopeInfos()) {
+                transactionBlocks.putIfAbsent(envelopeInfo.getTransactionID(), blockInfo.getBlockNumber());
+            }
+        }
+    }
+}
@@ -0,0 +1,164 @@
+/*******************************************************************************
+ * * Copyright 2018 Impetus Infotech.
+ * *
+ * * Licensed under the Apache License, Version 2.0 (the "License");
+ * * you may not use this file except in compliance with the License.
+ * * You may obtain a copy of the License at
+ * *
+ * * http://www.apache.org/licenses/LICENSE-2.0
+ * *
+ * * Unless required by applicable law or agreed to in writing, software
+ * * distributed under the License is distributed on an "AS IS" BASIS,
+ * * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * * See the License for the specific language governing permissions and
+ * * limitations under the License.
+ ******************************************************************************/
+
+package com.impetus.fabric.parser;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+import com.google.protobuf.ByteString;
+import com.impetus.blkch.BlkchnException;
+import com.impetus.blkch.sql.DataFrame;
+import com.impetus.fabric.model.Config;
+import com.impetus.fabric.query.QueryBlock;
+
+/**
+ * Results of a chaincode function which returns them page by page. The function is
+ * called with the page size and the bookmark of the previous page appended to its
+ * arguments, in the order of config.call.pageArgs, and returns a json object with
+ * the records of the page and the bookmark of the next one. The next page is
+ * fetched in the background while the current one is read. Pages end with an empty
+ * bookmark or a page shorter than the page size.
+ */
+public class PagedCall implements Iterator<DataFrame> {
+
+    private final QueryBlock queryBlock;
+
+    private final AssetSchema assetSchema;
+
+    private final String chaincodeName;
+
+    private final String function;
+
+    private final List<String> args;
+
+    private final Config config;
+
+    private CompletableFuture<Page> nextPage;
+
+    PagedCall(QueryBlock queryBlock, AssetSchema assetSchema, String chaincodeName, String function,
+            List<String> args) {
+        this.queryBlock = queryBlock;
+        this.assetSchema = assetSchema;
+        this.chaincodeName = chaincodeName;
+        this.function = function;
+        this.args = args;
+        this.config = queryBlock.getConf();
+        this.nextPage = CompletableFuture.completedFuture(fetchPage(""));
+    }
+
+    private static class Page {
+
+        private final DataFrame dataframe;
+
+        private final String bookmark;
+
+        private final boolean last;
+
+        Page(DataFrame dataframe, String bookmark, boolean last) {
+            this.dataframe = dataframe;
+            this.bookmark = bookmark;
+            this.last = last;
+        }
+    }
+
+    @Override
+    public synchronized boolean hasNext() {
+        return nextPage != null;
+    }
+
+    /**
+     * Returns the next page, waiting for it when it is still being fetched, and
+     * starts fetching the page after it.
+     */
+    @Override
+    public synchronized DataFrame next() {
+        if (nextPage == null) {
+            throw new NoSuchElementException();
+        }
+        Page page;
+        try {
+            page = nextPage.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BlkchnException("Interrupted while fetching page of " + chaincodeName, e);
+        } catch (ExecutionException e) {
+            nextPage = null;
+            throw e.getCause() instanceof BlkchnException ? (BlkchnException) e.getCause()
+                    : new BlkchnException("Error fetching page of " + chaincodeName, e.getCause());
+        }
+        nextPage = page.last ? null
+                : CompletableFuture.supplyAsync(() -> fetchPage(page.bookmark), queryBlock.getInvokePool());
+        return page.dataframe;
+    }
+
+    /**
+     * Stops fetching pages, a page being fetched is dropped.
+     */
+    public synchronized void close() {
+        if (nextPage != null) {
+            nextPage.cancel(false);
+            nextPage = null;
+        }
+    }
+
+    private Page fetchPage(String bookmark) {
+        int pageSize = config.getPageSize();
+        List<String> pageArgs = new ArrayList<>(args);
+        for (String pageArg : config.getPageArgs()) {
+            if ("pageSize".equals(pageArg)) {
+                pageArgs.add(String.valueOf(pageSize));
+            } else if ("bookmark".equals(pageArg)) {
+                pageArgs.add(bookmark);
+            } else {
+                throw new BlkchnException("Unknown page argument " + pageArg);
+            }
+        }
+        ByteString payload = queryBlock.queryChaincodePayload(chaincodeName, function,
+                pageArgs.toArray(new String[] {}));
+        JSONObject json;
+        try {
+            json = (JSONObject) new JSONParser().parse(new InputStreamReader(payload.newInput(),
+                    StandardCharsets.UTF_8));
+        } catch (ParseException | IOException | ClassCastException e) {
+            throw new BlkchnException("Page of " + chaincodeName + " is not a json object", e);
+        }
+        Object records = json.get(config.getPageRecordsField());
+        if (!(records instanceof JSONArray)) {
+            throw new BlkchnException(String.format("Page of %s has no %s array", chaincodeName,
+                    config.getPageRecordsField()));
+        }
+        Object nextBookmark = json.get(config.getPageBookmarkField());
+        JSONArray recordArray = (JSONArray) records;
+        boolean last = nextBookmark == null || nextBookmark.toString().isEmpty() || recordArray.size() < pageSize;
+        // Pages are read one after the other, the schema keeps the columns of the first
+        synchronized (assetSchema) {
+            return new Page(assetSchema.createDataFrame(recordArray), last ? null : nextBookmark.toString(), last);
+        }
+    }
+}
@@ -21,27 +21,19 @@ import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
 import java.util.stream.Collectors;
 
-import org.apache.commons.codec.DecoderException;
 import org.apache.commons.codec.binary.Hex;
-import org.hyperledger.fabric.protos.ledger.rwset.Rwset.NsReadWriteSet;
-import org.hyperledger.fabric.protos.ledger.rwset.Rwset.TxReadWriteSet;
-import org.hyperledger.fabric.protos.ledger.rwset.kvrwset.KvRwset.KVRWSet;
-import org.hyperledger.fabric.protos.ledger.rwset.kvrwset.KvRwset.KVRead;
-import org.hyperledger.fabric.protos.ledger.rwset.kvrwset.KvRwset.KVWrite;
-import org.hyperledger.fabric.protos.ledger.rwset.kvrwset.KvRwset.RangeQueryInfo;
-import org.hyperledger.fabric.protos.peer.FabricTransaction.TransactionAction;
 import org.hyperledger.fabric.sdk.BlockInfo;
-import org.hyperledger.fabric.sdk.BlockInfo.EnvelopeInfo;
-import org.hyperledger.fabric.sdk.Channel;
-import org.hyperledger.fabric.sdk.TransactionInfo;
 import org.hyperledger.fabric.sdk.exception.InvalidArgumentException;
 import org.hyperledger.fabric.sdk.exception.ProposalException;
 
-import com.google.protobuf.InvalidProtocolBufferException;
 import com.impetus.blkch.BlkchnException;
 import com.impetus.blkch.sql.DataFrame;
 import com.impetus.blkch.sql.GroupedDataFrame;
@@ -65,8 +57,9 @@ import com.impetus.blkch.sql.query.RangeNode;
 import com.impetus.blkch.sql.query.Table;
 import com.impetus.blkch.util.Range;
 import com.impetus.blkch.util.RangeOperations;
-import com.impetus.blkch.util.Tuple2;
-import com.impetus.blkch.util.Tuple3;
+import com.impetus.fabric.objects.BlockHeaderObject;
+import com.impetus.fabric.objects.OffHeapValueStore;
+import com.impetus.fabric.objects.PrintableSanitizer;
 import com.impetus.fabric.objects.ReadWriteSetDeserializer;
 import com.impetus.fabric.objects.ReadWriteSetObject;
 import com.impetus.fabric.objects.TransactionActionDeserializer;
@@ -82,11 +75,41 @@ public class QueryExecutor extends AbstractQueryExecutor {
 
     private QueryBlock queryBlock;
 
+    private BlockDecoder blockDecoder;
+
+    // Keys of the rows of every block decoded whole, so range scans reuse them
+    private final Map<Long, List<String>> blockRows = new HashMap<>();
+
+    private final boolean retainRawData;
+
+    private final long maxEstimatedRows;
+
+    private final int offHeapValueSize;
+
+    private final PrintableSanitizer sanitizer;
+
+    // Write values of this query kept off the heap, created with the first of them
+    private OffHeapValueStore valueStore;
+
+    private long rawDataSize = 0;
+
+    private final LedgerLookups ledgerLookups;
+
     private static final org.slf4j.Logger logger = LoggerFactory.getLogger(QueryExecutor.class);
 
     public QueryExecutor(LogicalPlan logicalPlan, QueryBlock queryBlock) {
         this.logicalPlan = logicalPlan;
         this.queryBlock = queryBlock;
+        this.retainRawData = queryBlock.getConf() != null && queryBlock.getConf().isRetainRawData();
+        this.maxEstimatedRows = queryBlock.getConf() != null ? queryBlock.getConf().getMaxEstimatedRows() : 0;
+        int offHeapValueSize = queryBlock.getConf() != null ? queryBlock.getConf().getOffHeapValueSize() : 0;
+        // ORDER BY and GROUP BY compare values as Strings, so these queries keep them on the heap
+        this.offHeapValueSize = offHeapValueSize > 0 && !logicalPlan.getQuery().hasChildType(OrderByClause.class)
+                && !logicalPlan.getQuery().hasChildType(GroupByClause.class) ? offHeapValueSize : 0;
+        this.sanitizer = queryBlock.getConf() != null ? new PrintableSanitizer(queryBlock.getConf().getValueEncoding())
+                : PrintableSanitizer.PRINTABLE;
+        this.blockDecoder = new BlockDecoder(queryBlock, !retainRawData);
+        this.ledgerLookups = new LedgerLookups(queryBlock, retainRawData);
         this.originalPhysicalPlan = new FabricPhysicalPlan(logicalPlan);
         this.physicalPlan = originalPhysicalPlan;
     }
@@ -94,7 +117,11 @@ public class QueryExecutor extends AbstractQueryExecutor {
     public DataFrame executeQuery() {
         physicalPlan.getWhereClause().traverse();
         if (!physicalPlan.validateLogicalPlan()) {
-            throw new BlkchnException("This query can't be executed as it requires fetching huge amount of data");
+            throw new BlkchnException(getFullScanMessage());
+        }
+        DataFrame aggregated = new AggregatePushdown(logicalPlan, physicalPlan, queryBlock).execute();
+        if (aggregated != null) {
+            return aggregated;
         }
         DataFrame dataframe = getFromTable();
         if(dataframe.isEmpty()) {
@@ -154,8 +181,9 @@ public class QueryExecutor extends AbstractQueryExecutor {
         if (physicalPlan.getWhereClause() != null) {
             DataNode<?> finalData;
             if (physicalPlan.getWhereClause().hasChildType(LogicalOperation.class)) {
-                TreeNode directAPIOptimizedTree = executeDirectAPIs(tableName, physicalPlan.getWhereClause()
-                        .getChildType(LogicalOperation.class, 0));
+                LogicalOperation condition = physicalPlan.getWhereClause().getChildType(LogicalOperation.class, 0);
+                prefetch(condition);
+                TreeNode directAPIOptimizedTree = executeDirectAPIs(tableName, condition);
                 TreeNode optimizedTree = optimize(directAPIOptimizedTree);
                  finalData = execute(optimizedTree);
             } else if (physicalPlan.getWhereClause().hasChildType(DirectAPINode.class)) {
@@ -173,16 +201,104 @@ public class QueryExecutor extends AbstractQueryExecutor {
 
     }
 
+    /**
+     * An AND with a direct API lookup executes the cheaper lookup first: when it
+     * finds nothing the other branch is skipped, and a block_no lookup is answered
+     * by filtering its rows by block. The lookups of the other branch are fetched
+     * ahead only when it is executed.
+     */
+    @Override
+    protected TreeNode executeDirectAPIs(String table, TreeNode node) {
+        if (node instanceof LogicalOperation && ((LogicalOperation) node).isAnd()) {
+            TreeNode first = node.getChildNode(0);
+            TreeNode second = node.getChildNode(1);
+            if (first instanceof DirectAPINode || second instanceof DirectAPINode) {
+                DirectAPINode cheaper = getCheaperLookup(first, second);
+                TreeNode other = cheaper == first ? second : first;
+                DataNode<?> cheaperData = getDataNode(cheaper.getTable(), cheaper.getColumn(), cheaper.getValue());
+                if (cheaperData.getKeys().isEmpty()) {
+                    return cheaperData;
+                }
+                if (other instanceof DirectAPINode && isBlockNoLookup((DirectAPINode) other)) {
+                    long blockNo = Long.parseLong(((DirectAPINode) other).getValue().replace("'", ""));
+                    List<Object> keys = cheaperData.getKeys().stream()
+                            .filter(key -> getBlockNo(key) == blockNo)
+                            .collect(Collectors.toList());
+                    return new DataNode<>(cheaperData.getTable(), keys);
+                }
+                LogicalOperation oper = new LogicalOperation(Operator.AND);
+                oper.addChildNode(cheaperData);
+                prefetch(other);
+                oper.addChildNode(executeDirectAPIs(table, other));
+                return oper;
+            }
+        }
+        return super.executeDirectAPIs(table, node);
+    }
+
+    /*
+     * Lookups worth fetching ahead. Of an AND with a lookup only the cheaper lookup
+     * is, as the other branch may not have to be executed at all.
+     */
+    private void collectLookups(TreeNode node, List<DirectAPINode> lookups) {
+        if (node instanceof DirectAPINode) {
+            lookups.add((DirectAPINode) node);
+        } else if (node instanceof LogicalOperation) {
+            TreeNode first = node.getChildNode(0);
+            TreeNode second = node.getChildNode(1);
+            if (((LogicalOperation) node).isAnd()
+                    && (first instanceof DirectAPINode || second instanceof DirectAPINode)) {
+                lookups.add(getCheaperLookup(first, second));
+            } else {
+                collectLookups(first, lookups);
+                collectLookups(second, lookups);
+            }
+        }
+    }
+
+    /*
+     * Fetches the blocks of the direct API lookups in the tree concurrently, before
+     * they are executed.
+     */
+    private void prefetch(TreeNode node) {
+        List<DirectAPINode> nodes = new ArrayList<>();
+        collectLookups(node, nodes);
+        ledgerLookups.prefetch(nodes.stream().map(QueryExecutor::toLookup).collect(Collectors.toList()));
+    }
+
+    private static LedgerLookups.Lookup toLookup(DirectAPINode node) {
+        return new LedgerLookups.Lookup(node.getTable(), node.getColumn(), node.getValue());
+    }
+
+    /*
+     * Of two nodes at least one of which is a lookup, the lookup costing fewer
+     * requests.
+     */
+    private DirectAPINode getCheaperLookup(TreeNode first, TreeNode second) {
+        if (!(first instanceof DirectAPINode)) {
+            return (DirectAPINode) second;
+        }
+        if (!(second instanceof DirectAPINode)) {
+            return (DirectAPINode) first;
+        }
+        return ledgerLookups.getCost(toLookup((DirectAPINode) second)) < ledgerLookups
+                .getCost(toLookup((DirectAPINode) first)) ? (DirectAPINode) second : (DirectAPINode) first;
+    }
+
+    private boolean isBlockNoLookup(DirectAPINode lookup) {
+        return FabricColumns.BLOCK_NO.equals(lookup.getColumn());
+    }
+
     protected DataNode<?> getDataNode(String table, String column, String value) {
         if (dataMap.containsKey(value)) {
             return new DataNode<>(table, Arrays.asList(value));
         }
-        Channel channel = queryBlock.getChannel();
         if (table.equals(FabricTables.BLOCK) && column.equals(FabricColumns.BLOCK_NO)) {
             try {
-                BlockInfo blockInfo = channel.queryBlockByNumber(Long.parseLong(value));
-                dataMap.put(Long.toString(blockInfo.getBlockNumber()), blockInfo);
-                return new DataNode<>(table, Arrays.asList(Long.toString(blockInfo.getBlockNumber())));
+                long blockNo = Long.parseLong(value);
+                String key = RowKey.block(blockNo);
+                dataMap.putIfAbsent(key, retainRawData ? ledgerLookups.fetchBlockByNumber(blockNo) : queryBlock.getBlockHeader(blockNo));
+                return new DataNode<>(table, Arrays.asList(key));
             } catch( ProposalException e) {
                 logger.error("Error querying block by block number " + value, e);
                 return new DataNode<>(table, new ArrayList<>());
@@ -191,170 +307,47 @@ public class QueryExecutor extends AbstractQueryExecutor {
             }
         } else if (table.equals(FabricTables.BLOCK) && column.equals(FabricColumns.PREVIOUS_HASH)) {
             try {
-                BlockInfo blockInfo = channel.queryBlockByHash(Hex.decodeHex(value.replace("'", "").toCharArray()));
-                dataMap.put(Long.toString(blockInfo.getBlockNumber()), blockInfo);
-                return new DataNode<>(table, Arrays.asList(Long.toString(blockInfo.getBlockNumber())));
+                BlockInfo blockInfo = ledgerLookups.fetchBlockByHash(value.replace("'", ""));
+                String key = RowKey.block(blockInfo.getBlockNumber());
+                dataMap.putIfAbsent(key, blockDecoder.blockRow(blockInfo));
+                return new DataNode<>(table, Arrays.asList(key));
             } catch (ProposalException e) {
                 logger.error("Error querying block by hash " + value.replace("'", ""), e);
                 return new DataNode<>(table, new ArrayList<>());
             } catch(Exception e) {
                 throw new BlkchnException("Error querying block by hash " + value.replace("'", ""), e);
             }
-        } else if(FabricTables.TRANSACTION.equals(table) && FabricColumns.TRANSACTION_ID.equals(column)) {
+        } else if(isTransactionTable(table) && FabricColumns.TRANSACTION_ID.equals(column)) {
+            String transactionId = value.replace("'", "");
             try {
-                long blockNo = channel.queryBlockByTransactionID(value.replace("'", "")).getBlockNumber();
-                TransactionInfo transactionInfo = channel.queryTransactionByID(value.replace("'", ""));
-                dataMap.put(value.replace("'", ""), new TransactionObject(blockNo, transactionInfo));
-                return new DataNode<>(table, Arrays.asList(value.replace("'", "")));
-            } catch (ProposalException e){
-                logger.error("Error querying transaction by id " + value.replace("'", ""), e);
-                return new DataNode<>(table, new ArrayList<>());
-            } catch(Exception e){
-                throw new BlkchnException("Error querying transaction by id " + value.replace("'", ""), e);
-            }
-        } else if(FabricTables.TRANSACTION.equals(table) && FabricColumns.BLOCK_NO.equals(column)) {
-            try {
-                BlockInfo blockInfo = channel.queryBlockByNumber(Long.parseLong(value));
+                BlockInfo blockInfo = ledgerLookups.fetchBlockByTransactionId(transactionId);
                 long blockNo = blockInfo.getBlockNumber();
-                List<String> transactions = new ArrayList<>();
-                for(EnvelopeInfo envelopeInfo : blockInfo.getEnvelopeInfos()) {
-                    String transactionId = envelopeInfo.getTransactionID();
-                    TransactionInfo transactionInfo = channel.queryTransactionByID(transactionId);
-                    dataMap.put(transactionId, new TransactionObject(blockNo, transactionInfo));
-                    transactions.add(transactionId);
-                }
-                return new DataNode<>(table, transactions);
-            } catch(ProposalException e){
-                logger.error("Error querying transactions for block number " + value, e);
-                return new DataNode<>(table, new ArrayList<>());
-            } catch(Exception e){
-                throw new BlkchnException("Error querying transactions for block number " + value, e);
-            }
-        } else if(FabricTables.TRANSACTION_ACTION.equals(table) && FabricColumns.TRANSACTION_ID.equals(column)) {
-            try {
-                long blockNo = channel.queryBlockByTransactionID(value.replace("'", "")).getBlockNumber();
-                TransactionInfo transactionInfo = channel.queryTransactionByID(value.replace("'", ""));
-                TransactionObject transactionObject = new TransactionObject(blockNo, transactionInfo);
-                List<TransactionAction> transactionActions = transactionObject.getDeserializer().getTransactionActions();
-                List<String> actions = new ArrayList<>();
-                for(int i = 0 ; i < transactionActions.size() ; i++) {
-                    dataMap.put(Integer.toString(new Tuple2<>(transactionInfo.getTransactionID(), i).hashCode()), new TransactionActionObject(blockNo, transactionInfo.getTransactionID(),
-                            transactionActions.get(i)));
-                    actions.add(Integer.toString(new Tuple2<>(transactionInfo.getTransactionID(), i).hashCode()));
-                }
-                return new DataNode<>(table, actions);
-            } catch(ProposalException e){
-                logger.error("Error querying transaction actions by id " + value.replace("'", ""), e);
-                return new DataNode<>(table, new ArrayList<>());
-            } catch(Exception e) {
-                throw new BlkchnException("Error querying transaction actions by id " + value.replace("'", ""), e);
-            }
-        } else if(FabricTables.TRANSACTION_ACTION.equals(table) && FabricColumns.BLOCK_NO.equals(column)) {
-            try {
-                BlockInfo blockInfo = channel.queryBlockByNumber(Long.parseLong(value));
-                List<String> actions = new ArrayList<>();
-                for(EnvelopeInfo envelopeInfo : blockInfo.getEnvelopeInfos()) {
-                    String transactionId = envelopeInfo.getTransactionID();
-                    TransactionInfo transactionInfo = channel.queryTransactionByID(transactionId);
-                    TransactionObject transactionObject = new TransactionObject(blockInfo.getBlockNumber(), transactionInfo);
-                    List<TransactionAction> transactionActions = transactionObject.getDeserializer().getTransactionActions();
-                    for(int i = 0 ; i < transactionActions.size() ; i++) {
-                        dataMap.put(Integer.toString(new Tuple2<>(transactionInfo.getTransactionID(), i).hashCode()), new TransactionActionObject(blockInfo.getBlockNumber(), 
-                                transactionInfo.getTransactionID(), transactionActions.get(i)));
-                        actions.add(Integer.toString(new Tuple2<>(transactionInfo.getTransactionID(), i).hashCode()));
-                    }
-                }
-                return new DataNode<>(table, actions);
-            } catch(ProposalException e){
-                logger.error("Error querying transaction actions for block number " + value, e);
-                return new DataNode<>(table, new ArrayList<>());
-            } catch(Exception e){
-                throw new BlkchnException("Error querying transaction actions for block number " + value, e);
-            }
-        } else if(FabricTables.READ_WRITE_SET.equals(table) && FabricColumns.TRANSACTION_ID.equals(column)) {
-            try {
-                long blockNo = channel.queryBlockByTransactionID(value.replace("'", "")).getBlockNumber();
-                TransactionInfo transactionInfo = channel.queryTransactionByID(value.replace("'", ""));
-                String transactionId = transactionInfo.getTransactionID();
-                TransactionObject transactionObject = new TransactionObject(blockNo, transactionInfo);
-                List<TransactionAction> transactionActions = transactionObject.getDeserializer().getTransactionActions();
+                int txIndex = BlockDecoder.transactionIndex(blockInfo, transactionId);
+                TransactionObject transactionObject = BlockDecoder.transactionObject(blockInfo, txIndex, transactionId);
                 List<String> keys = new ArrayList<>();
-                for(int i = 0 ; i < transactionActions.size() ; i++) {
-                    TxReadWriteSet readWriteSet = new TransactionActionDeserializer(transactionActions.get(i)).getTxReadWriteSet();
-                    for(int j = 0 ; j < readWriteSet.getNsRwsetCount() ; j++) {
-                        NsReadWriteSet ns = readWriteSet.getNsRwset(j);
-                        String namespace = ns.getNamespace();
-                        KVRWSet set = KVRWSet.parseFrom(ns.getRwset());
-                        for(int k = 0 ; k < set.getReadsCount() ; k++) {
-                            KVRead read = set.getReads(k);
-                            String key = Integer.toString(new Tuple2<>(new Tuple2<>(transactionId, i), new Tuple3<>(j, "read", k)).hashCode());
-                            dataMap.put(key, new ReadWriteSetObject(blockNo, transactionId, namespace, read));
-                            keys.add(key);
-                        }
-                        for(int k = 0 ; k < set.getRangeQueriesInfoCount() ; k++) {
-                            RangeQueryInfo rangeQueryInfo = set.getRangeQueriesInfo(k);
-                            String key = Integer.toString(new Tuple2<>(new Tuple2<>(transactionId, i), new Tuple3<>(j, "rangeQueryInfo", k)).hashCode());
-                            dataMap.put(key, new ReadWriteSetObject(blockNo, transactionId, namespace, rangeQueryInfo));
-                            keys.add(key);
-                        }
-                        for(int k = 0 ; k < set.getWritesCount() ; k++) {
-                            KVWrite write = set.getWrites(k);
-                            String key = Integer.toString(new Tuple2<>(new Tuple2<>(transactionId, i), new Tuple3<>(j, "write", k)).hashCode());
-                            dataMap.put(key, new ReadWriteSetObject(blockNo, transactionId, namespace, write));
-                            keys.add(key);
-                        }
-                    }
-                }
+                mergeRows(blockDecoder.decodeTransaction(table, blockNo, txIndex, transactionObject), keys);
                 return new DataNode<>(table, keys);
-            } catch(ProposalException e){
-                logger.error("Error querying read write sets by id " + value.replace("'", ""), e);
+            } catch (ProposalException e){
+                logger.error(String.format("Error querying %s by transaction id %s", table, transactionId), e);
                 return new DataNode<>(table, new ArrayList<>());
             } catch(Exception e){
-                throw new BlkchnException("Error querying read write sets by id " + value.replace("'", ""), e);
+                throw new BlkchnException(String.format("Error querying %s by transaction id %s", table, transactionId), e);
             }
-        } else if(FabricTables.READ_WRITE_SET.equals(table) && FabricColumns.BLOCK_NO.equals(column)) {
+        } else if(isTransactionTable(table) && FabricColumns.BLOCK_NO.equals(column)) {
             try {
-                BlockInfo blockInfo = channel.queryBlockByNumber(Long.parseLong(value));
-                long blockNo = blockInfo.getBlockNumber();
-                List<String> keys = new ArrayList<>();
-                for(EnvelopeInfo envelopeInfo : blockInfo.getEnvelopeInfos()) {
-                    String transactionId = envelopeInfo.getTransactionID();
-                    TransactionInfo transactionInfo = channel.queryTransactionByID(transactionId);
-                    TransactionObject transactionObject = new TransactionObject(blockInfo.getBlockNumber(), transactionInfo);
-                    List<TransactionAction> transactionActions = transactionObject.getDeserializer().getTransactionActions();
-                    for(int i = 0 ; i < transactionActions.size() ; i++) {
-                        TxReadWriteSet readWriteSet = new TransactionActionDeserializer(transactionActions.get(i)).getTxReadWriteSet();
-                        for(int j = 0 ; j < readWriteSet.getNsRwsetCount() ; j++) {
-                            NsReadWriteSet ns = readWriteSet.getNsRwset(j);
-                            String namespace = ns.getNamespace();
-                            KVRWSet set = KVRWSet.parseFrom(ns.getRwset());
-                            for(int k = 0 ; k < set.getReadsCount() ; k++) {
-                                KVRead read = set.getReads(k);
-                                String key = Integer.toString(new Tuple2<>(new Tuple2<>(transactionId, i), new Tuple3<>(j, "read", k)).hashCode());
-                                dataMap.put(key, new ReadWriteSetObject(blockNo, transactionId, namespace, read));
-                                keys.add(key);
-                            }
-                            for(int k = 0 ; k < set.getRangeQueriesInfoCount() ; k++) {
-                                RangeQueryInfo rangeQueryInfo = set.getRangeQueriesInfo(k);
-                                String key = Integer.toString(new Tuple2<>(new Tuple2<>(transactionId, i), new Tuple3<>(j, "rangeQueryInfo", k)).hashCode());
-                                dataMap.put(key, new ReadWriteSetObject(blockNo, transactionId, namespace, rangeQueryInfo));
-                                keys.add(key);
-                            }
-                            for(int k = 0 ; k < set.getWritesCount() ; k++) {
-                                KVWrite write = set.getWrites(k);
-                                String key = Integer.toString(new Tuple2<>(new Tuple2<>(transactionId, i), new Tuple3<>(j, "write", k)).hashCode());
-                                dataMap.put(key, new ReadWriteSetObject(blockNo, transactionId, namespace, write));
-                                keys.add(key);
-                            }
-                        }
-                    }
+                long blockNo = Long.parseLong(value);
+                List<String> keys = getBlockRows(table, blockNo);
+                if (keys != null) {
+                    return new DataNode<>(table, new ArrayList<>(keys));
                 }
+                keys = new ArrayList<>();
+                mergeBlockRows(blockNo, blockDecoder.decodeBlock(table, ledgerLookups.fetchBlockByNumber(blockNo)), keys);
                 return new DataNode<>(table, keys);
-            } catch (ProposalException e){
-                logger.error("Error querying read write sets for block number " + value, e);
+            } catch(ProposalException e){
+                logger.error(String.format("Error querying %s for block number %s", table, value), e);
                 return new DataNode<>(table, new ArrayList<>());
-            } catch (Exception e){
-                throw new BlkchnException("Error querying read write sets for block number " + value, e);
+            } catch(Exception e){
+                throw new BlkchnException(String.format("Error querying %s for block number %s", table, value), e);
             }
         } else {
             throw new BlkchnException(String.format("There is no direct API for table %s and column %s combination",
@@ -371,138 +364,45 @@ public class QueryExecutor extends AbstractQueryExecutor {
                 rangeNode.getColumn());
         String rangeCol = rangeNode.getColumn();
         String rangeTable = rangeNode.getTable();
-        Channel channel = queryBlock.getChannel();
         Long height;
         try {
-            height = channel.queryBlockchainInfo().getHeight();
+            height = queryBlock.queryBlockchainInfo().getHeight();
         } catch (ProposalException | InvalidArgumentException e) {
             throw new BlkchnException("Error getting height of ledger", e);
         }
+        if (FabricColumns.BLOCK_NO.equals(rangeCol)) {
+            checkEstimatedRows(rangeNode, rangeOps, height);
+        }
         List<DataNode<String>> dataNodes = rangeNode.getRangeList().getRanges().stream().map(range -> {
             List<String> keys = new ArrayList<>();
+            if (!FabricColumns.BLOCK_NO.equals(rangeCol)) {
+                return new DataNode<>(rangeTable, keys);
+            }
             T current = range.getMin().equals(rangeOps.getMinValue()) ? (T) new Long(0l) : range.getMin();
             T max = range.getMax().equals(rangeOps.getMaxValue()) ? (T) (new Long(height -1)) : range.getMax();
+            List<Long> blockNumbers = new ArrayList<>();
             do {
-                if (FabricTables.BLOCK.equals(rangeTable) && FabricColumns.BLOCK_NO.equals(rangeCol)) {
-                    if(Long.parseLong(current.toString()) >= height || Long.parseLong(current.toString()) <= 0l) {
-                        current = rangeOps.add(current, 1);
-                        continue;
-                    }
-                    try {
-                        if (dataMap.get(current.toString()) != null) {
-                            keys.add(current.toString());
-                        } else {
-                            BlockInfo blockInfo = channel.queryBlockByNumber(Long.parseLong(current.toString()));
-                            dataMap.put(Long.toString(blockInfo.getBlockNumber()), blockInfo);
-                            keys.add(current.toString());
-                        }
-                    } catch (Exception e) {
-                        throw new BlkchnException("Error query block by number " + current, e);
-                    }
-                } else if(FabricTables.TRANSACTION.equals(rangeTable) && FabricColumns.BLOCK_NO.equals(rangeCol)) {
-                    if(Long.parseLong(current.toString()) >= height || Long.parseLong(current.toString()) <= 0l) {
-                        current = rangeOps.add(current, 1);
-                        continue;
-                    }
-                    try {
-                        BlockInfo blockInfo = channel.queryBlockByNumber(Long.parseLong(current.toString()));
-                        long blockNum = blockInfo.getBlockNumber();
-                        for(EnvelopeInfo envelopeInfo : blockInfo.getEnvelopeInfos()) {
-                            if(dataMap.get(envelopeInfo.getTransactionID()) != null) {
-                                keys.add(envelopeInfo.getTransactionID());
-                            } else {
-                                TransactionInfo transactionInfo = channel.queryTransactionByID(envelopeInfo.getTransactionID());
-                                dataMap.put(envelopeInfo.getTransactionID(), new TransactionObject(blockNum, transactionInfo));
-                                keys.add(envelopeInfo.getTransactionID());
-                            }
-                        }
-                    } catch (Exception e) {
-                        throw new BlkchnException("Error query block by number " + current, e);
-                    }
-                } else if(FabricTables.TRANSACTION_ACTION.equals(rangeTable) && FabricColumns.BLOCK_NO.equals(rangeCol)) {
-                    if(Long.parseLong(current.toString()) >= height || Long.parseLong(current.toString()) <= 0l) {
-                        current = rangeOps.add(current, 1);
-                        continue;
-                    }
-                    try {
-                        BlockInfo blockInfo = channel.queryBlockByNumber(Long.parseLong(current.toString()));
-                        long blockNum = blockInfo.getBlockNumber();
-                        for(EnvelopeInfo envelopeInfo : blockInfo.getEnvelopeInfos()) {
-                            String transactionId = envelopeInfo.getTransactionID();
-                            TransactionInfo transactionInfo = channel.queryTransactionByID(transactionId);
-                            TransactionObject transactionObject = new TransactionObject(blockNum, transactionInfo);
-                            List<TransactionAction> transactionActions = transactionObject.getDeserializer().getTransactionActions();
-                            for(int i = 0 ; i < transactionActions.size() ; i++) {
-                                if(dataMap.get(Integer.toString(new Tuple2<>(transactionId, i).hashCode())) != null) {
-                                    keys.add(Integer.toString(new Tuple2<>(transactionId, i).hashCode()));
-                                } else {
-                                    TransactionActionObject transactionActionObject = new TransactionActionObject(blockNum, transactionId, transactionActions.get(i));
-                                    dataMap.put(Integer.toString(new Tuple2<>(transactionId, i).hashCode()), transactionActionObject);
-                                    keys.add(Integer.toString(new Tuple2<>(transactionId, i).hashCode()));
-                                }
-                            }
-                        }
-                    } catch (Exception e) {
-                        throw new BlkchnException("Error query block by number " + current, e);
-                    }
-                } else if(FabricTables.READ_WRITE_SET.equals(rangeTable) && FabricColumns.BLOCK_NO.equals(rangeCol)) {
-                    if(Long.parseLong(current.toString()) >= height || Long.parseLong(current.toString()) <= 0l) {
-                        current = rangeOps.add(current, 1);
-                        continue;
-                    }
-                    try {
-                        BlockInfo blockInfo = channel.queryBlockByNumber(Long.parseLong(current.toString()));
-                        long blockNum = blockInfo.getBlockNumber();
-                        for(EnvelopeInfo envelopeInfo : blockInfo.getEnvelopeInfos()) {
-                            String transactionId = envelopeInfo.getTransactionID();
-                            TransactionInfo transactionInfo = channel.queryTransactionByID(transactionId);
-                            TransactionObject transactionObject = new TransactionObject(blockNum, transactionInfo);
-                            List<TransactionAction> transactionActions = transactionObject.getDeserializer().getTransactionActions();
-                            for(int i = 0 ; i < transactionActions.size() ; i++) {
-                                TxReadWriteSet readWriteSet = new TransactionActionDeserializer(transactionActions.get(i)).getTxReadWriteSet();
-                                for(int j = 0 ; j < readWriteSet.getNsRwsetCount() ; j++) {
-                                    NsReadWriteSet ns = readWriteSet.getNsRwset(j);
-                                    String namespace = ns.getNamespace();
-                                    KVRWSet set = KVRWSet.parseFrom(ns.getRwset());
-                                    for(int k = 0 ; k < set.getReadsCount() ; k++) {
-                                        KVRead read = set.getReads(k);
-                                        String key = Integer.toString(new Tuple2<>(new Tuple2<>(transactionId, i), new Tuple3<>(j, "read", k)).hashCode());
-                                        if(dataMap.get(key) != null) {
-                                            keys.add(key);
-                                        } else {
-                                            dataMap.put(key, new ReadWriteSetObject(blockNum, transactionId, namespace, read));
-                                            keys.add(key);
-                                        }
-                                    }
-                                    for(int k = 0 ; k < set.getRangeQueriesInfoCount() ; k++) {
-                                        RangeQueryInfo rangeQueryInfo = set.getRangeQueriesInfo(k);
-                                        String key = Integer.toString(new Tuple2<>(new Tuple2<>(transactionId, i), new Tuple3<>(j, "rangeQueryInfo", k)).hashCode());
-                                        if(dataMap.get(key) != null) {
-                                            keys.add(key);
-                                        } else {
-                                            dataMap.put(key, new ReadWriteSetObject(blockNum, transactionId, namespace, rangeQueryInfo));
-                                            keys.add(key);
-                                        }
-                                    }
-                                    for(int k = 0 ; k < set.getWritesCount() ; k++) {
-                                        KVWrite write = set.getWrites(k);
-                                        String key = Integer.toString(new Tuple2<>(new Tuple2<>(transactionId, i), new Tuple3<>(j, "write", k)).hashCode());
-                                        if(dataMap.get(key) != null) {
-                                            keys.add(key);
-                                        } else {
-                                            dataMap.put(key, new ReadWriteSetObject(blockNum, transactionId, namespace, write));
-                                            keys.add(key);
-                                        }
-                                    }
-                                }
-                            }
-                        }
-                    } catch (Exception e) {
-                        throw new BlkchnException("Error query block by number " + current, e);
-                    }
+                long blockNo = Long.parseLong(current.toString());
+                if (blockNo > 0l && blockNo < height) {
+                    blockNumbers.add(blockNo);
                 }
                 current = rangeOps.add(current, 1);
             } while (max.compareTo(current) >= 0);
+            // Blocks whose rows are already in the data map need not be fetched again
+            List<Long> toFetch = blockNumbers.stream().filter(blockNo -> getBlockRows(rangeTable, blockNo) == null)
+                    .collect(Collectors.toList());
+            List<LinkedHashMap<String, Object>> decoded = blockDecoder.decodeBlocks(rangeTable, toFetch);
+            Map<Long, LinkedHashMap<String, Object>> decodedByBlock = new HashMap<>();
+            for (int i = 0; i < toFetch.size(); i++) {
+                decodedByBlock.put(toFetch.get(i), decoded.get(i));
+            }
+            for (Long blockNo : blockNumbers) {
+                if (decodedByBlock.containsKey(blockNo)) {
+                    mergeBlockRows(blockNo, decodedByBlock.get(blockNo), keys);
+                } else {
+                    keys.addAll(getBlockRows(rangeTable, blockNo));
+                }
+            }
             return new DataNode<>(rangeTable, keys);
         }).collect(Collectors.toList());
         DataNode<String> finalDataNode = dataNodes.get(0);
@@ -514,6 +414,110 @@ public class QueryExecutor extends AbstractQueryExecutor {
         return finalDataNode;
     }
 
+    /*
+     * Refuses range scans estimated to read more rows than configured, with the
+     * estimate from the ledger statistics.
+     */
+    private <T extends Number & Comparable<T>> void checkEstimatedRows(RangeNode<T> rangeNode,
+            RangeOperations<T> rangeOps, long height) {
+        if (maxEstimatedRows <= 0) {
+            return;
+        }
+        long blocks = 0;
+        for (Range<T> range : rangeNode.getRangeList().getRanges()) {
+            long min = range.getMin().equals(rangeOps.getMinValue()) ? 1l
+                    : Math.max(1l, range.getMin().longValue());
+            long max = range.getMax().equals(rangeOps.getMaxValue()) ? height - 1
+                    : Math.min(height - 1, range.getMax().longValue());
+            blocks += Math.max(0l, max - min + 1);
+        }
+        String table = rangeNode.getTable();
+        long estimate = queryBlock.getStatistics().estimateRows(table, blocks);
+        if (estimate > maxEstimatedRows) {
+            throw new BlkchnException(String.format("This query would read about %d rows of table %s from %d blocks, "
+                    + "more than the limit of %d. Narrow the block_no range or query by transaction_id", estimate,
+                    table, blocks, maxEstimatedRows));
+        }
+    }
+
+    /*
+     * Message for queries with no condition usable to locate blocks, telling how
+     * much they would read and which columns narrow them down.
+     */
+    private String getFullScanMessage() {
+        Table table = logicalPlan.getQuery().getChildType(FromItem.class, 0).getChildType(Table.class, 0);
+        String tableName = table.getChildType(IdentifierNode.class, 0).getValue();
+        String message = "This query can't be executed as it requires fetching huge amount of data";
+        if (!physicalPlan.tableExists(tableName)) {
+            return message;
+        }
+        long blocks;
+        try {
+            blocks = queryBlock.getChannelHeight() - 1;
+        } catch (BlkchnException e) {
+            // The refusal shouldn't turn into a network error, the estimate is only a hint
+            logger.warn("QueryExecutor | getFullScanMessage | " + e.getMessage());
+            return message;
+        }
+        List<String> columns = new ArrayList<>(physicalPlan.getRangeCols(tableName));
+        columns.addAll(physicalPlan.getQueryCols(tableName));
+        return String.format("%s: about %d rows of table %s from all %d blocks. Add a condition on %s to narrow it "
+                + "down", message, queryBlock.getStatistics().estimateRows(tableName, blocks), tableName, blocks,
+                String.join(" or ", columns));
+    }
+
+    /*
+     * Keys of the rows of the block already in the data map, null if the block has
+     * not been decoded whole
+     */
+    private List<String> getBlockRows(String table, long blockNo) {
+        if (FabricTables.BLOCK.equals(table)) {
+            String key = RowKey.block(blockNo);
+            return dataMap.containsKey(key) ? Collections.singletonList(key) : null;
+        }
+        return blockRows.get(blockNo);
+    }
+
+    private void mergeBlockRows(long blockNo, LinkedHashMap<String, Object> rows, List<String> keys) {
+        List<String> blockKeys = new ArrayList<>(rows.size());
+        mergeRows(rows, blockKeys);
+        blockRows.put(blockNo, blockKeys);
+        keys.addAll(blockKeys);
+    }
+
+    private void mergeRows(LinkedHashMap<String, Object> rows, List<String> keys) {
+        for (Map.Entry<String, Object> row : rows.entrySet()) {
+            dataMap.putIfAbsent(row.getKey(), row.getValue());
+            keys.add(row.getKey());
+        }
+    }
+
+    /*
+     * Block number of the row under the key, -1 if there is none. Every row object
+     * carries its block number, so range filters need no index of their own.
+     */
+    private long getBlockNo(Object key) {
+        Object row = dataMap.get(key.toString());
+        if (row instanceof BlockInfo) {
+            return ((BlockInfo) row).getBlockNumber();
+        } else if (row instanceof BlockHeaderObject) {
+            return ((BlockHeaderObject) row).getBlockNo();
+        } else if (row instanceof TransactionObject) {
+            Long blockNo = ((TransactionObject) row).getBlockNo();
+            return blockNo == null ? -1l : blockNo;
+        } else if (row instanceof TransactionActionObject) {
+            return ((TransactionActionObject) row).getBlockNo();
+        } else if (row instanceof ReadWriteSetObject) {
+            return ((ReadWriteSetObject) row).getBlockNo();
+        }
+        return -1l;
+    }
+
+    private static boolean isTransactionTable(String table) {
+        return FabricTables.TRANSACTION.equals(table) || FabricTables.TRANSACTION_ACTION.equals(table)
+                || FabricTables.READ_WRITE_SET.equals(table);
+    }
+
     @SuppressWarnings("unchecked")
     protected <T extends Number & Comparable<T>> TreeNode combineRangeAndDataNodes(RangeNode<T> rangeNode,
             DataNode<?> dataNode, LogicalOperation oper) {
@@ -524,14 +528,14 @@ public class QueryExecutor extends AbstractQueryExecutor {
         if (FabricTables.BLOCK.equals(tableName)) {
             if (FabricColumns.BLOCK_NO.equals(rangeCol)) {
                 List<RangeNode<T>> dataRanges = keys.stream().map(key -> {
-                    BlockInfo blockInfo = (BlockInfo) dataMap.get(key);
+                    Object block = dataMap.get(key);
                     if (auxillaryDataMap.containsKey(FabricColumns.BLOCK_NO)) {
-                        auxillaryDataMap.get(FabricColumns.BLOCK_NO).put(key, blockInfo);
+                        auxillaryDataMap.get(FabricColumns.BLOCK_NO).put(key, block);
                     } else {
                         auxillaryDataMap.put(FabricColumns.BLOCK_NO, new HashMap<>());
-                        auxillaryDataMap.get(FabricColumns.BLOCK_NO).put(key, blockInfo);
+                        auxillaryDataMap.get(FabricColumns.BLOCK_NO).put(key, block);
                     }
-                    T blockNo = (T) new Long(blockInfo.getBlockNumber());
+                    T blockNo = (T) new Long(toBlockHeader(block).getBlockNo());
                     RangeNode<T> node = new RangeNode<>(rangeNode.getTable(), rangeCol);
                     node.getRangeList().addRange(new Range<T>(blockNo, blockNo));
                     return node;
@@ -574,7 +578,7 @@ public class QueryExecutor extends AbstractQueryExecutor {
 
     protected boolean filterField(String fieldName, Object obj, String value, Comparator comparator) {
         boolean retValue = false;
-        if (obj instanceof BlockInfo) {
+        if (obj instanceof BlockInfo || obj instanceof BlockHeaderObject) {
             retValue = filterFieldBlock(fieldName, obj, value, comparator);
         } else if(obj instanceof TransactionObject) {
             retValue = filterFieldTransaction(fieldName, obj, value, comparator);
@@ -587,50 +591,18 @@ public class QueryExecutor extends AbstractQueryExecutor {
     }
 
     protected <T> DataNode<T> filterRangeNodeWithValue(RangeNode<?> rangeNode, DataNode<T> dataNode) {
+        if (!FabricColumns.BLOCK_NO.equals(rangeNode.getColumn())) {
+            return new DataNode<>(dataNode.getTable(), new ArrayList<>());
+        }
         List<T> filteredKeys = dataNode.getKeys().stream().filter(key -> {
-            if (FabricTables.BLOCK.equals(dataNode.getTable()) && FabricColumns.BLOCK_NO.equals(rangeNode.getColumn())) {
-                boolean include = false;
-                Long longKey = Long.parseLong(key.toString());
-                for (Range<?> range : rangeNode.getRangeList().getRanges()) {
-                    if (((Long) range.getMin()) <= longKey && ((Long) range.getMax()) >= longKey) {
-                        include = true;
-                        break;
-                    }
-                }
-                return include;
-            } else if(FabricTables.TRANSACTION.equals(dataNode.getTable()) && FabricColumns.BLOCK_NO.equals(rangeNode.getColumn())) {
-                boolean include = false;
-                TransactionObject transaction = (TransactionObject) dataMap.get(key);
-                Long blockNo = transaction.getBlockNo();
-                for (Range<?> range : rangeNode.getRangeList().getRanges()) {
-                    if (((Long) range.getMin()) <= blockNo && ((Long) range.getMax()) >= blockNo) {
-                        include = true;
-                        break;
-                    }
-                }
-                return include;
-            } else if(FabricTables.TRANSACTION_ACTION.equals(dataNode.getTable()) && FabricColumns.BLOCK_NO.equals(rangeNode.getColumn())) {
-                boolean include = false;
-                TransactionActionObject transactionAction = (TransactionActionObject) dataMap.get(key);
-                Long blockNo = transactionAction.getBlockNo();
-                for (Range<?> range : rangeNode.getRangeList().getRanges()) {
-                    if (((Long) range.getMin()) <= blockNo && ((Long) range.getMax()) >= blockNo) {
-                        include = true;
-                        break;
-                    }
-                }
-                return include;
-            } else if(FabricTables.READ_WRITE_SET.equals(dataNode.getTable()) && FabricColumns.BLOCK_NO.equals(rangeNode.getColumn())) {
-                boolean include = false;
-                ReadWriteSetObject readWriteSet = (ReadWriteSetObject) dataMap.get(key);
-                Long blockNo = readWriteSet.getBlockNo();
-                for (Range<?> range : rangeNode.getRangeList().getRanges()) {
-                    if (((Long) range.getMin()) <= blockNo && ((Long) range.getMax()) >= blockNo) {
-                        include = true;
-                        break;
-                    }
+            long blockNo = getBlockNo(key);
+            if (blockNo < 0) {
+                return false;
+            }
+            for (Range<?> range : rangeNode.getRangeList().getRanges()) {
+                if (((Long) range.getMin()) <= blockNo && ((Long) range.getMax()) >= blockNo) {
+                    return true;
                 }
-                return include;
             }
             return false;
         }).collect(Collectors.toList());
@@ -641,75 +613,139 @@ public class QueryExecutor extends AbstractQueryExecutor {
         if(dataNode.getKeys().isEmpty()) {
             return new DataFrame(new ArrayList<>(), new ArrayList<>(), physicalPlan.getColumnAliasMapping());
         }
-        if (dataMap.get(dataNode.getKeys().get(0).toString()) instanceof BlockInfo) {
+        Object firstRow = dataMap.get(dataNode.getKeys().get(0).toString());
+        if (firstRow instanceof BlockInfo || firstRow instanceof BlockHeaderObject) {
             String[] columns = FabricPhysicalPlan.getFabricTableColumnMap().get(FabricTables.BLOCK).toArray(new String[]{});
-            List<List<Object>> data = new ArrayList<>();
-            for (Object key : dataNode.getKeys()) {
-                BlockInfo blockInfo = (BlockInfo) dataMap.get(key.toString());
-                String previousHash = Hex.encodeHexString(blockInfo.getPreviousHash());
-                String dataHash = Hex.encodeHexString(blockInfo.getDataHash());
-                String transActionsMetaData = Hex.encodeHexString(blockInfo.getTransActionsMetaData());
-                int transactionCount = blockInfo.getEnvelopeCount();
-                long blockNum = blockInfo.getBlockNumber();
-                String channelId;
-                try {
-                    channelId = blockInfo.getChannelId();
-                } catch (InvalidProtocolBufferException e) {
-                    throw new BlkchnException("Unable to get channel id from block info", e);
-                }
-                data.add(Arrays.asList(previousHash, dataHash, transActionsMetaData, transactionCount, blockNum, channelId));
-            }
+            List<List<Object>> data = blockDecoder.decodeRows(dataNode.getKeys(), key -> {
+                BlockHeaderObject header = toBlockHeader(dataMap.get(key.toString()));
+                String previousHash = Hex.encodeHexString(header.getPreviousHash());
+                String dataHash = Hex.encodeHexString(header.getDataHash());
+                String transActionsMetaData = Hex.encodeHexString(header.getTransActionsMetaData());
+                int transactionCount = header.getEnvelopeCount();
+                long blockNum = header.getBlockNo();
+                return Arrays.asList(previousHash, dataHash, transActionsMetaData, transactionCount, blockNum,
+                        header.getChannelId());
+            });
             DataFrame df = new DataFrame(data, columns, physicalPlan.getColumnAliasMapping());
-            df.setRawData(dataMap.values());
+            setRawData(df, dataNode);
             return df;
-        } else if(dataMap.get(dataNode.getKeys().get(0).toString()) instanceof TransactionObject) {
+        } else if(firstRow instanceof TransactionObject) {
             String[] columns = FabricPhysicalPlan.getFabricTableColumnMap().get(FabricTables.TRANSACTION).toArray(new String[]{});
-            List<List<Object>> data = new ArrayList<>();
-            for(Object key : dataNode.getKeys()) {
+            List<List<Object>> data = blockDecoder.decodeRows(dataNode.getKeys(), key -> {
                 TransactionObject transactionObject = (TransactionObject) dataMap.get(key.toString());
                 TransactionDeserializer transactionDeserializer = transactionObject.getDeserializer();
-                data.add(Arrays.asList(transactionObject.getBlockNo(), transactionDeserializer.getTransactionId(), transactionDeserializer.getHeaderType(), 
+                return Arrays.asList(transactionObject.getBlockNo(), transactionDeserializer.getTransactionId(), transactionDeserializer.getHeaderType(), 
                         transactionDeserializer.getMessageProtocolVersion(), transactionDeserializer.getTimestamp(), transactionDeserializer.getEpoch(), 
                         transactionDeserializer.getChannelId(), transactionDeserializer.getCreatorMSP(), transactionDeserializer.getCreatorSignature(), 
-                        transactionDeserializer.getNonce()));
-            }
+                        transactionDeserializer.getNonce());
+            });
             DataFrame df = new DataFrame(data, columns, physicalPlan.getColumnAliasMapping());
-            df.setRawData(dataMap.values());
+            setRawData(df, dataNode);
             return df;
-        } else if(dataMap.get(dataNode.getKeys().get(0).toString()) instanceof TransactionActionObject) {
+        } else if(firstRow instanceof TransactionActionObject) {
             String[] columns = FabricPhysicalPlan.getFabricTableColumnMap().get(FabricTables.TRANSACTION_ACTION).toArray(new String[]{});
-            List<List<Object>> data = new ArrayList<>();
-            for(Object key : dataNode.getKeys()) {
+            List<List<Object>> data = blockDecoder.decodeRows(dataNode.getKeys(), key -> {
                 TransactionActionObject transactionActionObject = (TransactionActionObject) dataMap.get(key.toString());
                 TransactionActionDeserializer actionDeserializer = transactionActionObject.getDeserializer();
-                data.add(Arrays.asList(transactionActionObject.getBlockNo(), transactionActionObject.getTransactionId(), actionDeserializer.getIdGenerationAlg(),
+                return Arrays.asList(transactionActionObject.getBlockNo(), transactionActionObject.getTransactionId(), actionDeserializer.getIdGenerationAlg(),
                     actionDeserializer.getChaincodeType(), actionDeserializer.getChaincodeName(), actionDeserializer.getChaincodeVersion(),
-                    actionDeserializer.getChaincodePath(), actionDeserializer.getChaincodeArgs(), actionDeserializer.getTimeOut(),
+                    actionDeserializer.getChaincodePath(), actionDeserializer.getChaincodeArgs(sanitizer), actionDeserializer.getTimeOut(),
                     actionDeserializer.getRWDataModel(), actionDeserializer.getResponseMessage(), actionDeserializer.getResponseStatus(),
-                    actionDeserializer.getResponsePayload(), actionDeserializer.getEndorsements()));
-            }
+                    actionDeserializer.getResponsePayload(), actionDeserializer.getEndorsements());
+            });
             DataFrame df = new DataFrame(data, columns, physicalPlan.getColumnAliasMapping());
-            df.setRawData(dataMap.values());
+            setRawData(df, dataNode);
             return df;
-        } else if(dataMap.get(dataNode.getKeys().get(0).toString()) instanceof ReadWriteSetObject) {
+        } else if(firstRow instanceof ReadWriteSetObject) {
             String[] columns = FabricPhysicalPlan.getFabricTableColumnMap().get(FabricTables.READ_WRITE_SET).toArray(new String[]{});
-            List<List<Object>> data = new ArrayList<>();
-            for(Object key : dataNode.getKeys()) {
+            List<List<Object>> data = blockDecoder.decodeRows(dataNode.getKeys(), key -> {
                 ReadWriteSetObject readWriteSetObject = (ReadWriteSetObject) dataMap.get(key.toString());
                 ReadWriteSetDeserializer deserializer = readWriteSetObject.getDeserializer();
-                data.add(Arrays.asList(readWriteSetObject.getBlockNo(), readWriteSetObject.getTransactionId(), readWriteSetObject.getNamespace(), deserializer.getReadKey(),
+                return Arrays.asList(readWriteSetObject.getBlockNo(), readWriteSetObject.getTransactionId(), readWriteSetObject.getNamespace(), deserializer.getReadKey(),
                         deserializer.getReadBlockNo(), deserializer.getReadTxNum(), deserializer.getRangeQueryStartKey(), deserializer.getRangeQueryEndKey(),
-                        deserializer.getRangeQueryItrExausted(), deserializer.getRangeQueryReadsInfo(), deserializer.getWriteKey(), deserializer.getIsDelete(),
-                        deserializer.getWriteValue()));
-            }
+                        deserializer.getRangeQueryItrExausted(), deserializer.getRangeQueryReadsInfo(), deserializer.getWriteKey(sanitizer), deserializer.getIsDelete(),
+                        getWriteValue(deserializer));
+            });
             DataFrame df = new DataFrame(data, columns, physicalPlan.getColumnAliasMapping());
-            df.setRawData(dataMap.values());
+            setRawData(df, dataNode);
             return df;
         } else {
             throw new BlkchnException("Cannot create dataframe from unknown object type");
         }
     }
 
+    /*
+     * Only the rows handed to the caller shrink, the decoded read write sets of the
+     * query still hold the values until it completes.
+     */
+    private Object getWriteValue(ReadWriteSetDeserializer deserializer) {
+        // Off-heap values are read as printable text
+        if (offHeapValueSize <= 0 || deserializer.getWriteValueSize() < offHeapValueSize
+                || sanitizer.getMode() != PrintableSanitizer.Mode.PRINTABLE || deserializer.getWriteValueBytes() == null) {
+            return deserializer.getWriteValue(sanitizer);
+        }
+        return getValueStore().store(deserializer.getWriteValueBytes());
+    }
+
+    private synchronized OffHeapValueStore getValueStore() {
+        if (valueStore == null) {
+            valueStore = new OffHeapValueStore();
+        }
+        return valueStore;
+    }
+
+    /**
+     * Measures the objects behind the returned rows and attaches them to the data
+     * frame, the latter only when enabled through config as they keep whole blocks
+     * on the heap.
+     */
+    private void setRawData(DataFrame df, DataNode<?> dataNode) {
+        List<Object> rawData = new ArrayList<>(dataNode.getKeys().size());
+        long size = 0;
+        for (Object key : dataNode.getKeys()) {
+            Object row = dataMap.get(key.toString());
+            rawData.add(row);
+            size += getSerializedSize(row);
+        }
+        rawDataSize = size;
+        if (retainRawData) {
+            df.setRawData(rawData);
+            logger.debug(String.format("Retaining raw data of %d rows, %d bytes serialized", rawData.size(), size));
+        }
+    }
+
+    /*
+     * Block rows are whole blocks when raw data is retained, header objects otherwise
+     */
+    private static BlockHeaderObject toBlockHeader(Object row) {
+        return row instanceof BlockHeaderObject ? (BlockHeaderObject) row : new BlockHeaderObject((BlockInfo) row);
+    }
+
+    private static long getSerializedSize(Object row) {
+        if (row instanceof BlockHeaderObject) {
+            BlockHeaderObject header = (BlockHeaderObject) row;
+            return header.getPreviousHash().length + header.getDataHash().length
+                    + header.getTransActionsMetaData().length;
+        } else if (row instanceof BlockInfo) {
+            return ((BlockInfo) row).getBlock().getSerializedSize();
+        } else if (row instanceof TransactionObject) {
+            return ((TransactionObject) row).getDeserializer().getSerializedSize();
+        } else if (row instanceof TransactionActionObject) {
+            return ((TransactionActionObject) row).getDeserializer().getSerializedSize();
+        } else if (row instanceof ReadWriteSetObject) {
+            return ((ReadWriteSetObject) row).getDeserializer().getSerializedSize();
+        }
+        return 0;
+    }
+
+    /**
+     * Serialized size of the ledger objects behind the rows of the last data frame.
+     * It is measured whether or not raw data retention is enabled.
+     */
+    public long getRawDataSize() {
+        return rawDataSize;
+    }
+
     private List<String> getColumnNames(){
         Table table = logicalPlan.getQuery().getChildType(FromItem.class, 0).getChildType(Table.class, 0);
         String tableName = table.getChildType(IdentifierNode.class, 0).getValue();
@@ -747,85 +783,40 @@ public class QueryExecutor extends AbstractQueryExecutor {
     public RangeNode<?> getRangeNodeFromDataNode(DataNode dataNode) {
         Table table = logicalPlan.getQuery().getChildType(FromItem.class, 0).getChildType(Table.class, 0);
         String tableName = table.getChildType(IdentifierNode.class, 0).getValue();
-        if(dataNode.getTable().equals(FabricTables.BLOCK)) {
-            List<RangeNode> rangeNodes = new ArrayList<>();
-            RangeOperations<?> rangeOps = physicalPlan.getRangeOperations(tableName, FabricColumns.BLOCK_NO);
-            for(Object blockObj : dataMap.keySet()) {
-                BlockInfo blockInfo = (BlockInfo) dataMap.get(blockObj);
-                RangeNode rangeNode = new RangeNode(tableName, FabricColumns.BLOCK_NO);
-                rangeNode.getRangeList().addRange(new Range(blockInfo.getBlockNumber(), blockInfo.getBlockNumber()));
-                rangeNodes.add(rangeNode);
-            }
-            if(rangeNodes.isEmpty()) {
-                RangeNode rangeNode = new RangeNode(tableName, FabricColumns.BLOCK_NO);
-                return rangeNode;
-            }
-            RangeNode rangeNode = rangeNodes.get(0);
-            for(int i = 1 ; i < rangeNodes.size() ; i++) {
-                rangeNode = rangeOps.rangeNodeOr(rangeNode, rangeNodes.get(i));
-            }
-            return rangeNode;
-        } else if(dataNode.getTable().equals(FabricTables.TRANSACTION)) {
-            List<RangeNode> rangeNodes = new ArrayList<>();
-            RangeOperations<?> rangeOps = physicalPlan.getRangeOperations(tableName, FabricColumns.BLOCK_NO);
-            for(Object transactionKey : dataMap.keySet()) {
-                TransactionObject transactionObject = (TransactionObject) dataMap.get(transactionKey);
-                RangeNode rangeNode = new RangeNode(tableName, FabricColumns.BLOCK_NO);
-                rangeNode.getRangeList().addRange(new Range(transactionObject.getBlockNo(), transactionObject.getBlockNo()));
-                rangeNodes.add(rangeNode);
-            }
-            if(rangeNodes.isEmpty()) {
-                RangeNode rangeNode = new RangeNode(tableName, FabricColumns.BLOCK_NO);
-                return rangeNode;
-            }
-            RangeNode rangeNode = rangeNodes.get(0);
-            for(int i = 1 ; i < rangeNodes.size() ; i++) {
-                rangeNode = rangeOps.rangeNodeOr(rangeNode, rangeNodes.get(i));
-            }
-            return rangeNode;
-        } else if(dataNode.getTable().equals(FabricTables.TRANSACTION_ACTION)) {
-            List<RangeNode> rangeNodes = new ArrayList<>();
-            RangeOperations<?> rangeOps = physicalPlan.getRangeOperations(tableName, FabricColumns.BLOCK_NO);
-            for(Object transactionActionKey : dataMap.keySet()) {
-                TransactionActionObject transactionActionObject = (TransactionActionObject) dataMap.get(transactionActionKey);
-                RangeNode rangeNode = new RangeNode(tableName, FabricColumns.BLOCK_NO);
-                rangeNode.getRangeList().addRange(new Range(transactionActionObject.getBlockNo(), transactionActionObject.getBlockNo()));
-                rangeNodes.add(rangeNode);
-            }
-            if(rangeNodes.isEmpty()) {
-                RangeNode rangeNode = new RangeNode(tableName, FabricColumns.BLOCK_NO);
-                return rangeNode;
-            }
-            RangeNode rangeNode = rangeNodes.get(0);
-            for(int i = 1 ; i < rangeNodes.size() ; i++) {
-                rangeNode = rangeOps.rangeNodeOr(rangeNode, rangeNodes.get(i));
-            }
-            return rangeNode;
-        } else if(dataNode.getTable().equals(FabricTables.READ_WRITE_SET)) {
-            List<RangeNode> rangeNodes = new ArrayList<>();
-            RangeOperations<?> rangeOps = physicalPlan.getRangeOperations(tableName, FabricColumns.BLOCK_NO);
-            for(Object rwSetKey : dataMap.keySet()) {
-                ReadWriteSetObject readWriteSetObject = (ReadWriteSetObject) dataMap.get(rwSetKey);
-                RangeNode rangeNode = new RangeNode(tableName, FabricColumns.BLOCK_NO);
-                rangeNode.getRangeList().addRange(new Range(readWriteSetObject.getBlockNo(), readWriteSetObject.getBlockNo()));
-                rangeNodes.add(rangeNode);
+        if (!FabricTables.BLOCK.equals(dataNode.getTable()) && !isTransactionTable(dataNode.getTable())) {
+            throw new BlkchnException("Unidentified table name " + tableName);
+        }
+        TreeSet<Long> blockNumbers = new TreeSet<>();
+        for (Object key : dataNode.getKeys()) {
+            long blockNo = getBlockNo(key);
+            if (blockNo >= 0) {
+                blockNumbers.add(blockNo);
             }
-            if(rangeNodes.isEmpty()) {
-                RangeNode rangeNode = new RangeNode(tableName, FabricColumns.BLOCK_NO);
-                return rangeNode;
+        }
+        // One range per run of consecutive block numbers
+        RangeNode<Long> rangeNode = new RangeNode<>(tableName, FabricColumns.BLOCK_NO);
+        Long start = null;
+        Long end = null;
+        for (Long blockNo : blockNumbers) {
+            if (end != null && blockNo == end + 1) {
+                end = blockNo;
+                continue;
             }
-            RangeNode rangeNode = rangeNodes.get(0);
-            for(int i = 1 ; i < rangeNodes.size() ; i++) {
-                rangeNode = rangeOps.rangeNodeOr(rangeNode, rangeNodes.get(i));
+            if (start != null) {
+                rangeNode.getRangeList().addRange(new Range<>(start, end));
             }
-            return rangeNode;
+            start = blockNo;
+            end = blockNo;
+        }
+        if (start != null) {
+            rangeNode.getRangeList().addRange(new Range<>(start, end));
         }
-        throw new BlkchnException("Unidentified table name " + tableName);
+        return rangeNode;
     }
 
 
     private boolean filterFieldBlock(String fieldName, Object obj, String value, Comparator comparator) {
-        BlockInfo blockInfo = (BlockInfo) obj;
+        BlockHeaderObject header = toBlockHeader(obj);
         boolean retValue;
         switch (fieldName) {
             case FabricColumns.BLOCK_DATA_HASH:
@@ -834,9 +825,9 @@ public class QueryExecutor extends AbstractQueryExecutor {
                             "String values in %s field can only be compared for equivalence and non-equivalence", fieldName));
                 }
                 if(comparator.isEQ()) {
-                    retValue = Hex.encodeHexString(blockInfo.getDataHash()).equals(value.replaceAll("'", ""));
+                    retValue = Hex.encodeHexString(header.getDataHash()).equals(value.replaceAll("'", ""));
                 } else {
-                    retValue = !Hex.encodeHexString(blockInfo.getDataHash()).equals(value.replaceAll("'", ""));
+                    retValue = !Hex.encodeHexString(header.getDataHash()).equals(value.replaceAll("'", ""));
                 }
                 break;
 
@@ -846,30 +837,26 @@ public class QueryExecutor extends AbstractQueryExecutor {
                             "String values in %s field can only be compared for equivalence and non-equivalence", fieldName));
                 }
                 if(comparator.isEQ()) {
-                    retValue = Hex.encodeHexString(blockInfo.getTransActionsMetaData()).equals(value.replaceAll("'", ""));
+                    retValue = Hex.encodeHexString(header.getTransActionsMetaData()).equals(value.replaceAll("'", ""));
                 } else {
-                    retValue = !Hex.encodeHexString(blockInfo.getTransActionsMetaData()).equals(value.replaceAll("'", ""));
+                    retValue = !Hex.encodeHexString(header.getTransActionsMetaData()).equals(value.replaceAll("'", ""));
                 }
                 break;
 
             case FabricColumns.TRANSACTION_COUNT:
-                Number transactionCount = blockInfo.getEnvelopeCount();
+                Number transactionCount = header.getEnvelopeCount();
                 retValue = compareNumbers(transactionCount, Integer.parseInt(value), comparator);
                 break;
 
             case FabricColumns.CHANNEL_ID:
-                try {
-                    if (!comparator.isEQ() && !comparator.isNEQ()) {
-                        throw new BlkchnException(String.format(
-                                "String values in %s field can only be compared for equivalence and non-equivalence", fieldName));
-                    }
-                    if(comparator.isEQ()) {
-                        retValue = blockInfo.getChannelId().equals(value.replaceAll("'", ""));
-                    } else {
-                        retValue = !blockInfo.getChannelId().equals(value.replaceAll("'", ""));
-                    }
-                } catch (InvalidProtocolBufferException e) {
-                    throw new BlkchnException("Error fetching channel id", e);
+                if (!comparator.isEQ() && !comparator.isNEQ()) {
+                    throw new BlkchnException(String.format(
+                            "String values in %s field can only be compared for equivalence and non-equivalence", fieldName));
+                }
+                if(comparator.isEQ()) {
+                    retValue = header.getChannelId().equals(value.replaceAll("'", ""));
+                } else {
+                    retValue = !header.getChannelId().equals(value.replaceAll("'", ""));
                 }
                 break;
                 
@@ -879,9 +866,9 @@ public class QueryExecutor extends AbstractQueryExecutor {
                             "String values in %s field can only be compared for equivalence and non-equivalence", fieldName));
                 }
                 if(comparator.isEQ()) {
-                    retValue = Hex.encodeHexString(blockInfo.getPreviousHash()).equals(value.replaceAll("'", ""));
+                    retValue = Hex.encodeHexString(header.getPreviousHash()).equals(value.replaceAll("'", ""));
                 } else {
-                    retValue = !Hex.encodeHexString(blockInfo.getPreviousHash()).equals(value.replaceAll("'", ""));
+                    retValue = !Hex.encodeHexString(header.getPreviousHash()).equals(value.replaceAll("'", ""));
                 }
                 break;
 
@@ -1214,9 +1201,9 @@ public class QueryExecutor extends AbstractQueryExecutor {
                             "String values in %s field can only be compared for equivalence and non-equivalence", fieldName));
                 }
                 if(comparator.isEQ()) {
-                    retValue = value.replaceAll("'", "").equals(readWriteSet.getDeserializer().getWriteKey());
+                    retValue = value.replaceAll("'", "").equals(readWriteSet.getDeserializer().getWriteKey(sanitizer));
                 } else {
-                    retValue = !value.replaceAll("'", "").equals(readWriteSet.getDeserializer().getWriteKey());
+                    retValue = !value.replaceAll("'", "").equals(readWriteSet.getDeserializer().getWriteKey(sanitizer));
                 }
                 break;
                 
@@ -1238,9 +1225,9 @@ public class QueryExecutor extends AbstractQueryExecutor {
                             "String values in %s field can only be compared for equivalence and non-equivalence", fieldName));
                 }
                 if(comparator.isEQ()) {
-                    retValue = value.replaceAll("'", "").equals(readWriteSet.getDeserializer().getWriteValue());
+                    retValue = value.replaceAll("'", "").equals(readWriteSet.getDeserializer().getWriteValue(sanitizer));
                 } else {
-                    retValue = !value.replaceAll("'", "").equals(readWriteSet.getDeserializer().getWriteValue());
+                    retValue = !value.replaceAll("'", "").equals(readWriteSet.getDeserializer().getWriteValue(sanitizer));
                 }
                 break;
                 
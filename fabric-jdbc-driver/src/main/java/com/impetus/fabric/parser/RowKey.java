@@ -0,0 +1,53 @@
+/*******************************************************************************
+ * * Copyright 2018 Impetus Infotech.
+ * *
+ * * Licensed under the Apache License, Version 2.0 (the "License");
+ * * you may not use this file except in compliance with the License.
+ * * You may obtain a copy of the License at
+ * *
+ * * http://www.apache.org/licenses/LICENSE-2.0
+ * *
+ * * Unless required by applicable law or agreed to in writing, software
+ * * distributed under the License is distributed on an "AS IS" BASIS,
+ * * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * * See the License for the specific language governing permissions and
+ * * limitations under the License.
+ ******************************************************************************/
+
+package com.impetus.fabric.parser;
+
+/**
+ * Keys under which decoded rows are kept in the query data map. Rows below the
+ * transaction level are addressed by their position in the ledger, e.g.
+ * {@code 12.0.1.2w3} is the fourth write of the third namespace of the second
+ * action of the first transaction in block 12. Unlike hash codes these keys can
+ * not collide.
+ */
+public final class RowKey {
+
+    public static final char READ = 'r';
+
+    public static final char RANGE_QUERY = 'q';
+
+    public static final char WRITE = 'w';
+
+    private static final char SEPARATOR = '.';
+
+    private RowKey() {
+    }
+
+    public static String block(long blockNo) {
+        return Long.toString(blockNo);
+    }
+
+    public static String action(long blockNo, int txIndex, int actionIndex) {
+        return new StringBuilder(16).append(blockNo).append(SEPARATOR).append(txIndex).append(SEPARATOR)
+                .append(actionIndex).toString();
+    }
+
+    public static String readWriteSet(long blockNo, int txIndex, int actionIndex, int nsIndex, char kind,
+            int position) {
+        return new StringBuilder(24).append(blockNo).append(SEPARATOR).append(txIndex).append(SEPARATOR)
+                .append(actionIndex).append(SEPARATOR).append(nsIndex).append(kind).append(position).toString();
+    }
+}
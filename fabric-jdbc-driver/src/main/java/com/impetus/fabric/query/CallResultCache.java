@@ -0,0 +1,226 @@
+/*******************************************************************************
+ * * Copyright 2018 Impetus Infotech.
+ * *
+ * * Licensed under the Apache License, Version 2.0 (the "License");
+ * * you may not use this file except in compliance with the License.
+ * * You may obtain a copy of the License at
+ * *
+ * * http://www.apache.org/licenses/LICENSE-2.0
+ * *
+ * * Unless required by applicable law or agreed to in writing, software
+ * * distributed under the License is distributed on an "AS IS" BASIS,
+ * * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * * See the License for the specific language governing permissions and
+ * * limitations under the License.
+ ******************************************************************************/
+
+package com.impetus.fabric.query;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import org.hyperledger.fabric.sdk.BlockEvent;
+import org.hyperledger.fabric.sdk.BlockInfo;
+import org.hyperledger.fabric.sdk.BlockListener;
+import org.hyperledger.fabric.sdk.Peer;
+import org.hyperledger.fabric.sdk.ProposalResponse;
+import org.hyperledger.fabric.sdk.TxReadWriteSetInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
+
+/**
+ * Results of read only chaincode queries, valid until the next block commits.
+ * Every block event drops the cached results, or only those of the chaincodes the
+ * block wrote to when config.call.resultCacheByNamespace is set. That misses a
+ * chaincode which reads the state of another through a chaincode to chaincode
+ * call, its results are only dropped by writes to its own namespace.
+ * <p>
+ * The query may go to another peer than the one the block event came from, which
+ * may not have committed the block yet. A result is therefore only cached when the
+ * peer that answered is known to be at the latest height, from block events it
+ * delivered itself, event hubs being matched to peers by name. A result whose
+ * query overlapped a block event is not cached either, as it may predate the
+ * block. Results expire after config.call.resultCacheTtl milliseconds in any case,
+ * so a block event that is missed can't keep a stale result.
+ */
+public class CallResultCache implements BlockListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(CallResultCache.class);
+
+    // Chaincodes are deployed and upgraded through the lifecycle chaincode
+    private static final String LIFECYCLE_NAMESPACE = "lscc";
+
+    private final Map<List<String>, CachedResult> results;
+
+    private final boolean byNamespace;
+
+    private final long ttl;
+
+    private long version = 0;
+
+    private long height = -1;
+
+    // Heights reported by the block events of each peer or event hub
+    private final Map<String, Long> sourceHeights = new HashMap<>();
+
+    private long hits = 0;
+
+    private long misses = 0;
+
+    public CallResultCache(int maxEntries, boolean byNamespace, long ttl) {
+        this.byNamespace = byNamespace;
+        this.ttl = ttl;
+        this.results = new LinkedHashMap<List<String>, CachedResult>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<List<String>, CachedResult> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Returns the payload of the cached result of the query, or runs it and caches
+     * its result.
+     */
+    public ByteString getOrQuery(String chaincodeName, String function, String[] args,
+            Supplier<ProposalResponse> query) {
+        List<String> key = new ArrayList<>();
+        key.add(chaincodeName);
+        key.add(function);
+        key.addAll(Arrays.asList(args));
+        long queryVersion;
+        synchronized (this) {
+            CachedResult cached = results.get(key);
+            if (cached != null && System.currentTimeMillis() - cached.loadTime < ttl) {
+                hits++;
+                return cached.result;
+            }
+            if (cached != null) {
+                results.remove(key);
+            }
+            misses++;
+            queryVersion = version;
+        }
+        ProposalResponse response = query.get();
+        ByteString result = QueryBlock.getPayload(response);
+        synchronized (this) {
+            if (version == queryVersion && isCurrent(response.getPeer())) {
+                results.put(key, new CachedResult(result));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void received(BlockEvent blockEvent) {
+        Set<String> namespaces = byNamespace ? getWrittenNamespaces(blockEvent) : null;
+        synchronized (this) {
+            version++;
+            height = Math.max(height, blockEvent.getBlockNumber() + 1);
+            String source = getSourceName(blockEvent);
+            if (source != null) {
+                sourceHeights.merge(source, blockEvent.getBlockNumber() + 1, Math::max);
+            }
+            if (namespaces == null || namespaces.contains(LIFECYCLE_NAMESPACE)) {
+                results.clear();
+            } else if (!namespaces.isEmpty()) {
+                results.keySet().removeIf(key -> namespaces.contains(key.get(0)));
+            }
+        }
+    }
+
+    /*
+     * Whether the peer has committed every block an event was received for, always
+     * before the first event
+     */
+    private boolean isCurrent(Peer peer) {
+        if (height < 0) {
+            return true;
+        }
+        Long peerHeight = peer == null ? null : sourceHeights.get(peer.getName());
+        return peerHeight != null && peerHeight >= height;
+    }
+
+    private static String getSourceName(BlockEvent blockEvent) {
+        if (blockEvent.getPeer() != null) {
+            return blockEvent.getPeer().getName();
+        }
+        return blockEvent.getEventHub() == null ? null : blockEvent.getEventHub().getName();
+    }
+
+    /*
+     * Chaincodes with writes in valid transactions of the block, null when they can't
+     * be told
+     */
+    private static Set<String> getWrittenNamespaces(BlockEvent blockEvent) {
+        Set<String> namespaces = new HashSet<>();
+        try {
+            for (BlockInfo.EnvelopeInfo envelopeInfo : blockEvent.getEnvelopeInfos()) {
+                if (!envelopeInfo.isValid()
+                        || envelopeInfo.getType() != BlockInfo.EnvelopeType.TRANSACTION_ENVELOPE) {
+                    continue;
+                }
+                BlockInfo.TransactionEnvelopeInfo transactionInfo = (BlockInfo.TransactionEnvelopeInfo) envelopeInfo;
+                for (BlockInfo.TransactionEnvelopeInfo.TransactionActionInfo actionInfo : transactionInfo
+                        .getTransactionActionInfos()) {
+                    TxReadWriteSetInfo readWriteSet = actionInfo.getTxReadWriteSet();
+                    if (readWriteSet == null) {
+                        continue;
+                    }
+                    for (TxReadWriteSetInfo.NsRwsetInfo nsInfo : readWriteSet.getNsRwsetInfos()) {
+                        if (nsInfo.getRwset().getWritesCount() > 0) {
+                            namespaces.add(nsInfo.getNamespace());
+                        }
+                    }
+                }
+            }
+        } catch (InvalidProtocolBufferException | RuntimeException e) {
+            logger.warn("Unable to read the namespaces written by block " + blockEvent.getBlockNumber(), e);
+            return null;
+        }
+        return namespaces;
+    }
+
+    /**
+     * Height of the ledger as last reported by a block event, -1 before the first.
+     */
+    public synchronized long getHeight() {
+        return height;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized int size() {
+        return results.size();
+    }
+
+    private static class CachedResult {
+
+        private final ByteString result;
+
+        private final long loadTime = System.currentTimeMillis();
+
+        CachedResult(ByteString result) {
+            this.result = result;
+        }
+    }
+}
@@ -0,0 +1,211 @@
+/*******************************************************************************
+ * * Copyright 2018 Impetus Infotech.
+ * *
+ * * Licensed under the Apache License, Version 2.0 (the "License");
+ * * you may not use this file except in compliance with the License.
+ * * You may obtain a copy of the License at
+ * *
+ * * http://www.apache.org/licenses/LICENSE-2.0
+ * *
+ * * Unless required by applicable law or agreed to in writing, software
+ * * distributed under the License is distributed on an "AS IS" BASIS,
+ * * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * * See the License for the specific language governing permissions and
+ * * limitations under the License.
+ ******************************************************************************/
+
+package com.impetus.fabric.query;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.hyperledger.fabric.sdk.Peer;
+import org.hyperledger.fabric.sdk.exception.InvalidArgumentException;
+import org.hyperledger.fabric.sdk.exception.ProposalException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.impetus.blkch.BlkchnException;
+import com.impetus.fabric.model.Config;
+
+/**
+ * Sends a read request to one peer and, if it has not answered within a delay
+ * derived from recent latencies, sends the same request to a second peer. The
+ * first successful answer is returned and the other request is cancelled. When the
+ * first peer fails before the delay, the request fails over to the second one,
+ * which doesn't count as a hedge.
+ */
+public class HedgedRequestExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(HedgedRequestExecutor.class);
+
+    private static final int WINDOW_SIZE = 256;
+
+    // Below this many samples the percentile is meaningless, so requests are not hedged
+    private static final int MIN_SAMPLES = 20;
+
+    private final boolean enabled;
+
+    private final double percentile;
+
+    private final long minDelay;
+
+    private final LatencyWindow latencies = new LatencyWindow(WINDOW_SIZE);
+
+    private final AtomicInteger nextPeer = new AtomicInteger();
+
+    private final AtomicLong hedgesFired = new AtomicLong();
+
+    private final AtomicLong hedgesWon = new AtomicLong();
+
+    private final ExecutorService executor;
+
+    @FunctionalInterface
+    public interface PeerRequest<T> {
+        T apply(Peer peer) throws ProposalException, InvalidArgumentException;
+    }
+
+    public HedgedRequestExecutor(Config conf) {
+        this.enabled = conf.isHedgeEnabled();
+        this.percentile = conf.getHedgePercentile();
+        this.minDelay = conf.getHedgeMinDelay();
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "fabric-hedged-request");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long getHedgesFired() {
+        return hedgesFired.get();
+    }
+
+    public long getHedgesWon() {
+        return hedgesWon.get();
+    }
+
+    /**
+     * Delay after which a second request is issued, or -1 if not enough latencies
+     * have been recorded yet.
+     */
+    public long getHedgeDelay() {
+        if (latencies.size() < MIN_SAMPLES) {
+            return -1l;
+        }
+        return Math.max(minDelay, latencies.percentile(percentile));
+    }
+
+    public <T> T execute(Collection<Peer> peers, PeerRequest<T> request) throws ProposalException,
+            InvalidArgumentException {
+        List<Peer> candidates = new ArrayList<>(peers);
+        if (candidates.isEmpty()) {
+            throw new InvalidArgumentException("No peers available to send the request to");
+        }
+        int start = Math.floorMod(nextPeer.getAndIncrement(), candidates.size());
+        Peer primary = candidates.get(start);
+        if (!enabled || candidates.size() < 2) {
+            return timed(primary, request);
+        }
+        Peer backup = candidates.get((start + 1) % candidates.size());
+        long delay = getHedgeDelay();
+        if (delay < 0) {
+            try {
+                return timed(primary, request);
+            } catch (ProposalException e) {
+                return failOver(primary, backup, request, e);
+            }
+        }
+        CompletionService<T> completion = new ExecutorCompletionService<>(executor);
+        Future<T> primaryFuture = completion.submit(() -> timed(primary, request));
+        Future<T> hedgeFuture = null;
+        try {
+            Future<T> done = completion.poll(delay, TimeUnit.MILLISECONDS);
+            if (done != null) {
+                try {
+                    return done.get();
+                } catch (ExecutionException e) {
+                    if (!(e.getCause() instanceof ProposalException)) {
+                        throw unwrap(e);
+                    }
+                    return failOver(primary, backup, request, e.getCause());
+                }
+            }
+            hedgesFired.incrementAndGet();
+            logger.debug(String.format("Peer %s did not respond within %d ms, hedging request to peer %s",
+                    primary.getName(), delay, backup.getName()));
+            hedgeFuture = completion.submit(() -> timed(backup, request));
+            done = completion.take();
+            try {
+                T result = done.get();
+                if (done == hedgeFuture) {
+                    hedgesWon.incrementAndGet();
+                }
+                return result;
+            } catch (ExecutionException e) {
+                // One of the two requests failed, the other one is still our answer
+                Future<T> other = completion.take();
+                try {
+                    T result = other.get();
+                    if (other == hedgeFuture) {
+                        hedgesWon.incrementAndGet();
+                    }
+                    return result;
+                } catch (ExecutionException ex) {
+                    throw unwrap(ex);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BlkchnException("Interrupted while waiting for peer response", e);
+        } finally {
+            primaryFuture.cancel(true);
+            if (hedgeFuture != null) {
+                hedgeFuture.cancel(true);
+            }
+        }
+    }
+
+    private <T> T failOver(Peer primary, Peer backup, PeerRequest<T> request, Throwable error)
+            throws ProposalException, InvalidArgumentException {
+        logger.debug(String.format("Peer %s failed, sending request to peer %s: %s", primary.getName(),
+                backup.getName(), error.getMessage()));
+        return timed(backup, request);
+    }
+
+    private <T> T timed(Peer peer, PeerRequest<T> request) throws ProposalException, InvalidArgumentException {
+        long start = System.currentTimeMillis();
+        T result = request.apply(peer);
+        latencies.record(System.currentTimeMillis() - start);
+        return result;
+    }
+
+    /*
+     * Rethrows the peer exceptions a request failed with, any other failure is
+     * returned for the caller to throw
+     */
+    private static BlkchnException unwrap(ExecutionException e) throws ProposalException, InvalidArgumentException {
+        Throwable cause = e.getCause();
+        if (cause instanceof ProposalException) {
+            throw (ProposalException) cause;
+        } else if (cause instanceof InvalidArgumentException) {
+            throw (InvalidArgumentException) cause;
+        } else if (cause instanceof BlkchnException) {
+            return (BlkchnException) cause;
+        }
+        return new BlkchnException("Error executing hedged peer request", cause);
+    }
+}
@@ -0,0 +1,69 @@
+/*******************************************************************************
+ * * Copyright 2018 Impetus Infotech.
+ * *
+ * * Licensed under the Apache License, Version 2.0 (the "License");
+ * * you may not use this file except in compliance with the License.
+ * * You may obtain a copy of the License at
+ * *
+ * * http://www.apache.org/licenses/LICENSE-2.0
+ * *
+ * * Unless required by applicable law or agreed to in writing, software
+ * * distributed under the License is distributed on an "AS IS" BASIS,
+ * * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * * See the License for the specific language governing permissions and
+ * * limitations under the License.
+ ******************************************************************************/
+
+package com.impetus.fabric.query;
+
+import java.util.Arrays;
+
+/**
+ * Fixed size ring buffer of the most recent request latencies in milliseconds.
+ */
+public class LatencyWindow {
+
+    private final long[] samples;
+
+    private int next = 0;
+
+    private int count = 0;
+
+    public LatencyWindow(int capacity) {
+        this.samples = new long[capacity];
+    }
+
+    public synchronized void record(long millis) {
+        samples[next] = millis;
+        next = (next + 1) % samples.length;
+        if (count < samples.length) {
+            count++;
+        }
+    }
+
+    public synchronized int size() {
+        return count;
+    }
+
+    /**
+     * Returns the latency below which the given percentage of the recorded samples
+     * fall, or -1 if nothing has been recorded yet.
+     */
+    public long percentile(double percent) {
+        long[] sorted;
+        synchronized (this) {
+            if (count == 0) {
+                return -1l;
+            }
+            sorted = Arrays.copyOf(samples, count);
+        }
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percent / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    public synchronized void clear() {
+        next = 0;
+        count = 0;
+    }
+}
@@ -0,0 +1,143 @@
+/*******************************************************************************
+ * * Copyright 2018 Impetus Infotech.
+ * *
+ * * Licensed under the Apache License, Version 2.0 (the "License");
+ * * you may not use this file except in compliance with the License.
+ * * You may obtain a copy of the License at
+ * *
+ * * http://www.apache.org/licenses/LICENSE-2.0
+ * *
+ * * Unless required by applicable law or agreed to in writing, software
+ * * distributed under the License is distributed on an "AS IS" BASIS,
+ * * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * * See the License for the specific language governing permissions and
+ * * limitations under the License.
+ ******************************************************************************/
+
+package com.impetus.fabric.query;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import com.google.common.collect.ImmutableMap;
+import com.impetus.fabric.objects.ReadWriteSetObject;
+import com.impetus.fabric.objects.TransactionActionObject;
+
+/**
+ * Statistics of the ledger gathered from the blocks decoded by queries: rows per
+ * block of each table, chaincode names and the read write set rows and key writes
+ * per namespace. Each block is counted once per table. Estimates fall back to
+ * typical figures for tables no block of which has been decoded yet.
+ */
+public class LedgerStatistics {
+
+    // Blocks hold up to 10 transactions with the default orderer batch size
+    private static final Map<String, Double> DEFAULT_ROWS_PER_BLOCK = ImmutableMap.of(FabricTables.BLOCK, 1d,
+            FabricTables.TRANSACTION, 10d, FabricTables.TRANSACTION_ACTION, 10d, FabricTables.READ_WRITE_SET, 50d);
+
+    private final Map<String, BitSet> observedBlocks = new HashMap<>();
+
+    private final Map<String, Long> observedRows = new HashMap<>();
+
+    private final Set<String> chaincodeNames = new TreeSet<>();
+
+    private final Map<String, Long> namespaceRows = new TreeMap<>();
+
+    private final Map<String, Long> namespaceKeyWrites = new TreeMap<>();
+
+    /**
+     * Records the rows a block decoded into for the table.
+     */
+    public synchronized void recordBlock(String table, long blockNo, Collection<?> rows) {
+        if (!markObserved(table, blockNo)) {
+            return;
+        }
+        observedRows.merge(table, (long) rows.size(), Long::sum);
+        for (Object row : rows) {
+            if (row instanceof TransactionActionObject) {
+                chaincodeNames.add(((TransactionActionObject) row).getDeserializer().getChaincodeName());
+            } else if (row instanceof ReadWriteSetObject) {
+                ReadWriteSetObject readWriteSet = (ReadWriteSetObject) row;
+                namespaceRows.merge(readWriteSet.getNamespace(), 1l, Long::sum);
+                if (readWriteSet.getDeserializer().getWriteKey() != null) {
+                    namespaceKeyWrites.merge(readWriteSet.getNamespace(), 1l, Long::sum);
+                }
+            }
+        }
+    }
+
+    /**
+     * Records the number of rows of the table in a block, known without decoding it.
+     */
+    public synchronized void recordRowCount(String table, long blockNo, long rowCount) {
+        if (markObserved(table, blockNo)) {
+            observedRows.merge(table, rowCount, Long::sum);
+        }
+    }
+
+    private boolean markObserved(String table, long blockNo) {
+        if (blockNo < 0 || blockNo > Integer.MAX_VALUE) {
+            return false;
+        }
+        BitSet blocks = observedBlocks.computeIfAbsent(table, t -> new BitSet());
+        if (blocks.get((int) blockNo)) {
+            return false;
+        }
+        blocks.set((int) blockNo);
+        return true;
+    }
+
+    public synchronized long getObservedBlockCount(String table) {
+        BitSet blocks = observedBlocks.get(table);
+        return blocks == null ? 0 : blocks.cardinality();
+    }
+
+    public synchronized double getRowsPerBlock(String table) {
+        long blocks = getObservedBlockCount(table);
+        if (blocks == 0) {
+            return DEFAULT_ROWS_PER_BLOCK.getOrDefault(table, 1d);
+        }
+        return (double) observedRows.get(table) / blocks;
+    }
+
+    /**
+     * Estimated number of rows of the table in the given number of blocks.
+     */
+    public long estimateRows(String table, long blockCount) {
+        return (long) Math.ceil(getRowsPerBlock(table) * blockCount);
+    }
+
+    public synchronized Set<String> getChaincodeNames() {
+        return new TreeSet<>(chaincodeNames);
+    }
+
+    /**
+     * Read write set rows per namespace.
+     */
+    public synchronized Map<String, Long> getNamespaceHistogram() {
+        return new TreeMap<>(namespaceRows);
+    }
+
+    /**
+     * Key writes per namespace, deletes included.
+     */
+    public synchronized Map<String, Long> getKeyWriteCounts() {
+        return new TreeMap<>(namespaceKeyWrites);
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder sb = new StringBuilder("LedgerStatistics[");
+        for (String table : DEFAULT_ROWS_PER_BLOCK.keySet()) {
+            sb.append(String.format("%s: %.1f rows per block over %d blocks, ", table, getRowsPerBlock(table),
+                    getObservedBlockCount(table)));
+        }
+        sb.append("chaincodes: ").append(chaincodeNames).append("]");
+        return sb.toString();
+    }
+}
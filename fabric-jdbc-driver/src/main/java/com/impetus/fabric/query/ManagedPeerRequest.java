@@ -0,0 +1,84 @@
+/*******************************************************************************
+ * * Copyright 2018 Impetus Infotech.
+ * *
+ * * Licensed under the Apache License, Version 2.0 (the "License");
+ * * you may not use this file except in compliance with the License.
+ * * You may obtain a copy of the License at
+ * *
+ * * http://www.apache.org/licenses/LICENSE-2.0
+ * *
+ * * Unless required by applicable law or agreed to in writing, software
+ * * distributed under the License is distributed on an "AS IS" BASIS,
+ * * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * * See the License for the specific language governing permissions and
+ * * limitations under the License.
+ ******************************************************************************/
+
+package com.impetus.fabric.query;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.hyperledger.fabric.sdk.exception.InvalidArgumentException;
+import org.hyperledger.fabric.sdk.exception.ProposalException;
+
+import com.impetus.blkch.BlkchnException;
+
+/**
+ * Peer request run as a {@link ForkJoinPool.ManagedBlocker}. Blocks and ledger
+ * queries are fetched from tasks of the decode pool; while such a task waits for
+ * a peer the pool may start another thread, so that the decoding keeps its
+ * parallelism. Outside a ForkJoin pool the request simply runs.
+ */
+final class ManagedPeerRequest<T> implements ForkJoinPool.ManagedBlocker {
+
+    @FunctionalInterface
+    interface Request<T> {
+        T get() throws ProposalException, InvalidArgumentException;
+    }
+
+    private final Request<T> request;
+
+    private boolean done = false;
+
+    private T result;
+
+    private Exception error;
+
+    private ManagedPeerRequest(Request<T> request) {
+        this.request = request;
+    }
+
+    static <T> T run(Request<T> request) throws ProposalException, InvalidArgumentException {
+        ManagedPeerRequest<T> blocker = new ManagedPeerRequest<>(request);
+        try {
+            ForkJoinPool.managedBlock(blocker);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BlkchnException("Interrupted while waiting for peer response", e);
+        }
+        if (blocker.error instanceof ProposalException) {
+            throw (ProposalException) blocker.error;
+        } else if (blocker.error instanceof InvalidArgumentException) {
+            throw (InvalidArgumentException) blocker.error;
+        } else if (blocker.error != null) {
+            throw (RuntimeException) blocker.error;
+        }
+        return blocker.result;
+    }
+
+    @Override
+    public boolean block() {
+        try {
+            result = request.get();
+        } catch (ProposalException | InvalidArgumentException | RuntimeException e) {
+            error = e;
+        }
+        done = true;
+        return true;
+    }
+
+    @Override
+    public boolean isReleasable() {
+        return done;
+    }
+}
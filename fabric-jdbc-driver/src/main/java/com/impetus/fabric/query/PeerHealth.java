@@ -0,0 +1,131 @@
+/*******************************************************************************
+ * * Copyright 2018 Impetus Infotech.
+ * *
+ * * Licensed under the Apache License, Version 2.0 (the "License");
+ * * you may not use this file except in compliance with the License.
+ * * You may obtain a copy of the License at
+ * *
+ * * http://www.apache.org/licenses/LICENSE-2.0
+ * *
+ * * Unless required by applicable law or agreed to in writing, software
+ * * distributed under the License is distributed on an "AS IS" BASIS,
+ * * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * * See the License for the specific language governing permissions and
+ * * limitations under the License.
+ ******************************************************************************/
+
+package com.impetus.fabric.query;
+
+/**
+ * Health of a single peer along with its circuit breaker. The breaker opens after
+ * a number of consecutive failures, and an open peer is skipped until it has been
+ * open for the configured duration, after which it is half open and is given
+ * requests again only when no closed peer is left.
+ */
+public class PeerHealth {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private static final int LATENCY_WINDOW = 100;
+
+    private final String name;
+
+    private final int failureThreshold;
+
+    private final long openDuration;
+
+    private final LatencyWindow latencies = new LatencyWindow(LATENCY_WINDOW);
+
+    private State state = State.CLOSED;
+
+    private long successCount = 0;
+
+    private long failureCount = 0;
+
+    private int consecutiveFailures = 0;
+
+    private long openedAt = 0;
+
+    private long lastSuccessAt = 0;
+
+    private long lastFailureAt = 0;
+
+    private String lastError;
+
+    public PeerHealth(String name, int failureThreshold, long openDuration) {
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.openDuration = openDuration;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public synchronized State getState() {
+        if (state == State.OPEN && System.currentTimeMillis() - openedAt >= openDuration) {
+            state = State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    public boolean isAvailable() {
+        return getState() != State.OPEN;
+    }
+
+    public synchronized void recordSuccess(long latency) {
+        latencies.record(latency);
+        successCount++;
+        consecutiveFailures = 0;
+        lastSuccessAt = System.currentTimeMillis();
+        state = State.CLOSED;
+    }
+
+    public synchronized void recordFailure(Throwable error) {
+        failureCount++;
+        consecutiveFailures++;
+        lastFailureAt = System.currentTimeMillis();
+        lastError = error == null ? null : error.getMessage();
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = lastFailureAt;
+        }
+    }
+
+    public synchronized long getSuccessCount() {
+        return successCount;
+    }
+
+    public synchronized long getFailureCount() {
+        return failureCount;
+    }
+
+    public synchronized int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    public synchronized long getLastSuccessAt() {
+        return lastSuccessAt;
+    }
+
+    public synchronized long getLastFailureAt() {
+        return lastFailureAt;
+    }
+
+    public synchronized String getLastError() {
+        return lastError;
+    }
+
+    public long getLatencyPercentile(double percent) {
+        return latencies.percentile(percent);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s[state=%s, success=%d, failure=%d, consecutiveFailures=%d, p50=%dms, p95=%dms, lastError=%s]",
+                name, getState(), getSuccessCount(), getFailureCount(), getConsecutiveFailures(),
+                getLatencyPercentile(50), getLatencyPercentile(95), getLastError());
+    }
+}
@@ -0,0 +1,171 @@
+/*******************************************************************************
+ * * Copyright 2018 Impetus Infotech.
+ * *
+ * * Licensed under the Apache License, Version 2.0 (the "License");
+ * * you may not use this file except in compliance with the License.
+ * * You may obtain a copy of the License at
+ * *
+ * * http://www.apache.org/licenses/LICENSE-2.0
+ * *
+ * * Unless required by applicable law or agreed to in writing, software
+ * * distributed under the License is distributed on an "AS IS" BASIS,
+ * * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * * See the License for the specific language governing permissions and
+ * * limitations under the License.
+ ******************************************************************************/
+
+package com.impetus.fabric.query;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.hyperledger.fabric.sdk.Peer;
+import org.hyperledger.fabric.sdk.exception.InvalidArgumentException;
+import org.hyperledger.fabric.sdk.exception.ProposalException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.impetus.fabric.model.Config;
+import com.impetus.fabric.model.PeerInfo;
+import com.impetus.fabric.query.HedgedRequestExecutor.PeerRequest;
+
+/**
+ * Keeps a {@link PeerHealth} for every peer requests are sent to and probes the
+ * peers whose breaker is open in the background, so that a dead peer costs one
+ * cheap probe per interval rather than a full proposal timeout per query.
+ */
+public class PeerHealthRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(PeerHealthRegistry.class);
+
+    @FunctionalInterface
+    public interface PeerProbe {
+        void probe(PeerInfo peer) throws Exception;
+    }
+
+    private final int failureThreshold;
+
+    private final long openDuration;
+
+    private final long probeInterval;
+
+    private final Map<String, PeerHealth> healthMap = new ConcurrentHashMap<>();
+
+    private final Map<String, PeerInfo> peerInfoMap = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService prober;
+
+    public PeerHealthRegistry(Config conf) {
+        this.failureThreshold = conf.getPeerFailureThreshold();
+        this.openDuration = conf.getPeerOpenDuration();
+        this.probeInterval = conf.getPeerProbeInterval();
+    }
+
+    public PeerHealth getHealth(Peer peer) {
+        peerInfoMap.computeIfAbsent(peer.getName(),
+                name -> new PeerInfo(name, peer.getUrl(), peer.getProperties()));
+        return healthMap.computeIfAbsent(peer.getName(),
+                name -> new PeerHealth(name, failureThreshold, openDuration));
+    }
+
+    /**
+     * Returns the peers whose breaker is not open, closed peers ahead of half open
+     * ones.
+     */
+    public List<Peer> getAvailablePeers(Collection<Peer> peers) {
+        List<Peer> closed = new ArrayList<>();
+        List<Peer> halfOpen = new ArrayList<>();
+        for (Peer peer : peers) {
+            PeerHealth.State state = getHealth(peer).getState();
+            if (state == PeerHealth.State.CLOSED) {
+                closed.add(peer);
+            } else if (state == PeerHealth.State.HALF_OPEN) {
+                halfOpen.add(peer);
+            }
+        }
+        closed.addAll(halfOpen);
+        return closed;
+    }
+
+    public <T> T track(Peer peer, PeerRequest<T> request) throws ProposalException, InvalidArgumentException {
+        PeerHealth health = getHealth(peer);
+        long start = System.currentTimeMillis();
+        try {
+            T result = request.apply(peer);
+            health.recordSuccess(System.currentTimeMillis() - start);
+            return result;
+        } catch (InvalidArgumentException e) {
+            // Bad request, says nothing about the peer
+            throw e;
+        } catch (ProposalException | RuntimeException e) {
+            recordFailure(health, e);
+            throw e;
+        }
+    }
+
+    public void recordSuccess(Peer peer, long latency) {
+        getHealth(peer).recordSuccess(latency);
+    }
+
+    public void recordFailure(Peer peer, Throwable error) {
+        recordFailure(getHealth(peer), error);
+    }
+
+    private void recordFailure(PeerHealth health, Throwable error) {
+        boolean wasAvailable = health.isAvailable();
+        health.recordFailure(error);
+        if (wasAvailable && !health.isAvailable()) {
+            logger.warn("Circuit opened for peer " + health);
+        }
+    }
+
+    public Map<String, PeerHealth> getPeerHealth() {
+        return Collections.unmodifiableMap(new TreeMap<>(healthMap));
+    }
+
+    public synchronized void startProbing(PeerProbe probe) {
+        if (prober != null) {
+            return;
+        }
+        prober = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "fabric-peer-health-probe");
+            thread.setDaemon(true);
+            return thread;
+        });
+        prober.scheduleWithFixedDelay(() -> probeUnavailablePeers(probe), probeInterval, probeInterval,
+                TimeUnit.MILLISECONDS);
+    }
+
+    private void probeUnavailablePeers(PeerProbe probe) {
+        for (PeerHealth health : healthMap.values()) {
+            if (health.getState() == PeerHealth.State.CLOSED) {
+                continue;
+            }
+            PeerInfo peerInfo = peerInfoMap.get(health.getName());
+            long start = System.currentTimeMillis();
+            try {
+                probe.probe(peerInfo);
+                health.recordSuccess(System.currentTimeMillis() - start);
+                logger.info("Circuit closed for peer " + health);
+            } catch (Exception e) {
+                health.recordFailure(e);
+                logger.debug("Probe failed for peer " + health.getName(), e);
+            }
+        }
+    }
+
+    public synchronized void shutdown() {
+        if (prober != null) {
+            prober.shutdownNow();
+            prober = null;
+        }
+    }
+}
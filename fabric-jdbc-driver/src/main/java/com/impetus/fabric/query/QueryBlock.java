@@ -25,15 +25,34 @@ import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
-import javax.annotation.concurrent.NotThreadSafe;
+import javax.annotation.concurrent.ThreadSafe;
 
 import org.hyperledger.fabric.sdk.BlockEvent;
+import org.hyperledger.fabric.sdk.BlockInfo;
+import org.hyperledger.fabric.sdk.BlockchainInfo;
 import org.hyperledger.fabric.sdk.ChaincodeEndorsementPolicy;
 import org.hyperledger.fabric.sdk.ChaincodeID;
 import org.hyperledger.fabric.sdk.Channel;
@@ -46,6 +65,7 @@ import org.hyperledger.fabric.sdk.Peer;
 import org.hyperledger.fabric.sdk.ProposalResponse;
 import org.hyperledger.fabric.sdk.QueryByChaincodeRequest;
 import org.hyperledger.fabric.sdk.SDKUtils;
+import org.hyperledger.fabric.sdk.TransactionInfo;
 import org.hyperledger.fabric.sdk.TransactionProposalRequest;
 import org.hyperledger.fabric.sdk.UpgradeProposalRequest;
 import org.hyperledger.fabric.sdk.exception.ChaincodeEndorsementPolicyParseException;
@@ -58,6 +78,7 @@ import org.hyperledger.fabric_ca.sdk.RegistrationRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.protobuf.ByteString;
 import com.impetus.blkch.BlkchnException;
 import com.impetus.blkch.sql.DataFrame;
 import com.impetus.blkch.sql.function.Endorsers;
@@ -67,6 +88,8 @@ import com.impetus.fabric.model.HyperUser;
 import com.impetus.fabric.model.Org;
 import com.impetus.fabric.model.PeerInfo;
 import com.impetus.fabric.model.Store;
+import com.impetus.fabric.objects.BlockHeaderObject;
+import com.impetus.fabric.query.HedgedRequestExecutor.PeerRequest;
 
 /**
  *
@@ -74,9 +97,12 @@ import com.impetus.fabric.model.Store;
  * recreate channel, install chaincode, instantiate chaincode, invoke chaincode,
  * query chaincode
  *
+ * An instance is shared by all the statements of a connection, and by all the tasks
+ * of a Spark executor, so everything that mutates its org or client is synchronized.
+ *
  */
 
-@NotThreadSafe
+@ThreadSafe
 public class QueryBlock {
 
     private static final Logger logger = LoggerFactory.getLogger(QueryBlock.class);
@@ -102,9 +128,36 @@ public class QueryBlock {
     private Org userOrg;
 
     private HFClient client = HFClient.createNewInstance();
+
+    private HedgedRequestExecutor hedgedExecutor;
+
+    private PeerHealthRegistry peerHealth;
+
+    private ForkJoinPool decodePool;
+
+    private final AtomicInteger nextPeer = new AtomicInteger();
+
+    private CallResultCache callResultCache;
+
+    private String callResultListener;
+
+    private final Map<String, Channel> endorsementChannels = new ConcurrentHashMap<>();
+
+    private ExecutorService invokePool;
+
+    private ScheduledExecutorService commitTimer;
+
+    private Map<Long, BlockHeaderObject> headerCache;
+
+    private final LedgerStatistics statistics = new LedgerStatistics();
+
+    // Channel-less peer instances used only for health probes
+    private final Map<String, Peer> probePeers = new ConcurrentHashMap<>();
     
     public QueryBlock(String configPath, String channel, String username, String secret) {
         conf = new Config(configPath);
+        hedgedExecutor = new HedgedRequestExecutor(conf);
+        peerHealth = new PeerHealthRegistry(conf);
         channelName = channel;
         adminName = conf.getAdmin();
         this.username = username;
@@ -135,16 +188,21 @@ public class QueryBlock {
     //Setting channel object for QueryBlock Object.
     public void setChannel() {
         this.channel = reconstructChannel();          
+        peerHealth.startProbing(peerInfo -> client.queryChannels(getProbePeer(peerInfo)));
     }
     
     public Channel getChannel() {
         return channel;          
     }
+
+    public HedgedRequestExecutor getHedgedRequestExecutor() {
+        return hedgedExecutor;
+    }
     
     /**
      * checking config at starting
      */
-    public void checkConfig() {
+    public synchronized void checkConfig() {
 
         userOrg = conf.getSampleOrg();
         if (counter == 0) {
@@ -418,36 +476,18 @@ public class QueryBlock {
 
             checkConfig();
 
-            ChaincodeID chaincodeID = ChaincodeID.newBuilder().setName(chaincodename).build();
             logger.info(String.format("[Channel Name:- %s, Chaincode Function:- %s, Chaincode Args:- %s]",
                     channel.getName(), chaincodeFunction, Arrays.asList(chaincodeArgs)));
             HFClient client = HFClient.createNewInstance();
             client.setCryptoSuite(CryptoSuite.Factory.getCryptoSuite());
             client.setUserContext(user);
-            TransactionProposalRequest transactionProposalRequest = client.newTransactionProposalRequest();
-            transactionProposalRequest.setChaincodeID(chaincodeID);
-            transactionProposalRequest.setFcn(chaincodeFunction);
-            transactionProposalRequest.setProposalWaitTime(conf.getProposalWaitTime());
-            transactionProposalRequest.setArgs(chaincodeArgs);
-
-            Map<String, byte[]> tm = new HashMap<>();
-            tm.put("HyperLedgerFabric", "TransactionProposalRequest:JavaSDK".getBytes(UTF_8));
-            tm.put("method", "TransactionProposalRequest".getBytes(UTF_8));
-            tm.put("result", ":)".getBytes(UTF_8));
-            transactionProposalRequest.setTransientMap(tm);
-            List<PeerInfo> peerInfos = conf.getChaincodePeers(chaincodename);
-            if(peerInfos == null) {
-                throw new BlkchnException("Endorsing peer information not provided for chaincode " + chaincodename);
-            }
-            List<Peer> peers = new ArrayList<>();
-            for(PeerInfo peerInfo : peerInfos) {
-                Peer peer = client.newPeer(peerInfo.getName(), peerInfo.getGrpcUrl(), peerInfo.getProperties());
-                peers.add(peer);
-            }
+            TransactionProposalRequest transactionProposalRequest = getTransactionProposalRequest(client,
+                    chaincodename, chaincodeFunction, chaincodeArgs);
+            List<Peer> peers = getAvailableEndorsers(chaincodename, getEndorsingPeers(client, chaincodename));
             Channel channel = reconstructChannel(peers,client);
             logger.info("sending transactionProposal to all peers with arguments");
 
-            responses = channel.sendTransactionProposal(transactionProposalRequest, peers);
+            responses = sendTransactionProposal(channel, transactionProposalRequest, peers);
             for (ProposalResponse response : responses) {
                 if (response.getStatus() == ProposalResponse.Status.SUCCESS) {
                     logger.info("Successful transaction proposal response Txid: " + response.getTransactionID()
@@ -497,7 +537,201 @@ public class QueryBlock {
         return new DataFrame(data, columns, new HashMap<>());
     }
 
+    /**
+     * Endorses and submits a chaincode invocation without waiting for it to commit.
+     * The endorsement channel of every chaincode is built once and reused, so this
+     * is what pipelined writers should call. The returned future completes with the
+     * transaction id once the transaction is committed, and exceptionally when an
+     * endorsement fails, the transaction is rejected or it isn't committed within the
+     * transaction wait time.
+     */
+    public CompletableFuture<String> invokeChaincodeAsync(String chaincodename, String chaincodeFunction,
+            String[] chaincodeArgs) {
+        CompletableFuture<BlockEvent.TransactionEvent> commit = CompletableFuture.supplyAsync(() -> {
+            try {
+                Channel endorsementChannel = getEndorsementChannel(chaincodename);
+                List<Peer> peers = getAvailableEndorsers(chaincodename, endorsementChannel.getPeers());
+                TransactionProposalRequest request = getTransactionProposalRequest(client, chaincodename,
+                        chaincodeFunction, chaincodeArgs);
+                Collection<ProposalResponse> responses = sendTransactionProposal(endorsementChannel, request, peers);
+                for (ProposalResponse response : responses) {
+                    if (response.getStatus() != ProposalResponse.Status.SUCCESS) {
+                        throw new BlkchnException(String.format("Endorsement failed on peer %s: %s",
+                                response.getPeer().getName(), response.getMessage()));
+                    }
+                }
+                return endorsementChannel.sendTransaction(responses);
+            } catch (ProposalException | InvalidArgumentException e) {
+                throw new BlkchnException("Error endorsing invocation of chaincode " + chaincodename, e);
+            }
+        }, getInvokePool()).thenCompose(Function.identity());
+        return awaitCommit(commit, conf.getTransactionWaitTime(), getCommitTimer());
+    }
+
+    /**
+     * Transaction id of a committed transaction. Completes exceptionally when no commit
+     * event arrives within the wait time or the event is missing, so callers throttling
+     * on the returned future never wait on a lost event.
+     */
+    static CompletableFuture<String> awaitCommit(CompletableFuture<BlockEvent.TransactionEvent> commit,
+            long waitTime, ScheduledExecutorService timer) {
+        CompletableFuture<String> result = new CompletableFuture<>();
+        ScheduledFuture<?> timeout = timer.schedule(() -> result.completeExceptionally(new BlkchnException(
+                "Transaction wasn't committed within " + waitTime + " ms")), waitTime, TimeUnit.MILLISECONDS);
+        commit.whenComplete((event, error) -> {
+            timeout.cancel(false);
+            if (error != null) {
+                result.completeExceptionally(error);
+            } else if (event == null) {
+                result.completeExceptionally(new BlkchnException("No commit event received for transaction"));
+            } else {
+                result.complete(event.getTransactionID());
+            }
+        });
+        return result;
+    }
+
+    private synchronized ScheduledExecutorService getCommitTimer() {
+        if (commitTimer == null) {
+            commitTimer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "fabric-commit-timer");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return commitTimer;
+    }
+
+    private Channel getEndorsementChannel(String chaincodename) {
+        // A client holds one channel per name, so every endorsement channel gets its own client
+        return endorsementChannels.computeIfAbsent(chaincodename, name -> {
+            try {
+                HFClient endorsementClient = HFClient.createNewInstance();
+                endorsementClient.setCryptoSuite(CryptoSuite.Factory.getCryptoSuite());
+                endorsementClient.setUserContext(user);
+                return reconstructChannel(getEndorsingPeers(endorsementClient, name), endorsementClient);
+            } catch (BlkchnException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new BlkchnException("Error creating endorsement channel for chaincode " + name, e);
+            }
+        });
+    }
+
+    /**
+     * Pool of daemon threads for requests which mostly wait on the network.
+     */
+    public synchronized ExecutorService getInvokePool() {
+        if (invokePool == null) {
+            invokePool = Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "fabric-invoke");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return invokePool;
+    }
+
+    private TransactionProposalRequest getTransactionProposalRequest(HFClient client, String chaincodename,
+            String chaincodeFunction, String[] chaincodeArgs) throws InvalidArgumentException {
+        ChaincodeID chaincodeID = ChaincodeID.newBuilder().setName(chaincodename).build();
+        TransactionProposalRequest transactionProposalRequest = client.newTransactionProposalRequest();
+        transactionProposalRequest.setChaincodeID(chaincodeID);
+        transactionProposalRequest.setFcn(chaincodeFunction);
+        transactionProposalRequest.setProposalWaitTime(conf.getProposalWaitTime());
+        transactionProposalRequest.setArgs(chaincodeArgs);
+
+        Map<String, byte[]> tm = new HashMap<>();
+        tm.put("HyperLedgerFabric", "TransactionProposalRequest:JavaSDK".getBytes(UTF_8));
+        tm.put("method", "TransactionProposalRequest".getBytes(UTF_8));
+        tm.put("result", ":)".getBytes(UTF_8));
+        transactionProposalRequest.setTransientMap(tm);
+        return transactionProposalRequest;
+    }
+
+    private List<Peer> getEndorsingPeers(HFClient client, String chaincodename) throws InvalidArgumentException {
+        List<PeerInfo> peerInfos = conf.getChaincodePeers(chaincodename);
+        if(peerInfos == null) {
+            throw new BlkchnException("Endorsing peer information not provided for chaincode " + chaincodename);
+        }
+        List<Peer> configuredPeers = new ArrayList<>();
+        for(PeerInfo peerInfo : peerInfos) {
+            Peer peer = client.newPeer(peerInfo.getName(), peerInfo.getGrpcUrl(), peerInfo.getProperties());
+            configuredPeers.add(peer);
+        }
+        return configuredPeers;
+    }
+
+    private List<Peer> getAvailableEndorsers(String chaincodename, Collection<Peer> configuredPeers) {
+        List<Peer> peers = peerHealth.getAvailablePeers(configuredPeers);
+        if(peers.isEmpty()) {
+            throw new BlkchnException("All endorsing peers for chaincode " + chaincodename + " are unavailable: "
+                    + peerHealth.getPeerHealth().values());
+        }
+        return peers;
+    }
+
+    private Collection<ProposalResponse> sendTransactionProposal(Channel channel, TransactionProposalRequest request,
+            List<Peer> peers) throws ProposalException, InvalidArgumentException {
+        long start = System.currentTimeMillis();
+        Collection<ProposalResponse> responses = channel.sendTransactionProposal(request, peers);
+        long latency = System.currentTimeMillis() - start;
+        for (ProposalResponse response : responses) {
+            if (isUnreachable(response)) {
+                peerHealth.recordFailure(response.getPeer(), new ProposalException(response.getMessage()));
+            } else {
+                peerHealth.recordSuccess(response.getPeer(), latency);
+            }
+        }
+        return responses;
+    }
+
+    /*
+     * A response without a proposal response body means the peer itself could not be
+     * reached, the SDK returns it rather than throwing
+     */
+    private static boolean isUnreachable(ProposalResponse response) {
+        return response.getStatus() != ProposalResponse.Status.SUCCESS && response.getProposalResponse() == null;
+    }
+
+    /*
+     * Chaincode query on one peer, failing when the peer could not be reached so
+     * that health tracking, fail over and hedging see it as a failure
+     */
+    private Collection<ProposalResponse> queryByChaincode(QueryByChaincodeRequest request, Peer peer)
+            throws ProposalException, InvalidArgumentException {
+        Collection<ProposalResponse> responses = channel.queryByChaincode(request, Collections.singletonList(peer));
+        for (ProposalResponse response : responses) {
+            if (isUnreachable(response)) {
+                throw new ProposalException("Peer " + peer.getName() + " failed: " + response.getMessage());
+            }
+        }
+        return responses;
+    }
+
     public String queryChaincode(String chaincodename, String chaincodeFunction, String[] chaincodeArgs) {
+        return queryChaincodePayload(chaincodename, chaincodeFunction, chaincodeArgs).toStringUtf8();
+    }
+
+    /**
+     * Returns the payload of the chaincode response as received, without decoding it.
+     * The query is not sent to every peer of the channel: it goes to one available
+     * peer, failing over to the next, unless config.query.readConsistency asks for more.
+     */
+    public ByteString queryChaincodePayload(String chaincodename, String chaincodeFunction, String[] chaincodeArgs) {
+        return getPayload(queryChaincodeResponse(chaincodename, chaincodeFunction, chaincodeArgs));
+    }
+
+    public static ByteString getPayload(ProposalResponse response) {
+        return response.getProposalResponse().getResponse().getPayload();
+    }
+
+    /**
+     * Returns the successful response of the chaincode query, which tells the peer
+     * that answered it. See {@link #queryChaincodePayload}.
+     */
+    public ProposalResponse queryChaincodeResponse(String chaincodename, String chaincodeFunction,
+            String[] chaincodeArgs) {
         try {
             checkConfig();
 
@@ -516,8 +750,8 @@ public class QueryBlock {
             tm2.put("method", "QueryByChaincodeRequest".getBytes(UTF_8));
             queryByChaincodeRequest.setTransientMap(tm2);
             logger.debug("Chaincode request args:- " + queryByChaincodeRequest.getArgs().toString());
-            Collection<ProposalResponse> queryProposals = channel.queryByChaincode(queryByChaincodeRequest,
-                    channel.getPeers());
+            Collection<ProposalResponse> queryProposals = queryChaincodePeers(
+                    peer -> queryByChaincode(queryByChaincodeRequest, peer));
 
             for (ProposalResponse proposalResponse : queryProposals) {
                 if (!proposalResponse.isVerified() || proposalResponse.getStatus() != ProposalResponse.Status.SUCCESS) {
@@ -527,13 +761,13 @@ public class QueryBlock {
                     logger.debug(errorMsg);
                     throw new BlkchnException(errorMsg);
                 } else {
-                    return proposalResponse.getProposalResponse().getResponse().getPayload().toStringUtf8();
+                    return proposalResponse;
                 }
 
             }
 
         } catch (Exception e) {
-            logger.error("QueryBlock | queryChaincode | " + e.getMessage());
+            logger.error("QueryBlock | queryChaincodeResponse | " + e.getMessage());
             throw new BlkchnException(e);
         }
         throw new BlkchnException("Caught an exception while quering chaincode");
@@ -607,9 +841,299 @@ public class QueryBlock {
         }
     }
     
+    public BlockInfo queryBlockByNumber(long blockNumber) throws ProposalException, InvalidArgumentException {
+        return queryPeers(peer -> channel.queryBlockByNumber(peer, blockNumber));
+    }
+
+    /**
+     * Header fields of the block, from the header cache when the block was read before.
+     * Peers only serve whole blocks, so a miss still fetches the block with all its
+     * envelopes, but only the header is kept.
+     */
+    public BlockHeaderObject getBlockHeader(long blockNumber) throws ProposalException, InvalidArgumentException {
+        BlockHeaderObject header = getHeaderCache().get(blockNumber);
+        return header != null ? header : cacheBlockHeader(queryBlockByNumber(blockNumber));
+    }
+
+    /**
+     * Puts the header of a block read by other means into the header cache.
+     */
+    public BlockHeaderObject cacheBlockHeader(BlockInfo blockInfo) {
+        BlockHeaderObject header = new BlockHeaderObject(blockInfo);
+        getHeaderCache().put(header.getBlockNo(), header);
+        statistics.recordRowCount(FabricTables.BLOCK, header.getBlockNo(), 1);
+        statistics.recordRowCount(FabricTables.TRANSACTION, header.getBlockNo(), header.getEnvelopeCount());
+        return header;
+    }
+
+    /*
+     * Committed blocks never change, so cached headers are only evicted for space,
+     * least recently used first.
+     */
+    private synchronized Map<Long, BlockHeaderObject> getHeaderCache() {
+        if (headerCache == null) {
+            int maxSize = conf.getHeaderCacheSize();
+            headerCache = Collections.synchronizedMap(new LinkedHashMap<Long, BlockHeaderObject>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, BlockHeaderObject> eldest) {
+                    return size() > maxSize;
+                }
+            });
+        }
+        return headerCache;
+    }
+
+    public BlockInfo queryBlockByHash(byte[] blockHash) throws ProposalException, InvalidArgumentException {
+        return queryPeers(peer -> channel.queryBlockByHash(peer, blockHash));
+    }
+
+    public BlockInfo queryBlockByTransactionID(String txId) throws ProposalException, InvalidArgumentException {
+        return queryPeers(peer -> channel.queryBlockByTransactionID(peer, txId));
+    }
+
+    public TransactionInfo queryTransactionByID(String txId) throws ProposalException, InvalidArgumentException {
+        return queryPeers(peer -> channel.queryTransactionByID(peer, txId));
+    }
+
+    public BlockchainInfo queryBlockchainInfo() throws ProposalException, InvalidArgumentException {
+        return queryPeers(peer -> channel.queryBlockchainInfo(peer));
+    }
+
+    /**
+     * Sends a chaincode query to the peers config.query.readConsistency asks for.
+     * Answers are compared by status and payload for a quorum.
+     */
+    private Collection<ProposalResponse> queryChaincodePeers(PeerRequest<Collection<ProposalResponse>> request)
+            throws ProposalException, InvalidArgumentException {
+        ReadConsistency consistency = conf.getReadConsistency();
+        if (consistency == ReadConsistency.SINGLE) {
+            return queryPeers(request);
+        }
+        return ManagedPeerRequest.run(() -> queryConcurrently(consistency, request));
+    }
+
+    private Collection<ProposalResponse> queryConcurrently(ReadConsistency consistency,
+            PeerRequest<Collection<ProposalResponse>> request) throws ProposalException, InvalidArgumentException {
+        List<Peer> peers = getAvailablePeers();
+        // A quorum is a majority of all the peers, peers with an open circuit don't lower it
+        int peerCount = channel.getPeers().size();
+        int quorum = consistency == ReadConsistency.QUORUM ? peerCount / 2 + 1 : 1;
+        if (peers.size() < quorum) {
+            throw new BlkchnException(String.format("Only %d of %d peers of channel %s are available, %d needed",
+                    peers.size(), peerCount, channelName, quorum));
+        }
+        CompletionService<Collection<ProposalResponse>> completion = new ExecutorCompletionService<>(getInvokePool());
+        List<Future<Collection<ProposalResponse>>> futures = new ArrayList<>();
+        for (Peer peer : peers) {
+            futures.add(completion.submit(() -> peerHealth.track(peer, request)));
+        }
+        Map<List<Object>, Integer> votes = new HashMap<>();
+        Throwable lastError = null;
+        try {
+            for (int i = 0; i < peers.size(); i++) {
+                try {
+                    Collection<ProposalResponse> responses = completion.take().get();
+                    if (votes.merge(getResultKey(responses), 1, Integer::sum) >= quorum) {
+                        return responses;
+                    }
+                } catch (ExecutionException e) {
+                    logger.warn("QueryBlock | queryConcurrently | " + e.getCause().getMessage());
+                    lastError = e.getCause();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BlkchnException("Interrupted while waiting for peer responses", e);
+        } finally {
+            for (Future<Collection<ProposalResponse>> future : futures) {
+                future.cancel(true);
+            }
+        }
+        if (consistency == ReadConsistency.QUORUM && votes.size() > 1) {
+            throw new BlkchnException(String.format(
+                    "Peers of channel %s returned %d different results, no %d of %d agree", channelName,
+                    votes.size(), quorum, peerCount));
+        }
+        if (votes.isEmpty() && lastError instanceof ProposalException) {
+            throw (ProposalException) lastError;
+        }
+        throw new BlkchnException(String.format("Only %d of %d peers of channel %s answered the query, %d needed",
+                votes.values().stream().mapToInt(Integer::intValue).sum(), peerCount, channelName, quorum), lastError);
+    }
+
+    private static List<Object> getResultKey(Collection<ProposalResponse> responses) {
+        List<Object> key = new ArrayList<>();
+        for (ProposalResponse response : responses) {
+            key.add(response.getStatus());
+            key.add(response.getProposalResponse() == null ? null
+                    : response.getProposalResponse().getResponse().getPayload());
+        }
+        return key;
+    }
+
+    private List<Peer> getAvailablePeers() throws InvalidArgumentException {
+        Collection<Peer> channelPeers = channel.getPeers();
+        if (channelPeers.isEmpty()) {
+            throw new InvalidArgumentException("Channel " + channelName + " does not have any peers");
+        }
+        List<Peer> peers = peerHealth.getAvailablePeers(channelPeers);
+        if (peers.isEmpty()) {
+            String errMsg = "All peers of channel " + channelName + " are unavailable: "
+                    + peerHealth.getPeerHealth().values();
+            logger.error(errMsg);
+            throw new BlkchnException(errMsg);
+        }
+        return peers;
+    }
+
+    /**
+     * Sends a read-only request to one available peer of the channel, failing over
+     * to the next one when a peer errors out. Peers with an open circuit are skipped.
+     */
+    private <T> T queryPeers(PeerRequest<T> request) throws ProposalException, InvalidArgumentException {
+        return ManagedPeerRequest.run(() -> queryAvailablePeers(request));
+    }
+
+    private <T> T queryAvailablePeers(PeerRequest<T> request) throws ProposalException, InvalidArgumentException {
+        List<Peer> peers = getAvailablePeers();
+        PeerRequest<T> trackedRequest = peer -> peerHealth.track(peer, request);
+        if (hedgedExecutor.isEnabled() && peers.size() > 1) {
+            return hedgedExecutor.execute(peers, trackedRequest);
+        }
+        // Requests start at each peer in turn, so that reads are spread over the peers
+        int start = Math.floorMod(nextPeer.getAndIncrement(), peers.size());
+        ProposalException lastError = null;
+        for (int i = 0; i < peers.size(); i++) {
+            Peer peer = peers.get((start + i) % peers.size());
+            try {
+                return trackedRequest.apply(peer);
+            } catch (ProposalException e) {
+                logger.warn("QueryBlock | queryAvailablePeers | Peer " + peer.getName() + " failed: " + e.getMessage());
+                lastError = e;
+            }
+        }
+        throw lastError;
+    }
+
+    /**
+     * Cache of CALL results, kept current by a block listener on the channel. Null
+     * when config.call.resultCacheSize or config.call.resultCacheTtl is not
+     * positive, or when the channel has no event source the listener would be fed
+     * by.
+     */
+    public synchronized CallResultCache getCallResultCache() {
+        if (callResultCache == null && callResultListener == null && conf.getCallResultCacheSize() > 0
+                && conf.getCallResultCacheTtl() > 0) {
+            // A listener registers even without event sources, it would just never hear of a block
+            if (channel.getEventHubs().isEmpty()
+                    && channel.getPeers(EnumSet.of(Peer.PeerRole.EVENT_SOURCE)).isEmpty()) {
+                logger.warn("QueryBlock | getCallResultCache | Channel " + channelName
+                        + " has no event hub or eventing peer, CALL results are not cached");
+                callResultListener = "";
+                return null;
+            }
+            CallResultCache cache = new CallResultCache(conf.getCallResultCacheSize(),
+                    conf.isCallResultCacheByNamespace(), conf.getCallResultCacheTtl());
+            try {
+                callResultListener = channel.registerBlockListener(cache);
+                callResultCache = cache;
+            } catch (InvalidArgumentException | RuntimeException e) {
+                logger.warn("QueryBlock | getCallResultCache | Block events unavailable, CALL results are not cached: "
+                        + e.getMessage());
+                callResultListener = "";
+            }
+        }
+        return callResultCache;
+    }
+
+    /**
+     * Work stealing pool on which fetched blocks are decoded into rows, sized by
+     * config.decode.parallelism.
+     */
+    public synchronized ForkJoinPool getDecodePool() {
+        if (decodePool == null) {
+            decodePool = new ForkJoinPool(conf.getDecodeParallelism());
+        }
+        return decodePool;
+    }
+
+    /**
+     * Number of transactions in each of the given blocks, fetched in parallel on the
+     * decode pool. Used to weigh block ranges when splitting them into partitions.
+     */
+    public Map<Long, Integer> getEnvelopeCounts(Collection<Long> blockNumbers) {
+        try {
+            return getDecodePool().submit(() -> blockNumbers.parallelStream().distinct()
+                    .collect(Collectors.toMap(Function.identity(), this::getEnvelopeCount))).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BlkchnException("Interrupted while querying envelope counts", e);
+        } catch (ExecutionException e) {
+            throw new BlkchnException("Error querying envelope counts", e.getCause());
+        }
+    }
+
+    private Integer getEnvelopeCount(long blockNo) {
+        try {
+            return getBlockHeader(blockNo).getEnvelopeCount();
+        } catch (ProposalException | InvalidArgumentException e) {
+            throw new BlkchnException("Error query block by number " + blockNo, e);
+        }
+    }
+
+    /**
+     * Stops the background threads and closes the channels of this instance, which
+     * can't be used afterwards.
+     */
+    public synchronized void shutdown() {
+        peerHealth.shutdown();
+        if (decodePool != null) {
+            decodePool.shutdown();
+        }
+        if (invokePool != null) {
+            invokePool.shutdown();
+        }
+        if (commitTimer != null) {
+            commitTimer.shutdown();
+        }
+        if (callResultCache != null && channel != null) {
+            try {
+                channel.unregisterBlockListener(callResultListener);
+            } catch (InvalidArgumentException e) {
+                logger.warn("QueryBlock | shutdown | " + e.getMessage());
+            }
+        }
+        for (Channel endorsementChannel : endorsementChannels.values()) {
+            endorsementChannel.shutdown(true);
+        }
+        endorsementChannels.clear();
+        if (channel != null) {
+            channel.shutdown(true);
+        }
+    }
+
+    public Map<String, PeerHealth> getPeerHealth() {
+        return peerHealth.getPeerHealth();
+    }
+
+    public LedgerStatistics getStatistics() {
+        return statistics;
+    }
+
+    private Peer getProbePeer(PeerInfo peerInfo) throws InvalidArgumentException {
+        Peer peer = probePeers.get(peerInfo.getName());
+        if (peer == null) {
+            peer = client.newPeer(peerInfo.getName(), peerInfo.getGrpcUrl(), peerInfo.getProperties());
+            probePeers.put(peerInfo.getName(), peer);
+        }
+        return peer;
+    }
+
     public Long getChannelHeight() {
         try {
-            return getChannel().queryBlockchainInfo().getHeight();
+            return queryBlockchainInfo().getHeight();
         } catch (ProposalException | InvalidArgumentException e) {
             String errMsg = "Error Querying height of channel ledger";
             logger.error(errMsg, e);
@@ -0,0 +1,32 @@
+/*******************************************************************************
+ * * Copyright 2018 Impetus Infotech.
+ * *
+ * * Licensed under the Apache License, Version 2.0 (the "License");
+ * * you may not use this file except in compliance with the License.
+ * * You may obtain a copy of the License at
+ * *
+ * * http://www.apache.org/licenses/LICENSE-2.0
+ * *
+ * * Unless required by applicable law or agreed to in writing, software
+ * * distributed under the License is distributed on an "AS IS" BASIS,
+ * * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * * See the License for the specific language governing permissions and
+ * * limitations under the License.
+ ******************************************************************************/
+
+package com.impetus.fabric.query;
+
+/**
+ * How many peers a chaincode query is sent to, set by config.query.readConsistency.
+ */
+public enum ReadConsistency {
+
+    /** One peer, taken in turn from the available peers, the next one on failure */
+    SINGLE,
+
+    /** All available peers, the first answer wins */
+    FIRST_RESPONSE,
+
+    /** All available peers, a majority of them has to return the same result */
+    QUORUM
+}
@@ -0,0 +1,99 @@
+/*******************************************************************************
+ * * Copyright 2018 Impetus Infotech.
+ * *
+ * * Licensed under the Apache License, Version 2.0 (the "License");
+ * * you may not use this file except in compliance with the License.
+ * * You may obtain a copy of the License at
+ * *
+ * * http://www.apache.org/licenses/LICENSE-2.0
+ * *
+ * * Unless required by applicable law or agreed to in writing, software
+ * * distributed under the License is distributed on an "AS IS" BASIS,
+ * * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * * See the License for the specific language governing permissions and
+ * * limitations under the License.
+ ******************************************************************************/
+
+package com.impetus.fabric.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.impetus.blkch.sql.DataFrame;
+
+public class FabricResultSetTest {
+
+    private static final String[] COLUMNS = { "count", "price", "flag", "time", "name" };
+
+    @Test
+    public void testTypedValuesAreReturnedAsTheyAre() throws SQLException {
+        BigDecimal price = new BigDecimal("12.50");
+        Timestamp time = new Timestamp(1514764800000l);
+        FabricResultSet resultSet = resultSet(Arrays.asList(42, price, true, time, "a"));
+        assertTrue(resultSet.next());
+        assertEquals(42, resultSet.getInt(1));
+        assertEquals(42l, resultSet.getLong("count"));
+        assertEquals(42.0, resultSet.getDouble(1), 0.0);
+        assertEquals((short) 42, resultSet.getShort(1));
+        assertSame(price, resultSet.getBigDecimal("price"));
+        assertEquals(12.5f, resultSet.getFloat(2), 0.0f);
+        assertTrue(resultSet.getBoolean("flag"));
+        assertSame(time, resultSet.getTimestamp("time"));
+        assertEquals(time.getTime(), resultSet.getDate(4).getTime());
+        assertEquals("a", resultSet.getString("name"));
+        assertFalse(resultSet.next());
+    }
+
+    @Test
+    public void testTextValuesAreParsed() throws SQLException {
+        FabricResultSet resultSet = resultSet(Arrays.asList("42", "12.50", "true", "2018-01-01 10:15:30", 7));
+        assertTrue(resultSet.next());
+        assertEquals(42, resultSet.getInt(1));
+        assertEquals(42l, resultSet.getLong(1));
+        assertEquals(new BigDecimal("12.50"), resultSet.getBigDecimal(2));
+        assertTrue(resultSet.getBoolean(3));
+        assertEquals(Timestamp.valueOf("2018-01-01 10:15:30"), resultSet.getTimestamp(4));
+        assertEquals("7", resultSet.getString(5));
+        // Epoch milliseconds
+        assertEquals(new Timestamp(7), resultSet.getTimestamp(5));
+    }
+
+    @Test
+    public void testNullValues() throws SQLException {
+        FabricResultSet resultSet = resultSet(Arrays.asList(null, null, null, null, null));
+        assertTrue(resultSet.next());
+        assertEquals(0, resultSet.getInt(1));
+        assertEquals(0l, resultSet.getLong(1));
+        assertEquals(0.0, resultSet.getDouble(1), 0.0);
+        assertFalse(resultSet.getBoolean(3));
+        assertNull(resultSet.getTimestamp(4));
+        assertNull(resultSet.getString(5));
+        assertNull(resultSet.getClob(5));
+    }
+
+    @Test(expected = SQLException.class)
+    public void testInvalidTimestampText() throws SQLException {
+        FabricResultSet resultSet = resultSet(Arrays.asList(1, 1, true, "01/01/2018", "a"));
+        resultSet.next();
+        resultSet.getTimestamp(4);
+    }
+
+    private static FabricResultSet resultSet(List<Object> row) {
+        List<List<Object>> data = new ArrayList<>();
+        data.add(new ArrayList<>(row));
+        return new FabricResultSet(null, new DataFrame(data, COLUMNS, new HashMap<>()), "asset");
+    }
+}
@@ -16,6 +16,8 @@
 package com.impetus.fabric.jdbc;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.mock;
@@ -25,7 +27,12 @@ import java.io.File;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
 import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
 
 import org.hyperledger.fabric.sdk.Channel;
 import org.hyperledger.fabric.sdk.HFClient;
@@ -38,6 +45,7 @@ import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 
 import com.impetus.blkch.jdbc.BlkchnStatement;
+import com.impetus.blkch.sql.DataFrame;
 import com.impetus.fabric.model.HyperUser;
 import com.impetus.fabric.model.Store;
 
@@ -133,4 +141,54 @@ public class FabricStatementTest {
         int arrayElementType = stat.getArrayElementType("transaction_action", "chaincode_args");
         assertEquals(Types.VARCHAR, arrayElementType);
     }
+
+    @Test
+    public void testUnionReordersColumns() throws SQLException {
+        DataFrame first = dataframe(Arrays.asList("id", "owner"), Arrays.asList(1, "a"));
+        DataFrame second = dataframe(Arrays.asList("owner", "id"), Arrays.asList("b", 2));
+        DataFrame union = FabricStatement.union(Arrays.asList(first, second), false);
+        assertEquals(Arrays.asList("id", "owner"), union.getColumns());
+        assertEquals(Arrays.asList(Arrays.asList(1, "a"), Arrays.asList(2, "b")), union.getData());
+    }
+
+    @Test
+    public void testUnionDistinct() throws SQLException {
+        DataFrame first = dataframe(Arrays.asList("id", "owner"), Arrays.asList(1, "a"), Arrays.asList(2, "b"));
+        DataFrame second = dataframe(Arrays.asList("owner", "id"), Arrays.asList("a", 1), Arrays.asList("c", 3));
+        assertEquals(4, FabricStatement.union(Arrays.asList(first, second), false).getData().size());
+        assertEquals(Arrays.asList(Arrays.asList(1, "a"), Arrays.asList(2, "b"), Arrays.asList(3, "c")),
+                FabricStatement.union(Arrays.asList(first, second), true).getData());
+    }
+
+    @Test
+    public void testUnionSkipsEmptyUntypedResults() throws SQLException {
+        // A call without asset which returned no records has no columns
+        DataFrame empty = dataframe(new ArrayList<String>());
+        DataFrame first = dataframe(Arrays.asList("id"), Arrays.asList(1));
+        DataFrame union = FabricStatement.union(Arrays.asList(empty, first, empty), false);
+        assertEquals(Arrays.asList("id"), union.getColumns());
+        assertEquals(1, union.getData().size());
+        assertTrue(FabricStatement.union(Arrays.asList(empty, empty), true).getColumns().isEmpty());
+    }
+
+    @Test
+    public void testUnionOfDifferentColumns() {
+        DataFrame first = dataframe(Arrays.asList("id", "owner"), Arrays.asList(1, "a"));
+        DataFrame second = dataframe(Arrays.asList("id", "value"), Arrays.asList(2, "b"));
+        try {
+            FabricStatement.union(Arrays.asList(first, second), false);
+            fail("Union of different columns");
+        } catch (SQLException e) {
+            assertEquals("CALL statements return different columns [id, owner] and [id, value]", e.getMessage());
+        }
+    }
+
+    @SafeVarargs
+    private static DataFrame dataframe(List<String> columns, List<Object>... rows) {
+        List<List<Object>> data = new ArrayList<>();
+        for (List<Object> row : rows) {
+            data.add(new ArrayList<>(row));
+        }
+        return new DataFrame(data, columns, new HashMap<>());
+    }
 }
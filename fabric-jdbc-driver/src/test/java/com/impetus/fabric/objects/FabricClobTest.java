@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * * Copyright 2018 Impetus Infotech.
+ * *
+ * * Licensed under the Apache License, Version 2.0 (the "License");
+ * * you may not use this file except in compliance with the License.
+ * * You may obtain a copy of the License at
+ * *
+ * * http://www.apache.org/licenses/LICENSE-2.0
+ * *
+ * * Unless required by applicable law or agreed to in writing, software
+ * * distributed under the License is distributed on an "AS IS" BASIS,
+ * * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * * See the License for the specific language governing permissions and
+ * * limitations under the License.
+ ******************************************************************************/
+
+package com.impetus.fabric.objects;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+
+import org.junit.Test;
+
+public class FabricClobTest {
+
+    @Test
+    public void testLengthCountsPrintableCharacters() throws SQLException {
+        assertEquals(5, clob("hello").length());
+        assertEquals(5, clob("he\nl\tlo\u00e9").length());
+        assertEquals(0, clob("").length());
+    }
+
+    @Test
+    public void testGetSubStringOffsets() throws SQLException {
+        FabricClob clob = clob("a\nbcdef");
+        assertEquals("abcdef", clob.getSubString(1, 100));
+        assertEquals("bcd", clob.getSubString(2, 3));
+        assertEquals("f", clob.getSubString(6, 1));
+        assertEquals("", clob.getSubString(7, 1));
+        assertEquals("", clob.getSubString(1, 0));
+        assertEquals("abcdef", clob.toString());
+        try {
+            clob.getSubString(0, 1);
+            fail("Position 0 accepted");
+        } catch (SQLException e) {
+            assertEquals("Invalid position 0 or length 1", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testStreams() throws SQLException, IOException {
+        FabricClob clob = clob("ab\u0001cd");
+        InputStream in = clob.getAsciiStream();
+        StringBuilder ascii = new StringBuilder();
+        int b;
+        while ((b = in.read()) >= 0) {
+            ascii.append((char) b);
+        }
+        assertEquals("abcd", ascii.toString());
+        // Each stream reads from the start
+        assertEquals("abcd", read(clob.getCharacterStream()));
+        assertEquals("bc", read(clob.getCharacterStream(2, 2)));
+        assertEquals(1, clob.position("bc", 1) - 1);
+        assertEquals(-1, clob.position("x", 1));
+    }
+
+    @Test
+    public void testFree() throws SQLException {
+        FabricClob clob = clob("abc");
+        clob.free();
+        try {
+            clob.length();
+            fail("Freed clob read");
+        } catch (SQLException e) {
+            assertEquals("Clob has been freed", e.getMessage());
+        }
+        assertEquals("", clob.toString());
+    }
+
+    private static FabricClob clob(String text) {
+        return new FabricClob(ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static String read(Reader reader) throws IOException {
+        StringBuilder text = new StringBuilder();
+        char[] buffer = new char[3];
+        int count;
+        while ((count = reader.read(buffer, 0, buffer.length)) >= 0) {
+            text.append(buffer, 0, count);
+        }
+        return text.toString();
+    }
+}
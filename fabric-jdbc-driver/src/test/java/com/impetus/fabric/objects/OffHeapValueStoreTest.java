@@ -0,0 +1,71 @@
+/*******************************************************************************
+ * * Copyright 2018 Impetus Infotech.
+ * *
+ * * Licensed under the Apache License, Version 2.0 (the "License");
+ * * you may not use this file except in compliance with the License.
+ * * You may obtain a copy of the License at
+ * *
+ * * http://www.apache.org/licenses/LICENSE-2.0
+ * *
+ * * Unless required by applicable law or agreed to in writing, software
+ * * distributed under the License is distributed on an "AS IS" BASIS,
+ * * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * * See the License for the specific language governing permissions and
+ * * limitations under the License.
+ ******************************************************************************/
+
+package com.impetus.fabric.objects;
+
+import static org.junit.Assert.assertEquals;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.protobuf.ByteString;
+
+public class OffHeapValueStoreTest {
+
+    private static final int MB = 1024 * 1024;
+
+    @Test
+    public void testValuesOfOneChunkDontOverlap() throws SQLException {
+        OffHeapValueStore store = new OffHeapValueStore();
+        List<FabricClob> clobs = new ArrayList<>();
+        for (char c = 'a'; c <= 'e'; c++) {
+            clobs.add(store.store(ByteString.copyFromUtf8(c + "" + c + c)));
+        }
+        for (int i = 0; i < clobs.size(); i++) {
+            char c = (char) ('a' + i);
+            assertEquals(c + "" + c + c, clobs.get(i).toString());
+            assertEquals(3, clobs.get(i).length());
+        }
+    }
+
+    @Test
+    public void testValuesAcrossChunks() throws SQLException {
+        OffHeapValueStore store = new OffHeapValueStore();
+        List<FabricClob> clobs = new ArrayList<>();
+        // Four values fill a chunk, the fifth starts another, the last is too large for one
+        int[] sizes = { MB, MB, MB, MB - 1, 2, MB + 1 };
+        for (int size : sizes) {
+            clobs.add(store.store(value('a' + clobs.size(), size)));
+        }
+        for (int i = 0; i < sizes.length; i++) {
+            FabricClob clob = clobs.get(i);
+            assertEquals(sizes[i], clob.length());
+            char c = (char) ('a' + i);
+            assertEquals(c + "" + c, clob.getSubString(1, 2));
+            assertEquals(c + "" + c, clob.getSubString(sizes[i] - 1, 2));
+        }
+    }
+
+    private static ByteString value(int c, int size) {
+        byte[] bytes = new byte[size];
+        Arrays.fill(bytes, (byte) c);
+        return ByteString.copyFrom(bytes);
+    }
+}
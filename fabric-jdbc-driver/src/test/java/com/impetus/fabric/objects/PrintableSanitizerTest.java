@@ -0,0 +1,45 @@
+/*******************************************************************************
+ * * Copyright 2018 Impetus Infotech.
+ * *
+ * * Licensed under the Apache License, Version 2.0 (the "License");
+ * * you may not use this file except in compliance with the License.
+ * * You may obtain a copy of the License at
+ * *
+ * * http://www.apache.org/licenses/LICENSE-2.0
+ * *
+ * * Unless required by applicable law or agreed to in writing, software
+ * * distributed under the License is distributed on an "AS IS" BASIS,
+ * * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * * See the License for the specific language governing permissions and
+ * * limitations under the License.
+ ******************************************************************************/
+
+package com.impetus.fabric.objects;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import com.google.protobuf.ByteString;
+
+public class PrintableSanitizerTest {
+
+    private static final String[] VALUES = new String[] { "", "plain key", "\u0000asset\u00001\u0000",
+            "tab\tand\nnewline", "caf\u00e9 \u20ac5", "emoji \ud83d\ude00 end" };
+
+    @Test
+    public void testPrintableMatchesRegularExpression() {
+        for (String value : VALUES) {
+            ByteString bytes = ByteString.copyFromUtf8(value);
+            assertEquals(value.replaceAll("[^\\p{Print}]", ""), PrintableSanitizer.PRINTABLE.strip(bytes));
+            assertEquals(value.replaceAll("[^\\p{Print}]", "??"), PrintableSanitizer.PRINTABLE.replace(bytes, "??"));
+        }
+    }
+
+    @Test
+    public void testRawAndHexSkipSanitizing() {
+        ByteString bytes = ByteString.copyFrom(new byte[] { 0, 'a', (byte) 0xff });
+        assertEquals("0061ff", new PrintableSanitizer(PrintableSanitizer.Mode.HEX).strip(bytes));
+        assertEquals("\u0000a", new PrintableSanitizer(PrintableSanitizer.Mode.RAW).strip(bytes.substring(0, 2)));
+    }
+}
@@ -0,0 +1,117 @@
+/*******************************************************************************
+ * * Copyright 2018 Impetus Infotech.
+ * *
+ * * Licensed under the Apache License, Version 2.0 (the "License");
+ * * you may not use this file except in compliance with the License.
+ * * You may obtain a copy of the License at
+ * *
+ * * http://www.apache.org/licenses/LICENSE-2.0
+ * *
+ * * Unless required by applicable law or agreed to in writing, software
+ * * distributed under the License is distributed on an "AS IS" BASIS,
+ * * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * * See the License for the specific language governing permissions and
+ * * limitations under the License.
+ ******************************************************************************/
+
+package com.impetus.fabric.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.hyperledger.fabric.sdk.BlockchainInfo;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.impetus.blkch.sql.DataFrame;
+import com.impetus.blkch.sql.parser.LogicalPlan;
+import com.impetus.fabric.query.QueryBlock;
+
+public class AggregatePushdownTest {
+
+    private QueryBlock queryBlock;
+
+    @Before
+    public void setUp() throws Exception {
+        queryBlock = mock(QueryBlock.class);
+        BlockchainInfo blockchainInfo = mock(BlockchainInfo.class);
+        when(blockchainInfo.getHeight()).thenReturn(10l);
+        when(queryBlock.queryBlockchainInfo()).thenReturn(blockchainInfo);
+        Map<Long, Integer> envelopeCounts = new HashMap<>();
+        envelopeCounts.put(2l, 1);
+        envelopeCounts.put(3l, 2);
+        envelopeCounts.put(4l, 3);
+        when(queryBlock.getEnvelopeCounts(Arrays.asList(2l, 3l, 4l))).thenReturn(envelopeCounts);
+    }
+
+    @Test
+    public void testCountBlocks() {
+        assertEquals(Arrays.asList(4l), execute("select count(*) from block where block_no >= 2 and block_no <= 5"));
+        verify(queryBlock, never()).getEnvelopeCounts(anyCollectionOf(Long.class));
+    }
+
+    @Test
+    public void testCountIsClippedToLedgerHeight() {
+        // Blocks 8 and 9 exist in a ledger of height 10
+        assertEquals(Arrays.asList(2l), execute("select count(block_no) from block where block_no >= 8"));
+    }
+
+    @Test
+    public void testMinAndMaxBlock() {
+        assertEquals(Arrays.asList(3l, 9l),
+                execute("select min(block_no), max(block_no) from block where block_no >= 3"));
+    }
+
+    @Test
+    public void testSumTransactionCount() {
+        assertEquals(Arrays.asList(6l),
+                execute("select sum(transaction_count) from block where block_no >= 2 and block_no <= 4"));
+    }
+
+    @Test
+    public void testCountTransactions() {
+        assertEquals(Arrays.asList(6l),
+                execute("select count(*) from transaction where block_no >= 2 and block_no <= 4"));
+    }
+
+    @Test
+    public void testQueriesWhichCantBePushedDown() {
+        // No block_no range
+        assertNull(execute("select count(*) from block"));
+        assertNull(execute("select count(*) from transaction where transaction_id = 'tx1'"));
+        // Not every select item is a supported aggregate
+        assertNull(execute("select block_no from block where block_no >= 2"));
+        assertNull(execute("select count(*), block_no from block where block_no >= 2"));
+        assertNull(execute("select sum(block_no) from block where block_no >= 2"));
+        assertNull(execute("select count(transaction_id) from transaction where block_no >= 2"));
+        assertNull(execute("select sum(transaction_count) from transaction where block_no >= 2"));
+        // Grouping and tables without block level aggregates
+        assertNull(execute("select count(*) from block where block_no >= 2 group by channel_id"));
+        assertNull(execute("select count(*) from transaction_action where block_no >= 2"));
+        verify(queryBlock, never()).getEnvelopeCounts(anyCollectionOf(Long.class));
+    }
+
+    private List<Object> execute(String query) {
+        LogicalPlan logicalPlan = QueryExecutorTest.getLogicalPlan(query);
+        FabricPhysicalPlan physicalPlan = new FabricPhysicalPlan(logicalPlan);
+        if (physicalPlan.getWhereClause() != null) {
+            physicalPlan.getWhereClause().traverse();
+        }
+        DataFrame dataframe = new AggregatePushdown(logicalPlan, physicalPlan, queryBlock).execute();
+        if (dataframe == null) {
+            return null;
+        }
+        assertEquals(1, dataframe.getData().size());
+        return dataframe.getData().get(0);
+    }
+}
@@ -0,0 +1,260 @@
+/*******************************************************************************
+ * * Copyright 2018 Impetus Infotech.
+ * *
+ * * Licensed under the Apache License, Version 2.0 (the "License");
+ * * you may not use this file except in compliance with the License.
+ * * You may obtain a copy of the License at
+ * *
+ * * http://www.apache.org/licenses/LICENSE-2.0
+ * *
+ * * Unless required by applicable law or agreed to in writing, software
+ * * distributed under the License is distributed on an "AS IS" BASIS,
+ * * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * * See the License for the specific language governing permissions and
+ * * limitations under the License.
+ ******************************************************************************/
+
+package com.impetus.fabric.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.junit.Test;
+
+import com.impetus.blkch.BlkchnException;
+import com.impetus.fabric.parser.AssetSchema.ColumnType;
+import com.impetus.fabric.model.Config;
+
+public class AssetSchemaTest {
+
+    private static final AtomicInteger CONFIG_PATHS = new AtomicInteger();
+
+    @Test
+    public void testSchemaIsCachedWithinTtl() {
+        Config config = config(60000);
+        CountingSource source = new CountingSource("{\"storageType\": \"JSON\"}");
+        assertTrue(AssetSchema.getAssetSchema(config, "asset", source).isJSON());
+        assertTrue(AssetSchema.getAssetSchema(config, "asset", source).isJSON());
+        assertEquals(1, source.reads.get());
+        AssetSchema.getAssetSchema(config, "other", source);
+        assertEquals(2, source.reads.get());
+    }
+
+    @Test
+    public void testSchemaIsReadAgainAfterTtl() throws Exception {
+        Config config = config(50);
+        CountingSource source = new CountingSource("{\"storageType\": \"JSON\"}");
+        AssetSchema.getAssetSchema(config, "asset", source);
+        Thread.sleep(100);
+        AssetSchema.getAssetSchema(config, "asset", source);
+        assertEquals(2, source.reads.get());
+    }
+
+    @Test
+    public void testZeroTtlDisablesCache() {
+        Config config = config(0);
+        CountingSource source = new CountingSource("{\"storageType\": \"JSON\"}");
+        AssetSchema.getAssetSchema(config, "asset", source);
+        AssetSchema.getAssetSchema(config, "asset", source);
+        assertEquals(2, source.reads.get());
+    }
+
+    @Test
+    public void testInvalidationAfterCreateOrDropAsset() {
+        Config config = config(60000);
+        Config otherConfig = config(60000);
+        CountingSource source = new CountingSource("{\"storageType\": \"JSON\"}");
+        CountingSource otherSource = new CountingSource("{\"storageType\": \"JSON\"}");
+        AssetSchema.getAssetSchema(config, "asset", source);
+        AssetSchema.getAssetSchema(otherConfig, "asset", otherSource);
+        // What FabricStatement does after CREATE ASSET and DROP ASSET
+        AssetSchema.invalidateCache(config);
+        AssetSchema.getAssetSchema(config, "asset", source);
+        AssetSchema.getAssetSchema(otherConfig, "asset", otherSource);
+        assertEquals(2, source.reads.get());
+        // Schemas of other config paths are kept
+        assertEquals(1, otherSource.reads.get());
+    }
+
+    @Test
+    public void testRawFallbackIsNotCached() {
+        Config config = config(60000);
+        AtomicInteger reads = new AtomicInteger();
+        AssetSchema.SchemaSource failing = asset -> {
+            reads.incrementAndGet();
+            throw new SQLException("Database unavailable");
+        };
+        assertFalse(AssetSchema.getAssetSchema(config, "asset", failing).isJSON());
+        CountingSource source = new CountingSource("{\"storageType\": \"JSON\"}");
+        assertTrue(AssetSchema.getAssetSchema(config, "asset", source).isJSON());
+        assertEquals(1, reads.get());
+        assertEquals(1, source.reads.get());
+    }
+
+    @Test
+    public void testTopLevelObjectIsOneRecord() throws Exception {
+        List<JSONObject> records = parseRecords("{\"id\": 1, \"name\": \"a\"}");
+        assertEquals(1, records.size());
+        assertEquals(1l, records.get(0).get("id"));
+        assertEquals("a", records.get(0).get("name"));
+    }
+
+    @Test
+    public void testTopLevelArrayIsOneRecordPerElement() throws Exception {
+        List<JSONObject> records = parseRecords("[{\"id\": 1}, {\"id\": 2}, {\"id\": 3}]");
+        assertEquals(3, records.size());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(i + 1l, records.get(i).get("id"));
+        }
+        assertTrue(parseRecords("[]").isEmpty());
+    }
+
+    @Test
+    public void testNestedValuesAreKept() throws Exception {
+        List<JSONObject> records = parseRecords("[{\"id\": 1, \"owner\": {\"name\": \"a\", \"tags\": [\"x\", [1, 2]]}, "
+                + "\"empty\": {}}, {\"id\": 2, \"owner\": null}]");
+        assertEquals(2, records.size());
+        JSONObject owner = (JSONObject) records.get(0).get("owner");
+        assertEquals("a", owner.get("name"));
+        JSONArray tags = (JSONArray) owner.get("tags");
+        assertEquals("x", tags.get(0));
+        assertEquals(Arrays.asList(1l, 2l), tags.get(1));
+        assertTrue(((JSONObject) records.get(0).get("empty")).isEmpty());
+        // Keys of nested objects don't leak into the record
+        assertEquals(3, records.get(0).size());
+        assertTrue(records.get(1).containsKey("owner"));
+        assertEquals(null, records.get(1).get("owner"));
+    }
+
+    @Test
+    public void testNonObjectRecordsAreRejected() throws Exception {
+        assertRejected("5");
+        assertRejected("\"text\"");
+        assertRejected("[1, 2]");
+        assertRejected("[{\"id\": 1}, 2]");
+        assertRejected("[[{\"id\": 1}]]");
+    }
+
+    @Test
+    public void testHandlerIsReusable() throws Exception {
+        List<JSONObject> records = new ArrayList<>();
+        AssetSchema.RecordHandler handler = new AssetSchema.RecordHandler(records::add);
+        new JSONParser().parse(new StringReader("[{\"id\": 1}]"), handler);
+        new JSONParser().parse(new StringReader("{\"id\": 2}"), handler);
+        assertEquals(2, records.size());
+        assertEquals(2l, records.get(1).get("id"));
+    }
+
+    @Test
+    public void testConvertDecimal() {
+        assertEquals(new BigDecimal("12.50"), AssetSchema.convertValue("price", ColumnType.DECIMAL, " 12.50 "));
+        // Json numbers are converted from their text, without going through double
+        assertEquals(new BigDecimal("0.1"), AssetSchema.convertValue("price", ColumnType.DECIMAL, 0.1));
+        assertEquals(new BigDecimal("7"), AssetSchema.convertValue("price", ColumnType.DECIMAL, 7l));
+        assertEquals(ColumnType.DECIMAL, ColumnType.of("NUMERIC"));
+    }
+
+    @Test
+    public void testConvertTimestampFormats() {
+        Timestamp expected = new Timestamp(1514764800000l);
+        // Epoch milliseconds
+        assertEquals(expected, AssetSchema.convertValue("time", ColumnType.TIMESTAMP, 1514764800000l));
+        // ISO-8601 instant
+        assertEquals(expected, AssetSchema.convertValue("time", ColumnType.TIMESTAMP, "2018-01-01T00:00:00Z"));
+        // JDBC timestamp escape, in the local time zone
+        assertEquals(Timestamp.valueOf("2018-01-01 10:15:30.5"),
+                AssetSchema.convertValue("time", ColumnType.TIMESTAMP, "2018-01-01 10:15:30.5"));
+        try {
+            AssetSchema.convertValue("time", ColumnType.TIMESTAMP, "01/01/2018");
+            fail("Timestamp accepted");
+        } catch (BlkchnException e) {
+            assertEquals("Value 01/01/2018 of column time is not of type timestamp", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testEmptyFieldIsNull() {
+        for (ColumnType type : new ColumnType[] { ColumnType.INT, ColumnType.LONG, ColumnType.DOUBLE,
+                ColumnType.DECIMAL, ColumnType.BOOLEAN, ColumnType.TIMESTAMP }) {
+            assertNull(AssetSchema.convertValue("column", type, ""));
+            assertNull(AssetSchema.convertValue("column", type, "  "));
+        }
+        // Strings and columns of other types keep the text
+        assertEquals("", AssetSchema.convertValue("column", ColumnType.STRING, ""));
+        assertEquals("", AssetSchema.convertValue("column", ColumnType.OTHER, ""));
+    }
+
+    @Test
+    public void testConvertNumbersAndBooleans() {
+        assertEquals(42, AssetSchema.convertValue("count", ColumnType.INT, "42"));
+        assertEquals(42, AssetSchema.convertValue("count", ColumnType.INT, 42l));
+        assertEquals(42l, AssetSchema.convertValue("count", ColumnType.LONG, " 42"));
+        assertEquals(1.5, AssetSchema.convertValue("ratio", ColumnType.DOUBLE, "1.5"));
+        assertEquals(true, AssetSchema.convertValue("flag", ColumnType.BOOLEAN, "TRUE"));
+        assertEquals("42", AssetSchema.convertValue("name", ColumnType.STRING, 42l));
+        try {
+            AssetSchema.convertValue("count", ColumnType.INT, "4x");
+            fail("Int accepted");
+        } catch (BlkchnException e) {
+            assertEquals("Value 4x of column count is not of type int", e.getMessage());
+        }
+    }
+
+    private static Config config(long ttl) {
+        Config config = mock(Config.class);
+        when(config.getDbProperties()).thenReturn(new Properties());
+        when(config.getConfigPath()).thenReturn("/tmp/asset-schema-test-" + CONFIG_PATHS.incrementAndGet());
+        when(config.getAssetSchemaCacheTtl()).thenReturn(ttl);
+        return config;
+    }
+
+    private static class CountingSource implements AssetSchema.SchemaSource {
+
+        private final String schemaJSON;
+
+        private final AtomicInteger reads = new AtomicInteger();
+
+        CountingSource(String schemaJSON) {
+            this.schemaJSON = schemaJSON;
+        }
+
+        @Override
+        public String getSchemaJSON(String asset) {
+            reads.incrementAndGet();
+            return schemaJSON;
+        }
+    }
+
+    private static List<JSONObject> parseRecords(String json) throws Exception {
+        List<JSONObject> records = new ArrayList<>();
+        new JSONParser().parse(new StringReader(json), new AssetSchema.RecordHandler(records::add));
+        return records;
+    }
+
+    private static void assertRejected(String json) throws Exception {
+        try {
+            parseRecords(json);
+            fail("Records accepted: " + json);
+        } catch (BlkchnException e) {
+            assertEquals("Query data should be a json object or an array of json objects", e.getMessage());
+        }
+    }
+}
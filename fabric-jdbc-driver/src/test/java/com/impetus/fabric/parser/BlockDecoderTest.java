@@ -0,0 +1,66 @@
+/*******************************************************************************
+ * * Copyright 2018 Impetus Infotech.
+ * *
+ * * Licensed under the Apache License, Version 2.0 (the "License");
+ * * you may not use this file except in compliance with the License.
+ * * You may obtain a copy of the License at
+ * *
+ * * http://www.apache.org/licenses/LICENSE-2.0
+ * *
+ * * Unless required by applicable law or agreed to in writing, software
+ * * distributed under the License is distributed on an "AS IS" BASIS,
+ * * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * * See the License for the specific language governing permissions and
+ * * limitations under the License.
+ ******************************************************************************/
+
+package com.impetus.fabric.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.hyperledger.fabric.sdk.BlockInfo;
+import org.junit.Test;
+
+import com.impetus.fabric.query.FabricTables;
+import com.impetus.fabric.query.QueryBlock;
+
+public class BlockDecoderTest {
+
+    @Test
+    public void testBlocksAreReturnedInRequestOrder() throws Exception {
+        QueryBlock queryBlock = mock(QueryBlock.class);
+        when(queryBlock.getDecodePool()).thenReturn(new ForkJoinPool(4));
+        // Later blocks answer first
+        when(queryBlock.queryBlockByNumber(anyLong())).thenAnswer(invocation -> {
+            long blockNo = (Long) invocation.getArguments()[0];
+            Thread.sleep(2 * (20 - blockNo));
+            BlockInfo blockInfo = mock(BlockInfo.class);
+            when(blockInfo.getBlockNumber()).thenReturn(blockNo);
+            return blockInfo;
+        });
+        List<Long> blockNumbers = new ArrayList<>();
+        for (long blockNo = 19; blockNo > 0; blockNo -= 2) {
+            blockNumbers.add(blockNo);
+        }
+        for (long blockNo = 2; blockNo < 20; blockNo += 2) {
+            blockNumbers.add(blockNo);
+        }
+
+        List<LinkedHashMap<String, Object>> decoded = new BlockDecoder(queryBlock, false)
+                .decodeBlocks(FabricTables.BLOCK, blockNumbers);
+        assertEquals(blockNumbers.size(), decoded.size());
+        for (int i = 0; i < blockNumbers.size(); i++) {
+            String key = RowKey.block(blockNumbers.get(i));
+            assertEquals(key, decoded.get(i).keySet().iterator().next());
+            assertEquals(blockNumbers.get(i).longValue(), ((BlockInfo) decoded.get(i).get(key)).getBlockNumber());
+        }
+    }
+}
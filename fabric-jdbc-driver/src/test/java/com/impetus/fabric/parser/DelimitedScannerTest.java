@@ -0,0 +1,89 @@
+/*******************************************************************************
+ * * Copyright 2018 Impetus Infotech.
+ * *
+ * * Licensed under the Apache License, Version 2.0 (the "License");
+ * * you may not use this file except in compliance with the License.
+ * * You may obtain a copy of the License at
+ * *
+ * * http://www.apache.org/licenses/LICENSE-2.0
+ * *
+ * * Unless required by applicable law or agreed to in writing, software
+ * * distributed under the License is distributed on an "AS IS" BASIS,
+ * * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * * See the License for the specific language governing permissions and
+ * * limitations under the License.
+ ******************************************************************************/
+
+package com.impetus.fabric.parser;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class DelimitedScannerTest {
+
+    @Test
+    public void testFieldsAndRecords() throws IOException {
+        List<List<String>> records = scan("a,b,c\n1,,3\n\nx,y,\n", "\n", ",");
+        assertEquals(Arrays.asList(Arrays.asList("a", "b", "c"), Arrays.asList("1", "", "3"), Arrays.asList(""),
+                Arrays.asList("x", "y", "")), records);
+        assertTrue(scan("", "\n", ",").isEmpty());
+    }
+
+    @Test
+    public void testMultiCharacterDelimiters() throws IOException {
+        List<List<String>> records = scan("a||b\r\nc||d", "\r\n", "\\|\\|");
+        assertEquals(Arrays.asList(Arrays.asList("a", "b"), Arrays.asList("c", "d")), records);
+        // Escaped metacharacters are matched literally
+        assertEquals(Arrays.asList(Arrays.asList("a.b", "x"), Arrays.asList("c")), scan("a.b|x\nc", "\\n", "\\|"));
+    }
+
+    @Test
+    public void testPatternDelimiters() throws IOException {
+        List<List<String>> records = scan("a  b\tc\r\n\r\nd e", "(\r\n)+", "\\s+");
+        assertEquals(Arrays.asList(Arrays.asList("a", "b", "c"), Arrays.asList("d", "e")), records);
+        // A run of delimiters split across reads is taken whole
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 8190; i++) {
+            text.append('x');
+        }
+        text.append("\n\n\n\n\ny");
+        List<List<String>> split = scan(text.toString(), "\n+", null);
+        assertEquals(2, split.size());
+        assertEquals(Arrays.asList("y"), split.get(1));
+        assertEquals(Arrays.asList(Arrays.asList("a", "b|c")), scan("a;b|c", "\n", "[;,]"));
+    }
+
+    @Test
+    public void testLiteralOf() {
+        assertEquals("|", DelimitedScanner.literalOf("\\|"));
+        assertEquals("\r\n", DelimitedScanner.literalOf("\r\n"));
+        assertNull(DelimitedScanner.literalOf("\\s+"));
+        assertNull(DelimitedScanner.literalOf("|"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDelimiterMatchingEmptyText() {
+        new DelimitedScanner(new StringReader("a|b"), "|", null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidPattern() {
+        new DelimitedScanner(new StringReader("a(b"), "\n", "(");
+    }
+
+    private List<List<String>> scan(String text, String recordDelimiter, String fieldDelimiter) throws IOException {
+        DelimitedScanner scanner = new DelimitedScanner(new StringReader(text), recordDelimiter, fieldDelimiter);
+        List<List<String>> records = new ArrayList<>();
+        List<String> record;
+        while ((record = scanner.nextRecord()) != null) {
+            records.add(record);
+        }
+        return records;
+    }
+}
@@ -0,0 +1,186 @@
+/*******************************************************************************
+ * * Copyright 2018 Impetus Infotech.
+ * *
+ * * Licensed under the Apache License, Version 2.0 (the "License");
+ * * you may not use this file except in compliance with the License.
+ * * You may obtain a copy of the License at
+ * *
+ * * http://www.apache.org/licenses/LICENSE-2.0
+ * *
+ * * Unless required by applicable law or agreed to in writing, software
+ * * distributed under the License is distributed on an "AS IS" BASIS,
+ * * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * * See the License for the specific language governing permissions and
+ * * limitations under the License.
+ ******************************************************************************/
+
+package com.impetus.fabric.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.hyperledger.fabric.sdk.BlockInfo;
+import org.hyperledger.fabric.sdk.BlockInfo.EnvelopeInfo;
+import org.hyperledger.fabric.sdk.exception.ProposalException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.impetus.fabric.parser.LedgerLookups.Lookup;
+import com.impetus.fabric.query.FabricColumns;
+import com.impetus.fabric.query.FabricTables;
+import com.impetus.fabric.query.LedgerStatistics;
+import com.impetus.fabric.query.QueryBlock;
+
+public class LedgerLookupsTest {
+
+    private QueryBlock queryBlock;
+
+    private ForkJoinPool decodePool;
+
+    private LedgerLookups lookups;
+
+    @Before
+    public void setUp() {
+        queryBlock = mock(QueryBlock.class);
+        decodePool = new ForkJoinPool(2);
+        when(queryBlock.getDecodePool()).thenReturn(decodePool);
+        when(queryBlock.getStatistics()).thenReturn(new LedgerStatistics());
+        lookups = new LedgerLookups(queryBlock, false);
+    }
+
+    @After
+    public void tearDown() {
+        decodePool.shutdownNow();
+    }
+
+    @Test
+    public void testBlockIsFetchedOnce() throws Exception {
+        BlockInfo block = block(3, "tx1");
+        when(queryBlock.queryBlockByNumber(3)).thenReturn(block);
+        assertSame(block, lookups.fetchBlockByNumber(3));
+        assertSame(block, lookups.fetchBlockByNumber(3));
+        verify(queryBlock, times(1)).queryBlockByNumber(3);
+    }
+
+    @Test
+    public void testBlockFetchedByHashServesItsNumber() throws Exception {
+        BlockInfo block = block(3, "tx1");
+        when(queryBlock.queryBlockByHash(any(byte[].class))).thenReturn(block);
+        assertSame(block, lookups.fetchBlockByHash("00ff"));
+        assertSame(block, lookups.fetchBlockByNumber(3));
+        verify(queryBlock, never()).queryBlockByNumber(3);
+    }
+
+    @Test
+    public void testTransactionsOfFetchedBlockNeedNoRequest() throws Exception {
+        BlockInfo block = block(3, "tx1", "tx2");
+        when(queryBlock.queryBlockByTransactionID("tx1")).thenReturn(block);
+        assertSame(block, lookups.fetchBlockByTransactionId("tx1"));
+        assertSame(block, lookups.fetchBlockByTransactionId("tx2"));
+        verify(queryBlock, never()).queryBlockByTransactionID("tx2");
+    }
+
+    @Test
+    public void testPrefetchResolvesTransactionsOfABlockOnce() throws Exception {
+        BlockInfo block3 = block(3, "tx1", "tx2");
+        BlockInfo block4 = block(4, "tx3", "tx4");
+        when(queryBlock.queryBlockByTransactionID("tx1")).thenReturn(block3);
+        when(queryBlock.queryBlockByTransactionID("tx3")).thenReturn(block4);
+        lookups.prefetch(Arrays.asList(transaction("'tx1'"), transaction("'tx2'"), transaction("'tx3'"),
+                transaction("'tx4'")));
+        verify(queryBlock, times(2)).queryBlockByTransactionID(anyString());
+        assertSame(block3, lookups.fetchBlockByTransactionId("tx2"));
+        assertSame(block4, lookups.fetchBlockByTransactionId("tx4"));
+        verify(queryBlock, times(2)).queryBlockByTransactionID(anyString());
+    }
+
+    @Test
+    public void testConcurrentLookupsWaitForTheFetchInFlight() throws Exception {
+        BlockInfo block = block(3, "tx1");
+        CountDownLatch fetching = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(queryBlock.queryBlockByNumber(3)).thenAnswer(invocation -> {
+            fetching.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return block;
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<BlockInfo> first = executor.submit(() -> lookups.fetchBlockByNumber(3));
+            fetching.await(5, TimeUnit.SECONDS);
+            Future<BlockInfo> second = executor.submit(() -> lookups.fetchBlockByNumber(3));
+            release.countDown();
+            assertSame(block, first.get(5, TimeUnit.SECONDS));
+            assertSame(block, second.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+        verify(queryBlock, times(1)).queryBlockByNumber(3);
+    }
+
+    @Test
+    public void testFailedFetchIsRetried() throws Exception {
+        BlockInfo block = block(3, "tx1");
+        when(queryBlock.queryBlockByNumber(3)).thenThrow(new ProposalException("Unavailable")).thenReturn(block);
+        try {
+            lookups.fetchBlockByNumber(3);
+            fail("Fetch didn't fail");
+        } catch (ProposalException e) {
+            // Expected
+        }
+        assertSame(block, lookups.fetchBlockByNumber(3));
+    }
+
+    @Test
+    public void testCost() throws Exception {
+        Lookup transaction = transaction("'tx1'");
+        Lookup transactionsOfBlock = new Lookup(FabricTables.TRANSACTION, FabricColumns.BLOCK_NO, "3");
+        Lookup block = new Lookup(FabricTables.BLOCK, FabricColumns.BLOCK_NO, "3");
+        assertEquals(1, lookups.getCost(transaction), 0);
+        // One request and the typical 10 transactions of a block to decode
+        assertEquals(11, lookups.getCost(transactionsOfBlock), 0);
+        assertEquals(1, lookups.getCost(block), 0);
+
+        BlockInfo blockInfo = block(3, "tx1");
+        when(queryBlock.queryBlockByNumber(3)).thenReturn(blockInfo);
+        lookups.fetchBlockByNumber(3);
+        assertEquals(0, lookups.getCost(transaction), 0);
+        assertEquals(10, lookups.getCost(transactionsOfBlock), 0);
+    }
+
+    private static Lookup transaction(String transactionId) {
+        return new Lookup(FabricTables.TRANSACTION, FabricColumns.TRANSACTION_ID, transactionId);
+    }
+
+    private static BlockInfo block(long blockNo, String... transactionIds) {
+        BlockInfo blockInfo = mock(BlockInfo.class);
+        when(blockInfo.getBlockNumber()).thenReturn(blockNo);
+        List<EnvelopeInfo> envelopeInfos = new ArrayList<>();
+        for (String transactionId : transactionIds) {
+            EnvelopeInfo envelopeInfo = mock(EnvelopeInfo.class);
+            when(envelopeInfo.getTransactionID()).thenReturn(transactionId);
+            envelopeInfos.add(envelopeInfo);
+        }
+        when(blockInfo.getEnvelopeInfos()).thenReturn(envelopeInfos);
+        return blockInfo;
+    }
+}
@@ -0,0 +1,147 @@
+/*******************************************************************************
+ * * Copyright 2018 Impetus Infotech.
+ * *
+ * * Licensed under the Apache License, Version 2.0 (the "License");
+ * * you may not use this file except in compliance with the License.
+ * * You may obtain a copy of the License at
+ * *
+ * * http://www.apache.org/licenses/LICENSE-2.0
+ * *
+ * * Unless required by applicable law or agreed to in writing, software
+ * * distributed under the License is distributed on an "AS IS" BASIS,
+ * * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * * See the License for the specific language governing permissions and
+ * * limitations under the License.
+ ******************************************************************************/
+
+package com.impetus.fabric.parser;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import com.google.protobuf.ByteString;
+import com.impetus.fabric.model.Config;
+import com.impetus.fabric.query.QueryBlock;
+
+public class PagedCallTest {
+
+    private final ExecutorService invokePool = Executors.newCachedThreadPool();
+
+    private QueryBlock queryBlock;
+
+    private Config config;
+
+    @Before
+    public void setUp() {
+        config = mock(Config.class);
+        when(config.getPageSize()).thenReturn(2);
+        when(config.getPageArgs()).thenReturn(Arrays.asList("pageSize", "bookmark"));
+        when(config.getPageRecordsField()).thenReturn("records");
+        when(config.getPageBookmarkField()).thenReturn("bookmark");
+        queryBlock = mock(QueryBlock.class);
+        when(queryBlock.getConf()).thenReturn(config);
+        when(queryBlock.getInvokePool()).thenReturn(invokePool);
+    }
+
+    @After
+    public void tearDown() {
+        invokePool.shutdownNow();
+    }
+
+    @Test
+    public void testPagesEndWithEmptyBookmark() {
+        when(queryBlock.queryChaincodePayload(anyString(), anyString(), any(String[].class)))
+                .thenReturn(page(2, "b1"), page(2, ""));
+        PagedCall pages = pagedCall();
+        assertEquals(2, count(pages));
+        verify(queryBlock, times(2)).queryChaincodePayload(anyString(), anyString(), any(String[].class));
+    }
+
+    @Test
+    public void testPagesEndWithShortPage() {
+        when(queryBlock.queryChaincodePayload(anyString(), anyString(), any(String[].class)))
+                .thenReturn(page(2, "b1"), page(1, "b2"));
+        PagedCall pages = pagedCall();
+        assertEquals(2, count(pages));
+        // The bookmark of a short page is not followed
+        verify(queryBlock, times(2)).queryChaincodePayload(anyString(), anyString(), any(String[].class));
+    }
+
+    @Test
+    public void testPageArgsOrder() {
+        when(config.getPageArgs()).thenReturn(Arrays.asList("bookmark", "pageSize"));
+        when(queryBlock.queryChaincodePayload(anyString(), anyString(), any(String[].class)))
+                .thenReturn(page(2, "b1"), page(0, ""));
+        count(pagedCall());
+        ArgumentCaptor<String[]> args = ArgumentCaptor.forClass(String[].class);
+        verify(queryBlock, times(2)).queryChaincodePayload(eq("chaincode"), eq("getPage"), args.capture());
+        List<String[]> calls = args.getAllValues();
+        assertArrayEquals(new String[] { "owner", "", "2" }, calls.get(0));
+        assertArrayEquals(new String[] { "owner", "b1", "2" }, calls.get(1));
+    }
+
+    @Test
+    public void testCloseDuringPrefetch() throws Exception {
+        CountDownLatch fetching = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(queryBlock.queryChaincodePayload(anyString(), anyString(), any(String[].class)))
+                .thenReturn(page(2, "b1")).thenAnswer(invocation -> {
+                    fetching.countDown();
+                    release.await();
+                    return page(2, "b2");
+                });
+        PagedCall pages = pagedCall();
+        pages.next();
+        assertTrue(fetching.await(5, TimeUnit.SECONDS));
+        pages.close();
+        assertFalse(pages.hasNext());
+        release.countDown();
+        // The dropped page doesn't start another fetch
+        invokePool.shutdown();
+        assertTrue(invokePool.awaitTermination(5, TimeUnit.SECONDS));
+        verify(queryBlock, times(2)).queryChaincodePayload(anyString(), anyString(), any(String[].class));
+    }
+
+    private PagedCall pagedCall() {
+        return new PagedCall(queryBlock, AssetSchema.getJSONSchema(), "chaincode", "getPage",
+                Arrays.asList("owner"));
+    }
+
+    private static int count(PagedCall pages) {
+        int count = 0;
+        while (pages.hasNext()) {
+            pages.next();
+            count++;
+        }
+        return count;
+    }
+
+    private static ByteString page(int records, String bookmark) {
+        StringBuilder json = new StringBuilder("{\"records\": [");
+        for (int i = 0; i < records; i++) {
+            json.append(i == 0 ? "" : ", ").append("{\"id\": ").append(i).append("}");
+        }
+        return ByteString.copyFromUtf8(json.append("], \"bookmark\": \"").append(bookmark).append("\"}").toString());
+    }
+}
@@ -0,0 +1,188 @@
+/*******************************************************************************
+ * * Copyright 2018 Impetus Infotech.
+ * *
+ * * Licensed under the Apache License, Version 2.0 (the "License");
+ * * you may not use this file except in compliance with the License.
+ * * You may obtain a copy of the License at
+ * *
+ * * http://www.apache.org/licenses/LICENSE-2.0
+ * *
+ * * Unless required by applicable law or agreed to in writing, software
+ * * distributed under the License is distributed on an "AS IS" BASIS,
+ * * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * * See the License for the specific language governing permissions and
+ * * limitations under the License.
+ ******************************************************************************/
+
+package com.impetus.fabric.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.hyperledger.fabric.sdk.BlockInfo;
+import org.hyperledger.fabric.sdk.BlockchainInfo;
+import org.hyperledger.fabric.sdk.exception.ProposalException;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.impetus.blkch.BlkchnErrorListener;
+import com.impetus.blkch.BlkchnException;
+import com.impetus.blkch.sql.DataFrame;
+import com.impetus.blkch.sql.generated.BlkchnSqlLexer;
+import com.impetus.blkch.sql.generated.BlkchnSqlParser;
+import com.impetus.blkch.sql.parser.AbstractSyntaxTreeVisitor;
+import com.impetus.blkch.sql.parser.BlockchainVisitor;
+import com.impetus.blkch.sql.parser.CaseInsensitiveCharStream;
+import com.impetus.blkch.sql.parser.LogicalPlan;
+import com.impetus.fabric.model.Config;
+import com.impetus.fabric.objects.BlockHeaderObject;
+import com.impetus.fabric.objects.PrintableSanitizer;
+import com.impetus.fabric.query.FabricTables;
+import com.impetus.fabric.query.LedgerStatistics;
+import com.impetus.fabric.query.QueryBlock;
+
+public class QueryExecutorTest {
+
+    private QueryBlock queryBlock;
+
+    private Config conf;
+
+    private LedgerStatistics statistics;
+
+    @Before
+    public void setUp() throws Exception {
+        conf = mock(Config.class);
+        when(conf.getValueEncoding()).thenReturn(PrintableSanitizer.Mode.PRINTABLE);
+        queryBlock = mock(QueryBlock.class);
+        when(queryBlock.getConf()).thenReturn(conf);
+        statistics = new LedgerStatistics();
+        when(queryBlock.getStatistics()).thenReturn(statistics);
+        when(queryBlock.getDecodePool()).thenReturn(ForkJoinPool.commonPool());
+        BlockchainInfo blockchainInfo = mock(BlockchainInfo.class);
+        when(blockchainInfo.getHeight()).thenReturn(10l);
+        when(queryBlock.queryBlockchainInfo()).thenReturn(blockchainInfo);
+        when(queryBlock.getChannelHeight()).thenReturn(10l);
+        when(queryBlock.cacheBlockHeader(any(BlockInfo.class)))
+                .thenAnswer(invocation -> new BlockHeaderObject((BlockInfo) invocation.getArguments()[0]));
+    }
+
+    @Test
+    public void testRawDataSizeIsMeasuredWithoutRetention() throws Exception {
+        when(queryBlock.getBlockHeader(3l)).thenReturn(new BlockHeaderObject(blockInfo(3)));
+        QueryExecutor executor = new QueryExecutor(getLogicalPlan("select * from block where block_no = 3"),
+                queryBlock);
+        DataFrame dataframe = executor.executeQuery();
+        assertEquals(1, dataframe.getData().size());
+        assertEquals(32 + 32 + 4, executor.getRawDataSize());
+    }
+
+    @Test
+    public void testRangeAboveMaxEstimatedRowsIsRefused() {
+        when(conf.getMaxEstimatedRows()).thenReturn(50l);
+        // Typical figure of 10 transactions per block
+        assertTrue(getError("select * from transaction where block_no >= 1 and block_no <= 9")
+                .contains("about 90 rows of table transaction from 9 blocks, more than the limit of 50"));
+    }
+
+    @Test
+    public void testEstimateUsesObservedRowsPerBlock() {
+        when(conf.getMaxEstimatedRows()).thenReturn(5l);
+        statistics.recordRowCount(FabricTables.TRANSACTION, 1, 1);
+        statistics.recordRowCount(FabricTables.TRANSACTION, 2, 1);
+        assertTrue(getError("select * from transaction where block_no >= 1 and block_no <= 9")
+                .contains("about 9 rows of table transaction from 9 blocks, more than the limit of 5"));
+    }
+
+    @Test
+    public void testFullScanMessageEstimatesRows() {
+        assertTrue(getError("select * from transaction")
+                .contains("about 90 rows of table transaction from all 9 blocks"));
+    }
+
+    @Test
+    public void testFullScanMessageWithoutHeight() {
+        when(queryBlock.getChannelHeight()).thenThrow(new BlkchnException("Error Querying height of channel ledger"));
+        assertEquals("This query can't be executed as it requires fetching huge amount of data",
+                getError("select * from transaction"));
+    }
+
+    @Test
+    public void testAndExecutesCheaperLookupFirst() throws Exception {
+        when(queryBlock.queryBlockByTransactionID("tx1")).thenThrow(new ProposalException("Not found"));
+        // A transaction id costs one request, a block number the decoding of all its transactions
+        assertEquals(0, execute("select * from transaction where block_no = 3 and transaction_id = 'tx1'"));
+        assertEquals(0, execute("select * from transaction where transaction_id = 'tx1' and block_no = 3"));
+        verify(queryBlock, never()).queryBlockByNumber(anyLong());
+    }
+
+    @Test
+    public void testAndSkipsSiblingOfEmptyLookup() throws Exception {
+        when(queryBlock.queryBlockByTransactionID("tx1")).thenThrow(new ProposalException("Not found"));
+        assertEquals(0, execute("select * from transaction where transaction_id = 'tx1' "
+                + "and (block_no = 3 or block_no = 4)"));
+        // Neither executed nor fetched ahead
+        verify(queryBlock, never()).queryBlockByNumber(anyLong());
+        verify(queryBlock, times(1)).queryBlockByTransactionID("tx1");
+    }
+
+    @Test
+    public void testBlockNoLookupNarrowsFetchedBlock() throws Exception {
+        BlockInfo blockInfo = blockInfo(3);
+        when(queryBlock.queryBlockByHash(any(byte[].class))).thenReturn(blockInfo);
+        assertEquals(1, execute("select * from block where previous_hash = '00ff' and block_no = 3"));
+        assertEquals(0, execute("select * from block where previous_hash = '00ff' and block_no = 4"));
+        // The block fetched by hash answers the block_no lookup
+        verify(queryBlock, never()).getBlockHeader(anyLong());
+        verify(queryBlock, never()).queryBlockByNumber(anyLong());
+    }
+
+    private int execute(String query) {
+        return new QueryExecutor(getLogicalPlan(query), queryBlock).executeQuery().getData().size();
+    }
+
+    private String getError(String query) {
+        try {
+            new QueryExecutor(getLogicalPlan(query), queryBlock).executeQuery();
+        } catch (BlkchnException e) {
+            return e.getMessage();
+        }
+        fail("Query wasn't refused: " + query);
+        return null;
+    }
+
+    static BlockInfo blockInfo(long blockNo) throws Exception {
+        BlockInfo blockInfo = mock(BlockInfo.class);
+        when(blockInfo.getBlockNumber()).thenReturn(blockNo);
+        when(blockInfo.getPreviousHash()).thenReturn(new byte[32]);
+        when(blockInfo.getDataHash()).thenReturn(new byte[32]);
+        when(blockInfo.getTransActionsMetaData()).thenReturn(new byte[4]);
+        when(blockInfo.getChannelId()).thenReturn("mychannel");
+        when(blockInfo.getEnvelopeInfos()).thenReturn(Collections.emptyList());
+        return blockInfo;
+    }
+
+    static LogicalPlan getLogicalPlan(String query) {
+        BlkchnSqlLexer lexer = new BlkchnSqlLexer(new CaseInsensitiveCharStream(query));
+        lexer.removeErrorListeners();
+        lexer.addErrorListener(BlkchnErrorListener.INSTANCE);
+        CommonTokenStream tokens = new CommonTokenStream(lexer);
+        BlkchnSqlParser parser = new BlkchnSqlParser(tokens);
+        parser.removeErrorListeners();
+        parser.addErrorListener(BlkchnErrorListener.INSTANCE);
+        AbstractSyntaxTreeVisitor visitor = new BlockchainVisitor();
+        return visitor.visitSingleStatement(parser.singleStatement());
+    }
+}
@@ -0,0 +1,52 @@
+/*******************************************************************************
+ * * Copyright 2018 Impetus Infotech.
+ * *
+ * * Licensed under the Apache License, Version 2.0 (the "License");
+ * * you may not use this file except in compliance with the License.
+ * * You may obtain a copy of the License at
+ * *
+ * * http://www.apache.org/licenses/LICENSE-2.0
+ * *
+ * * Unless required by applicable law or agreed to in writing, software
+ * * distributed under the License is distributed on an "AS IS" BASIS,
+ * * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * * See the License for the specific language governing permissions and
+ * * limitations under the License.
+ ******************************************************************************/
+
+package com.impetus.fabric.parser;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class RowKeyTest {
+
+    @Test
+    public void testReadWriteSetKeysAreDistinct() {
+        Set<String> keys = new HashSet<>();
+        int count = 0;
+        for (long blockNo = 1; blockNo <= 12; blockNo++) {
+            for (int tx = 0; tx < 12; tx++) {
+                for (int ns = 0; ns < 3; ns++) {
+                    for (char kind : new char[] { RowKey.READ, RowKey.RANGE_QUERY, RowKey.WRITE }) {
+                        for (int pos = 0; pos < 12; pos++) {
+                            keys.add(RowKey.readWriteSet(blockNo, tx, 0, ns, kind, pos));
+                            count++;
+                        }
+                    }
+                }
+            }
+        }
+        assertEquals(count, keys.size());
+    }
+
+    @Test
+    public void testKeyFormat() {
+        assertEquals("12", RowKey.block(12));
+        assertEquals("12.3.1", RowKey.action(12, 3, 1));
+        assertEquals("12.3.1.0w11", RowKey.readWriteSet(12, 3, 1, 0, RowKey.WRITE, 11));
+    }
+}
@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * * Copyright 2018 Impetus Infotech.
+ * *
+ * * Licensed under the Apache License, Version 2.0 (the "License");
+ * * you may not use this file except in compliance with the License.
+ * * You may obtain a copy of the License at
+ * *
+ * * http://www.apache.org/licenses/LICENSE-2.0
+ * *
+ * * Unless required by applicable law or agreed to in writing, software
+ * * distributed under the License is distributed on an "AS IS" BASIS,
+ * * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * * See the License for the specific language governing permissions and
+ * * limitations under the License.
+ ******************************************************************************/
+
+package com.impetus.fabric.query;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.hyperledger.fabric.sdk.BlockEvent;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.impetus.blkch.BlkchnException;
+
+public class AwaitCommitTest {
+
+    private ScheduledExecutorService timer;
+
+    @Before
+    public void setUp() {
+        timer = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        timer.shutdownNow();
+    }
+
+    @Test
+    public void testCommittedTransactionId() throws Exception {
+        CompletableFuture<BlockEvent.TransactionEvent> commit = new CompletableFuture<>();
+        CompletableFuture<String> txId = QueryBlock.awaitCommit(commit, 10000, timer);
+        BlockEvent.TransactionEvent event = mock(BlockEvent.TransactionEvent.class);
+        when(event.getTransactionID()).thenReturn("tx1");
+        commit.complete(event);
+        assertEquals("tx1", txId.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testMissingEventFails() throws Exception {
+        CompletableFuture<BlockEvent.TransactionEvent> commit = new CompletableFuture<>();
+        CompletableFuture<String> txId = QueryBlock.awaitCommit(commit, 10000, timer);
+        commit.complete(null);
+        assertTrue(getError(txId) instanceof BlkchnException);
+    }
+
+    @Test
+    public void testRejectionIsPassedOn() throws Exception {
+        CompletableFuture<BlockEvent.TransactionEvent> commit = new CompletableFuture<>();
+        CompletableFuture<String> txId = QueryBlock.awaitCommit(commit, 10000, timer);
+        BlkchnException rejected = new BlkchnException("rejected");
+        commit.completeExceptionally(rejected);
+        assertSame(rejected, getError(txId));
+    }
+
+    @Test
+    public void testLostEventTimesOut() throws Exception {
+        CompletableFuture<BlockEvent.TransactionEvent> commit = new CompletableFuture<>();
+        CompletableFuture<String> txId = QueryBlock.awaitCommit(commit, 50, timer);
+        Throwable error = getError(txId);
+        assertTrue(error instanceof BlkchnException);
+        assertTrue(error.getMessage().contains("50 ms"));
+    }
+
+    private static Throwable getError(CompletableFuture<String> future) throws Exception {
+        try {
+            future.get(5, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            return e.getCause();
+        }
+        throw new AssertionError("Future completed normally");
+    }
+}
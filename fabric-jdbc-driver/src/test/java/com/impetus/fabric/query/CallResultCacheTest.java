@@ -0,0 +1,129 @@
+/*******************************************************************************
+ * * Copyright 2018 Impetus Infotech.
+ * *
+ * * Licensed under the Apache License, Version 2.0 (the "License");
+ * * you may not use this file except in compliance with the License.
+ * * You may obtain a copy of the License at
+ * *
+ * * http://www.apache.org/licenses/LICENSE-2.0
+ * *
+ * * Unless required by applicable law or agreed to in writing, software
+ * * distributed under the License is distributed on an "AS IS" BASIS,
+ * * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * * See the License for the specific language governing permissions and
+ * * limitations under the License.
+ ******************************************************************************/
+
+package com.impetus.fabric.query;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hyperledger.fabric.protos.peer.FabricProposalResponse;
+import org.hyperledger.fabric.sdk.BlockEvent;
+import org.hyperledger.fabric.sdk.EventHub;
+import org.hyperledger.fabric.sdk.Peer;
+import org.hyperledger.fabric.sdk.ProposalResponse;
+import org.junit.Test;
+
+import com.google.protobuf.ByteString;
+
+public class CallResultCacheTest {
+
+    private static final String[] ARGS = new String[] { "x" };
+
+    private final Peer peer0 = peer("peer0");
+
+    private final Peer peer1 = peer("peer1");
+
+    @Test
+    public void testResultsLastUntilNextBlock() {
+        CallResultCache cache = new CallResultCache(10, false, 60000);
+        AtomicInteger queries = new AtomicInteger();
+        for (int i = 0; i < 3; i++) {
+            cache.getOrQuery("cc", "getPolicies", ARGS, () -> response(peer0, "r" + queries.incrementAndGet()));
+        }
+        assertEquals(1, queries.get());
+        assertEquals(2, cache.getHits());
+
+        cache.received(blockEvent(5, peer0));
+        assertEquals(6, cache.getHeight());
+        assertEquals("r2", cache.getOrQuery("cc", "getPolicies", ARGS,
+                () -> response(peer0, "r" + queries.incrementAndGet())).toStringUtf8());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testResultOverlappingBlockIsNotCached() {
+        CallResultCache cache = new CallResultCache(10, false, 60000);
+        cache.getOrQuery("cc", "getPolicies", ARGS, () -> {
+            cache.received(blockEvent(7, peer0));
+            return response(peer0, "stale");
+        });
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testResultOfPeerBehindIsNotCached() {
+        CallResultCache cache = new CallResultCache(10, false, 60000);
+        cache.received(blockEvent(4, peer1));
+        cache.received(blockEvent(5, peer0));
+        // Peer1 may not have committed block 5 yet
+        cache.getOrQuery("cc", "getPolicies", ARGS, () -> response(peer1, "stale"));
+        assertEquals(0, cache.size());
+        cache.getOrQuery("cc", "getPolicies", ARGS, () -> response(peer0, "current"));
+        assertEquals(1, cache.size());
+        assertEquals("current", cache.getOrQuery("cc", "getPolicies", ARGS,
+                () -> response(peer1, "stale")).toStringUtf8());
+    }
+
+    @Test
+    public void testEventHubsAreMatchedToPeersByName() {
+        CallResultCache cache = new CallResultCache(10, false, 60000);
+        EventHub eventHub = mock(EventHub.class);
+        when(eventHub.getName()).thenReturn("peer1");
+        BlockEvent blockEvent = mock(BlockEvent.class);
+        when(blockEvent.getBlockNumber()).thenReturn(3l);
+        when(blockEvent.getEventHub()).thenReturn(eventHub);
+        cache.received(blockEvent);
+        cache.getOrQuery("cc", "getPolicies", ARGS, () -> response(peer1, "current"));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testResultsExpireWithoutBlockEvents() throws Exception {
+        CallResultCache cache = new CallResultCache(10, false, 50);
+        AtomicInteger queries = new AtomicInteger();
+        cache.getOrQuery("cc", "getPolicies", ARGS, () -> response(peer0, "r" + queries.incrementAndGet()));
+        Thread.sleep(100);
+        assertEquals("r2", cache.getOrQuery("cc", "getPolicies", ARGS,
+                () -> response(peer0, "r" + queries.incrementAndGet())).toStringUtf8());
+        assertEquals(0, cache.getHits());
+        assertEquals(1, cache.size());
+    }
+
+    private static BlockEvent blockEvent(long blockNo, Peer peer) {
+        BlockEvent blockEvent = mock(BlockEvent.class);
+        when(blockEvent.getBlockNumber()).thenReturn(blockNo);
+        when(blockEvent.getPeer()).thenReturn(peer);
+        return blockEvent;
+    }
+
+    private static ProposalResponse response(Peer peer, String payload) {
+        ProposalResponse response = mock(ProposalResponse.class);
+        when(response.getPeer()).thenReturn(peer);
+        when(response.getProposalResponse()).thenReturn(FabricProposalResponse.ProposalResponse.newBuilder()
+                .setResponse(FabricProposalResponse.Response.newBuilder().setPayload(ByteString.copyFromUtf8(payload)))
+                .build());
+        return response;
+    }
+
+    private static Peer peer(String name) {
+        Peer peer = mock(Peer.class);
+        when(peer.getName()).thenReturn(name);
+        return peer;
+    }
+}
@@ -0,0 +1,139 @@
+/*******************************************************************************
+ * * Copyright 2018 Impetus Infotech.
+ * *
+ * * Licensed under the Apache License, Version 2.0 (the "License");
+ * * you may not use this file except in compliance with the License.
+ * * You may obtain a copy of the License at
+ * *
+ * * http://www.apache.org/licenses/LICENSE-2.0
+ * *
+ * * Unless required by applicable law or agreed to in writing, software
+ * * distributed under the License is distributed on an "AS IS" BASIS,
+ * * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * * See the License for the specific language governing permissions and
+ * * limitations under the License.
+ ******************************************************************************/
+
+package com.impetus.fabric.query;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.hyperledger.fabric.sdk.Peer;
+import org.hyperledger.fabric.sdk.exception.ProposalException;
+import org.junit.Test;
+
+import com.impetus.fabric.model.Config;
+import com.impetus.fabric.query.HedgedRequestExecutor.PeerRequest;
+
+public class HedgedRequestExecutorTest {
+
+    @Test
+    public void testDelayIsAtLeastMinDelay() throws Exception {
+        HedgedRequestExecutor executor = new HedgedRequestExecutor(config(95, 50));
+        Peer peer = peer("peer0");
+        assertEquals(-1, executor.getHedgeDelay());
+        for (int i = 0; i < 20; i++) {
+            executor.execute(Arrays.asList(peer), p -> "ok");
+        }
+        assertEquals(50, executor.getHedgeDelay());
+    }
+
+    @Test
+    public void testSlowRequestIsHedgedAndCancelled() throws Exception {
+        HedgedRequestExecutor executor = new HedgedRequestExecutor(config(95, 1));
+        Peer slow = peer("peer0");
+        Peer fast = peer("peer1");
+        for (int i = 0; i < 20; i++) {
+            executor.execute(Arrays.asList(fast), p -> "ok");
+        }
+        CountDownLatch interrupted = new CountDownLatch(1);
+        // Starting peers rotate, so both peers are the slow one in turn
+        for (int i = 0; i < 2; i++) {
+            String result = executor.execute(Arrays.asList(slow, fast), p -> {
+                if (p == slow) {
+                    try {
+                        Thread.sleep(10000);
+                    } catch (InterruptedException e) {
+                        interrupted.countDown();
+                    }
+                    return "slow";
+                }
+                return "fast";
+            });
+            assertEquals("fast", result);
+        }
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+        assertTrue(executor.getHedgesFired() >= 1);
+        assertTrue(executor.getHedgesWon() >= 1);
+    }
+
+    @Test
+    public void testFailedPrimaryFailsOver() throws Exception {
+        HedgedRequestExecutor executor = new HedgedRequestExecutor(config(95, 1000));
+        Peer dead = peer("peer0");
+        Peer healthy = peer("peer1");
+        PeerRequest<String> request = p -> {
+            if (p == dead) {
+                throw new ProposalException("UNAVAILABLE");
+            }
+            return "ok";
+        };
+        // Without enough latencies to hedge
+        assertEquals("ok", executor.execute(Arrays.asList(dead, healthy), request));
+        for (int i = 0; i < 20; i++) {
+            executor.execute(Arrays.asList(healthy), p -> "ok");
+        }
+        // Starting peers rotate, so the dead peer is the primary in turn and fails before the hedge delay
+        for (int i = 0; i < 2; i++) {
+            assertEquals("ok", executor.execute(Arrays.asList(dead, healthy), request));
+        }
+        assertEquals(0, executor.getHedgesFired());
+        assertEquals(0, executor.getHedgesWon());
+    }
+
+    @Test
+    public void testFailedHedgeDoesntWin() throws Exception {
+        HedgedRequestExecutor executor = new HedgedRequestExecutor(config(95, 1));
+        Peer slow = peer("peer0");
+        Peer dead = peer("peer1");
+        for (int i = 0; i < 20; i++) {
+            executor.execute(Arrays.asList(slow), p -> "ok");
+        }
+        // Twenty requests rotated the start back to the first peer
+        String result = executor.execute(Arrays.asList(slow, dead), p -> {
+            if (p == dead) {
+                throw new ProposalException("UNAVAILABLE");
+            }
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "slow";
+        });
+        assertEquals("slow", result);
+        assertEquals(1, executor.getHedgesFired());
+        assertEquals(0, executor.getHedgesWon());
+    }
+
+    private static Config config(double percentile, long minDelay) {
+        Config conf = mock(Config.class);
+        when(conf.isHedgeEnabled()).thenReturn(true);
+        when(conf.getHedgePercentile()).thenReturn(percentile);
+        when(conf.getHedgeMinDelay()).thenReturn(minDelay);
+        return conf;
+    }
+
+    private static Peer peer(String name) {
+        Peer peer = mock(Peer.class);
+        when(peer.getName()).thenReturn(name);
+        return peer;
+    }
+}
@@ -0,0 +1,50 @@
+/*******************************************************************************
+ * * Copyright 2018 Impetus Infotech.
+ * *
+ * * Licensed under the Apache License, Version 2.0 (the "License");
+ * * you may not use this file except in compliance with the License.
+ * * You may obtain a copy of the License at
+ * *
+ * * http://www.apache.org/licenses/LICENSE-2.0
+ * *
+ * * Unless required by applicable law or agreed to in writing, software
+ * * distributed under the License is distributed on an "AS IS" BASIS,
+ * * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * * See the License for the specific language governing permissions and
+ * * limitations under the License.
+ ******************************************************************************/
+
+package com.impetus.fabric.query;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class LatencyWindowTest {
+
+    @Test
+    public void testPercentile() {
+        LatencyWindow window = new LatencyWindow(100);
+        assertEquals(-1, window.percentile(95));
+        for (int i = 100; i >= 1; i--) {
+            window.record(i);
+        }
+        assertEquals(95, window.percentile(95));
+        assertEquals(50, window.percentile(50));
+        assertEquals(1, window.percentile(0));
+        assertEquals(100, window.percentile(100));
+    }
+
+    @Test
+    public void testOldestSamplesAreOverwritten() {
+        LatencyWindow window = new LatencyWindow(4);
+        for (int i = 0; i < 4; i++) {
+            window.record(1000);
+        }
+        for (int i = 0; i < 4; i++) {
+            window.record(10);
+        }
+        assertEquals(4, window.size());
+        assertEquals(10, window.percentile(100));
+    }
+}
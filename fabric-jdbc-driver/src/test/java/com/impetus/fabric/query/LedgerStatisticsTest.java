@@ -0,0 +1,40 @@
+/*******************************************************************************
+ * * Copyright 2018 Impetus Infotech.
+ * *
+ * * Licensed under the Apache License, Version 2.0 (the "License");
+ * * you may not use this file except in compliance with the License.
+ * * You may obtain a copy of the License at
+ * *
+ * * http://www.apache.org/licenses/LICENSE-2.0
+ * *
+ * * Unless required by applicable law or agreed to in writing, software
+ * * distributed under the License is distributed on an "AS IS" BASIS,
+ * * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * * See the License for the specific language governing permissions and
+ * * limitations under the License.
+ ******************************************************************************/
+package com.impetus.fabric.query;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class LedgerStatisticsTest {
+
+    @Test
+    public void testDefaultsBeforeAnyBlock() {
+        LedgerStatistics statistics = new LedgerStatistics();
+        assertEquals(1d, statistics.getRowsPerBlock(FabricTables.BLOCK), 0d);
+        assertEquals(100, statistics.estimateRows(FabricTables.TRANSACTION, 10));
+    }
+
+    @Test
+    public void testBlocksCountedOncePerTable() {
+        LedgerStatistics statistics = new LedgerStatistics();
+        statistics.recordRowCount(FabricTables.TRANSACTION, 1, 2);
+        statistics.recordRowCount(FabricTables.TRANSACTION, 2, 4);
+        statistics.recordRowCount(FabricTables.TRANSACTION, 2, 4);
+        assertEquals(2, statistics.getObservedBlockCount(FabricTables.TRANSACTION));
+        assertEquals(3d, statistics.getRowsPerBlock(FabricTables.TRANSACTION), 0d);
+        assertEquals(30, statistics.estimateRows(FabricTables.TRANSACTION, 10));
+    }
+}
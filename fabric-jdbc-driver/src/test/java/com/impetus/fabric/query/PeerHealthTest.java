@@ -0,0 +1,56 @@
+/*******************************************************************************
+ * * Copyright 2018 Impetus Infotech.
+ * *
+ * * Licensed under the Apache License, Version 2.0 (the "License");
+ * * you may not use this file except in compliance with the License.
+ * * You may obtain a copy of the License at
+ * *
+ * * http://www.apache.org/licenses/LICENSE-2.0
+ * *
+ * * Unless required by applicable law or agreed to in writing, software
+ * * distributed under the License is distributed on an "AS IS" BASIS,
+ * * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * * See the License for the specific language governing permissions and
+ * * limitations under the License.
+ ******************************************************************************/
+
+package com.impetus.fabric.query;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class PeerHealthTest {
+
+    @Test
+    public void testOpensAfterConsecutiveFailures() {
+        PeerHealth health = new PeerHealth("peer0", 3, 60000);
+        health.recordFailure(new Exception("timeout"));
+        health.recordFailure(new Exception("timeout"));
+        assertEquals(PeerHealth.State.CLOSED, health.getState());
+        health.recordFailure(new Exception("timeout"));
+        assertEquals(PeerHealth.State.OPEN, health.getState());
+        assertFalse(health.isAvailable());
+        assertEquals("timeout", health.getLastError());
+    }
+
+    @Test
+    public void testSuccessResetsConsecutiveFailures() {
+        PeerHealth health = new PeerHealth("peer0", 2, 60000);
+        health.recordFailure(new Exception("timeout"));
+        health.recordSuccess(5);
+        health.recordFailure(new Exception("timeout"));
+        assertEquals(PeerHealth.State.CLOSED, health.getState());
+        assertEquals(1, health.getSuccessCount());
+        assertEquals(2, health.getFailureCount());
+    }
+
+    @Test
+    public void testHalfOpenAfterOpenDuration() {
+        PeerHealth health = new PeerHealth("peer0", 1, 0);
+        health.recordFailure(new Exception("unavailable"));
+        assertEquals(PeerHealth.State.HALF_OPEN, health.getState());
+        assertTrue(health.isAvailable());
+        health.recordSuccess(5);
+        assertEquals(PeerHealth.State.CLOSED, health.getState());
+    }
+}
@@ -0,0 +1,283 @@
+/*******************************************************************************
+ * * Copyright 2018 Impetus Infotech.
+ * *
+ * * Licensed under the Apache License, Version 2.0 (the "License");
+ * * you may not use this file except in compliance with the License.
+ * * You may obtain a copy of the License at
+ * *
+ * * http://www.apache.org/licenses/LICENSE-2.0
+ * *
+ * * Unless required by applicable law or agreed to in writing, software
+ * * distributed under the License is distributed on an "AS IS" BASIS,
+ * * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * * See the License for the specific language governing permissions and
+ * * limitations under the License.
+ ******************************************************************************/
+
+package com.impetus.fabric.query;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+
+import org.hyperledger.fabric.protos.peer.FabricProposalResponse;
+import org.hyperledger.fabric.sdk.BlockchainInfo;
+import org.hyperledger.fabric.sdk.Channel;
+import org.hyperledger.fabric.sdk.EventHub;
+import org.hyperledger.fabric.sdk.Peer;
+import org.hyperledger.fabric.sdk.ProposalResponse;
+import org.hyperledger.fabric.sdk.QueryByChaincodeRequest;
+import org.junit.After;
+import org.junit.Test;
+import org.powermock.reflect.Whitebox;
+
+import com.google.protobuf.ByteString;
+import com.impetus.blkch.BlkchnException;
+
+public class QueryBlockReadTest {
+
+    private static final String CONFIG_PATH = "src/test/resources/blockchain-query";
+
+    private static final String READ_CONSISTENCY = "config.query.readConsistency";
+
+    private static final String CALL_RESULT_CACHE_SIZE = "config.call.resultCacheSize";
+
+    private static final String HEDGE_ENABLED = "config.hedge.enabled";
+
+    private QueryBlock queryBlock;
+
+    @After
+    public void tearDown() {
+        System.clearProperty(READ_CONSISTENCY);
+        System.clearProperty(CALL_RESULT_CACHE_SIZE);
+        System.clearProperty(HEDGE_ENABLED);
+        if (queryBlock != null) {
+            queryBlock.shutdown();
+        }
+    }
+
+    @Test
+    public void testReadsRotateOverPeers() throws Exception {
+        List<Peer> peers = peers(3);
+        Channel channel = channel(peers);
+        BlockchainInfo info = mock(BlockchainInfo.class);
+        for (Peer peer : peers) {
+            when(channel.queryBlockchainInfo(peer)).thenReturn(info);
+        }
+        queryBlock = queryBlock(ReadConsistency.SINGLE, channel);
+        for (int i = 0; i < 6; i++) {
+            queryBlock.queryBlockchainInfo();
+        }
+        for (Peer peer : peers) {
+            verify(channel, times(2)).queryBlockchainInfo(peer);
+        }
+    }
+
+    @Test
+    public void testQuorumAgreement() throws Exception {
+        List<Peer> peers = peers(3);
+        Channel channel = channel(peers);
+        answer(channel, peers.get(0), "a");
+        answer(channel, peers.get(1), "b");
+        answer(channel, peers.get(2), "a");
+        queryBlock = queryBlock(ReadConsistency.QUORUM, channel);
+        // Two of the three peers agree
+        assertEquals(ByteString.copyFromUtf8("a"), queryBlock.queryChaincodePayload("chaincode", "get",
+                new String[] {}));
+    }
+
+    @Test
+    public void testQuorumDisagreement() throws Exception {
+        List<Peer> peers = peers(3);
+        Channel channel = channel(peers);
+        answer(channel, peers.get(0), "a");
+        answer(channel, peers.get(1), "b");
+        answer(channel, peers.get(2), "c");
+        queryBlock = queryBlock(ReadConsistency.QUORUM, channel);
+        try {
+            queryBlock.queryChaincodePayload("chaincode", "get", new String[] {});
+            fail("Query without quorum answered");
+        } catch (BlkchnException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("3 different results, no 2 of 3 agree"));
+        }
+    }
+
+    @Test
+    public void testSingleReadFailsOverUnreachablePeer() throws Exception {
+        List<Peer> peers = peers(2);
+        Channel channel = channel(peers);
+        unreachable(channel, peers.get(0));
+        answer(channel, peers.get(1), "a");
+        queryBlock = queryBlock(ReadConsistency.SINGLE, channel);
+        // Reads start at the first peer
+        assertEquals(ByteString.copyFromUtf8("a"), queryBlock.queryChaincodePayload("chaincode", "get",
+                new String[] {}));
+        verify(channel).queryByChaincode(any(QueryByChaincodeRequest.class),
+                eq(Collections.singletonList(peers.get(1))));
+        assertEquals(1, queryBlock.getPeerHealth().get("peer0").getFailureCount());
+        assertEquals(0, queryBlock.getPeerHealth().get("peer0").getSuccessCount());
+        assertEquals(1, queryBlock.getPeerHealth().get("peer1").getSuccessCount());
+    }
+
+    @Test
+    public void testHedgedReadFailsOverUnreachablePrimary() throws Exception {
+        List<Peer> peers = peers(2);
+        Channel channel = channel(peers);
+        unreachable(channel, peers.get(0));
+        answer(channel, peers.get(1), "a");
+        System.setProperty(HEDGE_ENABLED, "true");
+        queryBlock = queryBlock(ReadConsistency.SINGLE, channel);
+        assertEquals(ByteString.copyFromUtf8("a"), queryBlock.queryChaincodePayload("chaincode", "get",
+                new String[] {}));
+        assertEquals(1, queryBlock.getPeerHealth().get("peer0").getFailureCount());
+        assertEquals(0, queryBlock.getHedgedRequestExecutor().getHedgesWon());
+    }
+
+    @Test
+    public void testFirstResponseSkipsUnreachablePeer() throws Exception {
+        List<Peer> peers = peers(2);
+        Channel channel = channel(peers);
+        unreachable(channel, peers.get(0));
+        // The healthy peer answers after the unreachable one has failed
+        answer(channel, peers.get(1), "a", 200);
+        queryBlock = queryBlock(ReadConsistency.FIRST_RESPONSE, channel);
+        assertEquals(ByteString.copyFromUtf8("a"), queryBlock.queryChaincodePayload("chaincode", "get",
+                new String[] {}));
+        assertEquals(1, queryBlock.getPeerHealth().get("peer0").getFailureCount());
+    }
+
+    @Test
+    public void testUnreachablePeersDontVote() throws Exception {
+        List<Peer> peers = peers(3);
+        Channel channel = channel(peers);
+        unreachable(channel, peers.get(0));
+        unreachable(channel, peers.get(1));
+        answer(channel, peers.get(2), "a");
+        queryBlock = queryBlock(ReadConsistency.QUORUM, channel);
+        try {
+            queryBlock.queryChaincodePayload("chaincode", "get", new String[] {});
+            fail("Query answered by one of three peers");
+        } catch (BlkchnException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("Only 1 of 3 peers of channel mychannel answered"));
+        }
+    }
+
+    @Test
+    public void testQuorumCountsPeersWithOpenCircuit() throws Exception {
+        List<Peer> peers = peers(5);
+        Channel channel = channel(peers);
+        for (int i = 0; i < 3; i++) {
+            unreachable(channel, peers.get(i));
+        }
+        answer(channel, peers.get(3), "a");
+        answer(channel, peers.get(4), "a");
+        queryBlock = queryBlock(ReadConsistency.QUORUM, channel);
+        // Failures open the circuits of the unreachable peers
+        for (int i = 0; i < 3; i++) {
+            assertQueryFails("Only 2 of 5 peers of channel mychannel answered the query, 3 needed");
+        }
+        // The two peers left agree, but they are not a majority of five
+        assertQueryFails("Only 2 of 5 peers of channel mychannel are available, 3 needed");
+    }
+
+    private void assertQueryFails(String message) {
+        try {
+            queryBlock.queryChaincodePayload("chaincode", "get", new String[] {});
+            fail("Query answered without quorum");
+        } catch (BlkchnException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(message));
+        }
+    }
+
+    @Test
+    public void testNoCallResultCacheWithoutEventSources() {
+        Channel channel = channel(peers(2));
+        when(channel.getEventHubs()).thenReturn(Collections.<EventHub> emptyList());
+        when(channel.getPeers(EnumSet.of(Peer.PeerRole.EVENT_SOURCE))).thenReturn(Collections.<Peer> emptyList());
+        System.setProperty(CALL_RESULT_CACHE_SIZE, "10");
+        queryBlock = queryBlock(ReadConsistency.SINGLE, channel);
+        assertNull(queryBlock.getCallResultCache());
+    }
+
+    @Test
+    public void testCallResultCacheWithEventingPeer() {
+        List<Peer> peers = peers(2);
+        Channel channel = channel(peers);
+        when(channel.getEventHubs()).thenReturn(Collections.<EventHub> emptyList());
+        when(channel.getPeers(EnumSet.of(Peer.PeerRole.EVENT_SOURCE))).thenReturn(peers.subList(0, 1));
+        System.setProperty(CALL_RESULT_CACHE_SIZE, "10");
+        queryBlock = queryBlock(ReadConsistency.SINGLE, channel);
+        assertNotNull(queryBlock.getCallResultCache());
+    }
+
+    private static QueryBlock queryBlock(ReadConsistency consistency, Channel channel) {
+        System.setProperty(READ_CONSISTENCY, consistency.name());
+        QueryBlock queryBlock = new QueryBlock(CONFIG_PATH, "mychannel", null, null);
+        Whitebox.setInternalState(queryBlock, "channel", channel);
+        return queryBlock;
+    }
+
+    private static List<Peer> peers(int count) {
+        List<Peer> peers = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Peer peer = mock(Peer.class);
+            when(peer.getName()).thenReturn("peer" + i);
+            peers.add(peer);
+        }
+        return peers;
+    }
+
+    private static Channel channel(Collection<Peer> peers) {
+        Channel channel = mock(Channel.class);
+        when(channel.getName()).thenReturn("mychannel");
+        when(channel.getPeers()).thenReturn(peers);
+        return channel;
+    }
+
+    private static void answer(Channel channel, Peer peer, String payload) throws Exception {
+        answer(channel, peer, payload, 0);
+    }
+
+    private static void answer(Channel channel, Peer peer, String payload, long delay) throws Exception {
+        ProposalResponse response = mock(ProposalResponse.class);
+        when(response.getStatus()).thenReturn(ProposalResponse.Status.SUCCESS);
+        when(response.isVerified()).thenReturn(true);
+        when(response.getPeer()).thenReturn(peer);
+        when(response.getProposalResponse()).thenReturn(FabricProposalResponse.ProposalResponse.newBuilder()
+                .setResponse(FabricProposalResponse.Response.newBuilder().setPayload(ByteString.copyFromUtf8(payload)))
+                .build());
+        Collection<ProposalResponse> responses = Collections.singletonList(response);
+        when(channel.queryByChaincode(any(QueryByChaincodeRequest.class), eq(Collections.singletonList(peer))))
+                .thenAnswer(invocation -> {
+                    Thread.sleep(delay);
+                    return responses;
+                });
+    }
+
+    /*
+     * What the SDK returns for a peer it can't reach, rather than throwing
+     */
+    private static void unreachable(Channel channel, Peer peer) throws Exception {
+        ProposalResponse response = mock(ProposalResponse.class);
+        when(response.getStatus()).thenReturn(ProposalResponse.Status.FAILURE);
+        when(response.getMessage()).thenReturn("UNAVAILABLE: io exception");
+        when(response.getPeer()).thenReturn(peer);
+        Collection<ProposalResponse> responses = Collections.singletonList(response);
+        when(channel.queryByChaincode(any(QueryByChaincodeRequest.class), eq(Collections.singletonList(peer))))
+                .thenReturn(responses);
+    }
+}
@@ -18,7 +18,7 @@ package com.impetus.fabric.spark.connector.rdd
 import com.impetus.blkch.spark.connector.util.ConfigParam
 import org.apache.spark.SparkConf
 
-case class WriteConf(chaincode: String, function: String)
+case class WriteConf(chaincode: String, function: String, maxInFlight: Int = 16, maxFailedRows: Long = 0)
 
 object WriteConf {
   
@@ -36,9 +36,25 @@ object WriteConf {
         | in dataframe into Hyperledger fabric world state.
       """.stripMargin)
       
+  val MaxInFlight = ConfigParam[Int]("spark.fabric.write.maxInFlight",
+      16,
+      """
+        | Maximum number of chaincode invocations a partition has
+        | waiting for endorsement or commit at a time.
+      """.stripMargin)
+
+  val MaxFailedRows = ConfigParam[Long]("spark.fabric.write.maxFailedRows",
+      0,
+      """
+        | Number of rows of a partition whose invocation may fail before the
+        | write task fails. A negative value never fails the task.
+      """.stripMargin)
+
   val Properties = Set(
     ChaincodeName,
-    ChaincodeFunction
+    ChaincodeFunction,
+    MaxInFlight,
+    MaxFailedRows
   )
   
   def apply(conf: SparkConf): WriteConf = apply(conf, Map[String, String]())
@@ -54,7 +70,10 @@ object WriteConf {
       """.stripMargin)
     WriteConf(
       chaincode = conf.get(ChaincodeName.name, options.getOrElse(ChaincodeName.name, ChaincodeName.default)),
-      function = conf.get(ChaincodeFunction.name, options.getOrElse(ChaincodeFunction.name, ChaincodeFunction.default))
+      function = conf.get(ChaincodeFunction.name, options.getOrElse(ChaincodeFunction.name, ChaincodeFunction.default)),
+      maxInFlight = conf.getInt(MaxInFlight.name, options.get(MaxInFlight.name).map(_.toInt).getOrElse(MaxInFlight.default)),
+      maxFailedRows = conf.getLong(MaxFailedRows.name,
+        options.get(MaxFailedRows.name).map(_.toLong).getOrElse(MaxFailedRows.default))
     )
   }
 }
\ No newline at end of file
@@ -0,0 +1,138 @@
+/*******************************************************************************
+* * Copyright 2018 Impetus Infotech.
+* *
+* * Licensed under the Apache License, Version 2.0 (the "License");
+* * you may not use this file except in compliance with the License.
+* * You may obtain a copy of the License at
+* *
+* * http://www.apache.org/licenses/LICENSE-2.0
+* *
+* * Unless required by applicable law or agreed to in writing, software
+* * distributed under the License is distributed on an "AS IS" BASIS,
+* * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* * See the License for the specific language governing permissions and
+* * limitations under the License.
+******************************************************************************/
+package com.impetus.fabric.spark.connector.rdd.partitioner
+import com.impetus.blkch.spark.connector.BlkchnConnector
+import com.impetus.blkch.spark.connector.rdd.ReadConf
+import com.impetus.blkch.sql.query.RangeNode
+import com.impetus.blkch.util.{Range => BlkchRange}
+import com.impetus.fabric.jdbc.FabricStatement
+import java.{lang => jl}
+import scala.collection.mutable.ArrayBuffer
+import scala.collection.mutable.ListBuffer
+import com.impetus.blkch.spark.connector.rdd.partitioner.BlkchnPartition
+import com.impetus.blkch.spark.connector.rdd.partitioner.BlkchnPartitioner
+import scala.collection.JavaConversions._
+
+/**
+ * Splits the block_no range by estimated row count instead of block count, so
+ * that partitions over bursts of large blocks get fewer blocks than partitions
+ * over near-empty stretches. The transaction count of one block out of every
+ * total / sampleSize blocks is fetched and taken for the blocks that follow it.
+ */
+class TransactionWeightedFabricPartitioner(sampleSize: Int = 256) extends BlkchnPartitioner {
+
+  override def getPartitions(connector: BlkchnConnector, readConf: ReadConf): Array[BlkchnPartition] = {
+    require(sampleSize > 0, s"Sample size should be positive : $sampleSize")
+    val (rawRangesNodes, blockHeight) = connector.withStatementDo {
+      stat =>
+        (stat.getProbableRange(readConf.query), stat.getBlockHeight.longValue)
+    }
+
+    val ranges = rawRangesNodes.getRangeList.getRanges.toList.map{
+      range =>
+        val min = range.getMin.asInstanceOf[jl.Long].longValue
+        val max = range.getMax.asInstanceOf[jl.Long].longValue
+        (if(min == jl.Long.MIN_VALUE) 1l else min, if(max == jl.Long.MAX_VALUE) blockHeight - 1 else max)
+    }.filter(range => range._1 <= range._2)
+    if(ranges.isEmpty) {
+      return DefaultFabricPartitioner.getPartitions(connector, readConf)
+    }
+
+    val totalBlocks = ranges.map(range => range._2 - range._1 + 1).sum
+    val step = math.max(1l, totalBlocks / sampleSize)
+    val samples = ranges.flatMap(range => range._1 to range._2 by step)
+    val envelopeCounts = connector.withStatementDo {
+      stat =>
+        stat.asInstanceOf[FabricStatement].getEnvelopeCounts(seqAsJavaList(samples.map(blockNo => jl.Long.valueOf(blockNo))))
+    }
+
+    /* (first block, last block, weight of each block), every block costs one fetch plus its rows */
+    val segments = ranges.flatMap{
+      range =>
+        (range._1 to range._2 by step).map{
+          start =>
+            val weight = 1l + envelopeCounts.get(jl.Long.valueOf(start)).longValue
+            (start, math.min(start + step - 1, range._2), weight)
+        }
+    }
+    val totalWeight = segments.map(segment => (segment._2 - segment._1 + 1) * segment._3).sum
+
+    val split: Long = readConf.splitCount match {
+      case Some(split) =>
+        require(split > 0, s"Split should be positive : $split")
+        split.toLong
+      case None =>
+        readConf.fetchSizeInRows match {
+          case Some(rowSize) =>
+            require(rowSize > 0, s"Row Size should be positive : $rowSize")
+            (totalWeight + rowSize.toLong - 1) / rowSize.toLong
+          case None => 1l
+        }
+    }
+
+    val partitionRanges = TransactionWeightedFabricPartitioner.splitSegments(segments, split)
+    partitionRanges.zipWithIndex.map{
+      case (rngLst, i) =>
+        /*Passing table name null and call setTableName function from physical plan paginate method*/
+        val rangeNode = new RangeNode[jl.Long]("","block_no")
+        for((x, y) <- rngLst) {
+          rangeNode.getRangeList.addRange(new BlkchRange[jl.Long](x, y))
+        }
+        new BlkchnPartition(i, rangeNode, readConf)
+    }.toArray
+  }
+}
+
+case object TransactionWeightedFabricPartitioner extends TransactionWeightedFabricPartitioner() {
+
+  /**
+   * Groups segments of (first block, last block, weight of each block), in block
+   * order, into at most split lists of block ranges of about the same weight.
+   * Contiguous blocks in a partition are merged into one range.
+   */
+  private[partitioner] def splitSegments(segments: Seq[(Long, Long, Long)], split: Long): Seq[List[(Long, Long)]] = {
+    val totalWeight = segments.map(segment => (segment._2 - segment._1 + 1) * segment._3).sum
+    val target = math.max(1l, (totalWeight + split - 1) / split)
+
+    val partitionRanges = ArrayBuffer[List[(Long, Long)]]()
+    var current = ListBuffer[(Long, Long)]()
+    var currentWeight = 0l
+    for((start, end, weight) <- segments) {
+      var from = start
+      while(from <= end) {
+        val isLast = partitionRanges.size == split - 1
+        val blocks = if(isLast) end - from + 1 else math.max(1l, (target - currentWeight + weight - 1) / weight)
+        val to = math.min(end, from + blocks - 1)
+        if(current.nonEmpty && current.last._2 + 1 == from) {
+          current(current.size - 1) = (current.last._1, to)
+        } else {
+          current += ((from, to))
+        }
+        currentWeight += (to - from + 1) * weight
+        from = to + 1
+        if(!isLast && currentWeight >= target) {
+          partitionRanges += current.toList
+          current = ListBuffer[(Long, Long)]()
+          currentWeight = 0l
+        }
+      }
+    }
+    if(current.nonEmpty) {
+      partitionRanges += current.toList
+    }
+    partitionRanges
+  }
+}
@@ -19,28 +19,45 @@ import com.impetus.blkch.spark.connector.BlkchnConnector
 import com.impetus.blkch.spark.connector.rdd.ReadConf
 import com.impetus.blkch.spark.connector.util.Logging
 import org.apache.spark.sql.{Row, SQLContext}
-import org.apache.spark.sql.sources.{BaseRelation, RelationProvider, SchemaRelationProvider}
-import org.apache.spark.sql.blkch.BlkchnSourceRelation
+import org.apache.spark.sql.execution.streaming.Source
+import org.apache.spark.sql.sources.{BaseRelation, RelationProvider, SchemaRelationProvider, StreamSourceProvider}
 import org.apache.spark.sql.types.StructType
 import java.util.logging.Logging
 
-class DefaultSource extends RelationProvider with SchemaRelationProvider with Logging {
+class DefaultSource extends RelationProvider with SchemaRelationProvider with StreamSourceProvider with Logging {
 
   override def createRelation(sqlContext: SQLContext, parameters: Map[String, String]): BaseRelation = {
-    val readConf = ReadConf(sqlContext.sparkContext.conf, parameters)
-    val readConfOptions = readConf.asOptions()
-    val options = for((key, value) <- parameters; if(!readConfOptions.contains(key))) yield {
-      (key, value)
-    }
+    val (readConf, options) = getReadConf(sqlContext, parameters)
     val rdd = FabricSpark.load[Row](sqlContext.sparkContext, readConf, options)
     val schema = rdd.getSchema()
-    BlkchnSourceRelation(rdd, schema)(sqlContext)
+    FabricSourceRelation(readConf, options, schema)(sqlContext)
   }
 
   override def createRelation(sqlContext: SQLContext, parameters: Map[String, String], schema: StructType): BaseRelation = {
     val readConf = ReadConf(sqlContext.sparkContext.conf, parameters)
-    val rdd = FabricSpark.load[Row](sqlContext.sparkContext, readConf)
-    val _schema = if(schema == null) rdd.first.schema else schema
-    BlkchnSourceRelation(rdd, _schema)(sqlContext)
+    val _schema = if(schema == null) FabricSpark.load[Row](sqlContext.sparkContext, readConf).first.schema else schema
+    FabricSourceRelation(readConf, Map(), _schema)(sqlContext)
+  }
+
+  override def sourceSchema(sqlContext: SQLContext, schema: Option[StructType], providerName: String,
+      parameters: Map[String, String]): (String, StructType) = {
+    val (readConf, options) = getReadConf(sqlContext, parameters)
+    (FabricFormat, schema.getOrElse(FabricSpark.load[Row](sqlContext.sparkContext, readConf, options).getSchema()))
+  }
+
+  override def createSource(sqlContext: SQLContext, metadataPath: String, schema: Option[StructType],
+      providerName: String, parameters: Map[String, String]): Source = {
+    val (readConf, options) = getReadConf(sqlContext, parameters)
+    val _schema = schema.getOrElse(FabricSpark.load[Row](sqlContext.sparkContext, readConf, options).getSchema())
+    FabricStreamSource(sqlContext, metadataPath, readConf, options, _schema)
+  }
+
+  private def getReadConf(sqlContext: SQLContext, parameters: Map[String, String]): (ReadConf, Map[String, String]) = {
+    val readConf = ReadConf(sqlContext.sparkContext.conf, parameters)
+    val readConfOptions = readConf.asOptions()
+    val options = for((key, value) <- parameters; if(!readConfOptions.contains(key))) yield {
+      (key, value)
+    }
+    (readConf, options)
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,86 @@
+/*******************************************************************************
+* * Copyright 2018 Impetus Infotech.
+* *
+* * Licensed under the Apache License, Version 2.0 (the "License");
+* * you may not use this file except in compliance with the License.
+* * You may obtain a copy of the License at
+* *
+* * http://www.apache.org/licenses/LICENSE-2.0
+* *
+* * Unless required by applicable law or agreed to in writing, software
+* * distributed under the License is distributed on an "AS IS" BASIS,
+* * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* * See the License for the specific language governing permissions and
+* * limitations under the License.
+******************************************************************************/
+package org.apache.spark.sql.fabric
+
+import java.security.MessageDigest
+import java.sql.DriverManager
+import java.util.concurrent.ConcurrentHashMap
+
+import com.impetus.blkch.jdbc.BlkchnConnection
+import com.impetus.fabric.jdbc.FabricConnection
+import org.slf4j.LoggerFactory
+
+import scala.collection.JavaConversions._
+
+/**
+ * JVM wide cache of Fabric connections, so that all tasks running on an executor
+ * share one enrollment and channel per config path, channel and user instead of
+ * creating them per task. The QueryBlock of a connection is thread safe, so tasks
+ * use a cached connection concurrently. Cached connections are released when the
+ * JVM exits.
+ */
+object FabricConnectionCache {
+
+  /* Keyed on a digest of the password, so a wrong password can't reuse another login's enrollment */
+  private[fabric] case class ConnectionKey(configPath: String, channel: String, username: String, passwordDigest: String)
+
+  private val logger = LoggerFactory.getLogger(getClass)
+
+  private val connections = new ConcurrentHashMap[ConnectionKey, BlkchnConnection]
+
+  private[fabric] val releaseHook = new Thread("fabric-connection-cache-release") {
+    override def run(): Unit = releaseAll()
+  }
+
+  Runtime.getRuntime.addShutdownHook(releaseHook)
+
+  def getConnection(configPath: String, channel: String, username: String, password: String): BlkchnConnection = {
+    getConnection(ConnectionKey(configPath, channel, username, digest(password)), {
+      val jdbcUrl = "jdbc:fabric://" + configPath + ":" + channel
+      val connection = DriverManager.getConnection(jdbcUrl, username, password).asInstanceOf[BlkchnConnection]
+      logger.info(s"Cached connection to channel $channel of $configPath for user $username")
+      connection
+    })
+  }
+
+  private[fabric] def getConnection(key: ConnectionKey, connect: => BlkchnConnection): BlkchnConnection = {
+    /* Connecting enrolls with the CA, computeIfAbsent makes sure it happens once per key */
+    connections.computeIfAbsent(key, new java.util.function.Function[ConnectionKey, BlkchnConnection] {
+      override def apply(key: ConnectionKey): BlkchnConnection = connect
+    })
+  }
+
+  private[fabric] def digest(password: String): String = {
+    val bytes = MessageDigest.getInstance("SHA-256").digest(String.valueOf(password).getBytes("UTF-8"))
+    bytes.map("%02x".format(_)).mkString
+  }
+
+  def size: Int = connections.size
+
+  def releaseAll(): Unit = {
+    for(key <- connections.keySet.toList) {
+      Option(connections.remove(key)).foreach {
+        case connection: FabricConnection =>
+          try {
+            connection.release()
+          } catch {
+            case e: Exception => logger.warn(s"Error releasing connection to channel ${key.channel}", e)
+          }
+        case connection => connection.close()
+      }
+    }
+  }
+}
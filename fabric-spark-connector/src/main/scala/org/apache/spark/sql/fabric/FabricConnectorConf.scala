@@ -15,8 +15,6 @@
 ******************************************************************************/
 package org.apache.spark.sql.fabric
 
-import java.sql.DriverManager
-
 import com.impetus.blkch.jdbc.BlkchnConnection
 import com.impetus.blkch.spark.connector.BlkchnConnectorConf
 import com.impetus.blkch.spark.connector.util.ConfigParam
@@ -35,8 +33,7 @@ class FabricConnectorConf(conf: SparkConf, options: Map[String, String]) extends
                     options.getOrElse(FabricConnectorConf.Password.name, FabricConnectorConf.Password.default))
 
   override def getConnection(): BlkchnConnection = {
-    val jdbcUrl = "jdbc:fabric://" + configPath + ":" + channel
-    DriverManager.getConnection(jdbcUrl, username, password).asInstanceOf[BlkchnConnection]
+    FabricConnectionCache.getConnection(configPath, channel, username, password)
   }
 
   override def toString: String = {
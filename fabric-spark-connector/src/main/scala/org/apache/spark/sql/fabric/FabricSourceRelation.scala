@@ -0,0 +1,176 @@
+/*******************************************************************************
+* * Copyright 2018 Impetus Infotech.
+* *
+* * Licensed under the Apache License, Version 2.0 (the "License");
+* * you may not use this file except in compliance with the License.
+* * You may obtain a copy of the License at
+* *
+* * http://www.apache.org/licenses/LICENSE-2.0
+* *
+* * Unless required by applicable law or agreed to in writing, software
+* * distributed under the License is distributed on an "AS IS" BASIS,
+* * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* * See the License for the specific language governing permissions and
+* * limitations under the License.
+******************************************************************************/
+package org.apache.spark.sql.fabric
+
+import com.impetus.blkch.spark.connector.BlkchnConnector
+import com.impetus.blkch.spark.connector.rdd.ReadConf
+import org.apache.spark.rdd.RDD
+import org.apache.spark.sql.{Row, SQLContext}
+import org.apache.spark.sql.sources._
+import org.apache.spark.sql.types.{NumericType, StructType}
+
+/**
+ * Relation over a Fabric query that pushes Spark column pruning and simple filters
+ * into the query sent to the driver. The query given in ReadConf is rewritten only
+ * when it has the form SELECT * or SELECT col, ... FROM table [WHERE ...]; any
+ * other query is run as is and pruned in Spark. Spark evaluates all filters again
+ * on the returned rows, so a filter the driver ignores only costs performance.
+ * Scans needing no column, as for count, over a block_no range of block or
+ * transaction are answered by a count(*) query, which the driver computes from
+ * block metadata without decoding rows.
+ */
+case class FabricSourceRelation(readConf: ReadConf, options: Map[String, String], schema: StructType)
+    (@transient val sqlContext: SQLContext) extends BaseRelation with PrunedFilteredScan {
+
+  override def buildScan(requiredColumns: Array[String], filters: Array[Filter]): RDD[Row] = {
+    val countQuery = if(requiredColumns.isEmpty) FabricSourceRelation.countQuery(readConf.query, filters, schema)
+      else None
+    countQuery match {
+      case Some(query) =>
+        val connector = new BlkchnConnector(FabricConnectorConf(sqlContext.sparkContext.conf, options))
+        val count = connector.withStatementDo { stat =>
+          val rs = stat.executeQuery(query)
+          try {
+            if(rs.next()) rs.getLong(1) else 0l
+          } finally {
+            rs.close()
+          }
+        }
+        val sc = sqlContext.sparkContext
+        sc.range(0, count, 1, readConf.splitCount.getOrElse(sc.defaultParallelism)).map(_ => Row.empty)
+      case None => scan(requiredColumns, filters)
+    }
+  }
+
+  private def scan(requiredColumns: Array[String], filters: Array[Filter]): RDD[Row] = {
+    FabricSourceRelation.rewriteQuery(readConf.query, requiredColumns, filters, schema) match {
+      case Some(query) =>
+        val rdd = FabricSpark.load[Row](sqlContext.sparkContext,
+          ReadConf(readConf.splitCount, readConf.fetchSizeInRows, query), options)
+        if(requiredColumns.isEmpty) rdd.map(_ => Row.empty) else rdd
+      case None =>
+        val rdd = FabricSpark.load[Row](sqlContext.sparkContext, readConf, options)
+        val indices = requiredColumns.map(schema.fieldIndex)
+        rdd.map(row => Row.fromSeq(indices.map(row.get)))
+    }
+  }
+}
+
+object FabricSourceRelation {
+
+  private val SimpleQuery = """(?is)\s*select\s+(.+?)\s+from\s+(\w+)(?:\s+where\s+(.+?))?\s*;?\s*""".r
+
+  private val Identifier = """\w+""".r
+
+  private val TrailingClause = """(?is).*\b(group|having|order|limit)\b.*""".r
+
+  /* Conditions on block_no alone, which the driver turns into a block range */
+  private val BlockRangeCondition = """(?is)(\s|\(|\)|\bblock_no\b|\band\b|\bor\b|[<>]=?|=|\d+)*""".r
+
+  private val CountableTables = Set("block", "transaction")
+
+  /**
+   * Returns the query selecting only the required columns with the translatable
+   * filters added to its where clause, or None when the query can't be rewritten.
+   */
+  def rewriteQuery(query: String, requiredColumns: Array[String], filters: Array[Filter],
+      schema: StructType): Option[String] = {
+    query match {
+      case SimpleQuery(selectList, table, where) if isPlainSelectList(selectList) &&
+          (where == null || !TrailingClause.pattern.matcher(where).matches) =>
+        /* Something has to be selected even when Spark needs no column, e.g. for count */
+        val columns = if(requiredColumns.isEmpty) Array(schema.fields.head.name) else requiredColumns
+        val conditions = Option(where).map(condition => s"($condition)").toSeq ++
+          filters.flatMap(filter => compileFilter(filter, schema))
+        Some(buildQuery(columns.mkString(", "), table, conditions))
+      case _ => None
+    }
+  }
+
+  /**
+   * Returns the count(*) query over the rows of the query matching the filters, when
+   * the driver can answer it from block metadata: the table is block or transaction
+   * and there are conditions, all on block_no. None otherwise.
+   */
+  def countQuery(query: String, filters: Array[Filter], schema: StructType): Option[String] = {
+    query match {
+      case SimpleQuery(selectList, table, where) if isPlainSelectList(selectList) &&
+          CountableTables.contains(table.toLowerCase) =>
+        val compiled = filters.map(filter => compileFilter(filter, schema))
+        val conditions = Option(where).map(condition => s"($condition)").toSeq ++ compiled.flatten
+        /* The driver refuses queries without a where clause */
+        if(conditions.nonEmpty && compiled.forall(_.isDefined) && conditions.forall(BlockRangeCondition.pattern.matcher(_).matches)) {
+          Some(buildQuery("count(*)", table, conditions))
+        } else {
+          None
+        }
+      case _ => None
+    }
+  }
+
+  private def buildQuery(selectList: String, table: String, conditions: Seq[String]): String = {
+    val sb = new StringBuilder("SELECT ")
+    sb.append(selectList)
+    sb.append(" FROM ")
+    sb.append(table)
+    if(conditions.nonEmpty) {
+      sb.append(" WHERE ")
+      sb.append(conditions.mkString(" AND "))
+    }
+    sb.toString
+  }
+
+  private def isPlainSelectList(selectList: String): Boolean = {
+    selectList.trim == "*" || selectList.split(",").forall(column => Identifier.pattern.matcher(column.trim).matches)
+  }
+
+  /**
+   * The driver compares string columns for equality only, so ordering filters are
+   * pushed for numeric columns alone. block_no is numeric in every table, even when
+   * not selected.
+   */
+  def compileFilter(filter: Filter, schema: StructType): Option[String] = {
+    def isNumeric(attr: String): Boolean = attr == "block_no" || (schema.fieldNames.contains(attr) &&
+      schema(attr).dataType.isInstanceOf[NumericType])
+    filter match {
+      case EqualTo(attr, value) => compileValue(value).map(v => s"$attr = $v")
+      case GreaterThan(attr, value) if isNumeric(attr) => compileValue(value).map(v => s"$attr > $v")
+      case GreaterThanOrEqual(attr, value) if isNumeric(attr) => compileValue(value).map(v => s"$attr >= $v")
+      case LessThan(attr, value) if isNumeric(attr) => compileValue(value).map(v => s"$attr < $v")
+      case LessThanOrEqual(attr, value) if isNumeric(attr) => compileValue(value).map(v => s"$attr <= $v")
+      case In(attr, values) if values.nonEmpty =>
+        val compiled = values.map(compileValue)
+        if(compiled.forall(_.isDefined)) Some(compiled.map(v => s"$attr = ${v.get}").mkString("(", " OR ", ")"))
+        else None
+      case And(left, right) =>
+        (compileFilter(left, schema), compileFilter(right, schema)) match {
+          case (Some(l), Some(r)) => Some(s"($l AND $r)")
+          case (Some(l), None) => Some(l)
+          case (None, Some(r)) => Some(r)
+          case _ => None
+        }
+      case Or(left, right) =>
+        for(l <- compileFilter(left, schema); r <- compileFilter(right, schema)) yield s"($l OR $r)"
+      case _ => None
+    }
+  }
+
+  private def compileValue(value: Any): Option[String] = value match {
+    case s: String if !s.contains("'") => Some(s"'$s'")
+    case n @ (_: Byte | _: Short | _: Int | _: Long) => Some(n.toString)
+    case _ => None
+  }
+}
@@ -17,15 +17,23 @@ package org.apache.spark.sql.fabric
 
 import javassist.bytecode.stackmap.TypeTag
 
+import com.impetus.blkch.BlkchnException
 import com.impetus.blkch.spark.connector.BlkchnConnector
 import com.impetus.blkch.spark.connector.rdd.ReadConf
-import org.apache.spark.SparkContext
+import java.util.concurrent.Semaphore
+import java.util.concurrent.atomic.{AtomicLong, AtomicReference}
+import java.util.function.BiConsumer
+
+import com.impetus.fabric.jdbc.FabricStatement
+import org.apache.spark.{SparkContext, TaskContext}
+import org.slf4j.LoggerFactory
 import org.apache.spark.sql.{DataFrame, SparkSession}
 import org.apache.spark.sql.types.StructType
 
 import scala.reflect.ClassTag
 import com.impetus.blkch.spark.connector.rdd.partitioner.BlkchnPartitioner
 import com.impetus.fabric.spark.connector.rdd.partitioner.DefaultFabricPartitioner
+import com.impetus.fabric.spark.connector.rdd.partitioner.TransactionWeightedFabricPartitioner
 //import com.impetus.fabric.spark.connector.rdd.FabricRDD
 import com.impetus.blkch.spark.connector.rdd.BlkchnRDD
 import com.impetus.fabric.spark.connector.rdd.WriteConf
@@ -49,32 +57,63 @@ case class FabricSpark private(sparkSession: SparkSession, connector: BlkchnConn
           .options(readConfOptions).options(extraOptions).load()
   }
   
+  /**
+   * Invokes the chaincode function once per row with the row's values as arguments.
+   * Each partition keeps up to writeConf.maxInFlight invocations in flight and logs
+   * its throughput and failed row count; the totals are logged on the driver. A
+   * partition with more than writeConf.maxFailedRows failed rows fails its task,
+   * and a retried task invokes the chaincode again for all of its rows.
+   */
   def save(dataframe: DataFrame): Unit = {
-    
-    def createInsertStat(row: Row): String = {
-      val sb = new StringBuilder
-              sb.append("INSERT INTO ")
-              sb.append(writeConf.chaincode)
-              sb.append(" VALUES(")
-              sb.append("'" + writeConf.function + "'")
-              for(i <- 0 until row.size) {
-                sb.append(",")
-                sb.append("'" + (if(row.get(i) == null) null else row.get(i).toString) + "'")
-              }
-              sb.append(")")
-              sb.toString
-    }
-    
+    val conn = connector
+    val conf = writeConf
+    val sc = dataframe.sparkSession.sparkContext
+    val rowsWritten = sc.longAccumulator("fabric.write.rows")
+    val rowsFailed = sc.longAccumulator("fabric.write.failedRows")
+    require(conf.maxInFlight > 0, s"Max in flight should be positive : ${conf.maxInFlight}")
+
     dataframe.foreachPartition { 
       rows =>
-        connector.withStatementDo { 
-          stat => 
+        conn.withStatementDo { 
+          stat =>
+            val fabricStat = stat.asInstanceOf[FabricStatement]
+            val inFlight = new Semaphore(conf.maxInFlight)
+            val failed = new AtomicLong
+            val firstError = new AtomicReference[Throwable]
+            val start = System.currentTimeMillis
+            var count = 0l
             for(row <- rows) {
-              val insertCmd = createInsertStat(row)
-              stat.execute(insertCmd)
-            } 
+              val args = Array.tabulate(row.size)(i => String.valueOf(row.get(i)))
+              inFlight.acquire()
+              count += 1
+              fabricStat.invokeChaincodeAsync(conf.chaincode, conf.function, args).whenComplete(
+                new BiConsumer[String, Throwable] {
+                  override def accept(txId: String, error: Throwable): Unit = {
+                    if(error != null) {
+                      failed.incrementAndGet
+                      firstError.compareAndSet(null, error)
+                    }
+                    inFlight.release()
+                  }
+                })
+            }
+            /* Wait for the invocations still in flight */
+            inFlight.acquire(conf.maxInFlight)
+            inFlight.release(conf.maxInFlight)
+            val elapsed = math.max(1l, System.currentTimeMillis - start)
+            val logger = LoggerFactory.getLogger(classOf[FabricSpark])
+            logger.info(s"Partition ${TaskContext.getPartitionId} wrote ${count - failed.get} rows, " +
+              s"${failed.get} failed, in $elapsed ms (${count * 1000 / elapsed} rows/s)")
+            if(firstError.get != null) {
+              logger.warn("First failed invocation of partition " + TaskContext.getPartitionId, firstError.get)
+            }
+            rowsWritten.add(count - failed.get)
+            rowsFailed.add(failed.get)
+            FabricSpark.checkFailedRows(failed.get, conf.maxFailedRows, firstError.get)
         }
     }
+    LoggerFactory.getLogger(classOf[FabricSpark]).info(s"Wrote ${rowsWritten.value} rows to chaincode " +
+      s"${conf.chaincode}, ${rowsFailed.value} failed")
   }
 
 }
@@ -83,6 +122,13 @@ object FabricSpark {
 
   private def builder(): Builder = new Builder
 
+  private[fabric] def checkFailedRows(failed: Long, maxFailedRows: Long, firstError: Throwable): Unit = {
+    if(maxFailedRows >= 0 && failed > maxFailedRows) {
+      throw new BlkchnException(s"$failed chaincode invocations of partition ${TaskContext.getPartitionId} failed, " +
+        s"more than the $maxFailedRows allowed by ${WriteConf.MaxFailedRows.name}", firstError)
+    }
+  }
+
   def load[D: ClassTag](sc: SparkContext): BlkchnRDD[D] = load(sc, ReadConf(sc.conf))
 
   def load[D: ClassTag](sc: SparkContext, readConf: ReadConf): BlkchnRDD[D] = load(sc, readConf, Map())
@@ -192,4 +238,9 @@ object FabricSpark {
   object implicits extends Serializable {
     implicit def getFabricPartitioner: BlkchnPartitioner = DefaultFabricPartitioner
   }
+
+  /* Splits by estimated transaction count, for ledgers with uneven block sizes */
+  object transactionWeightedImplicits extends Serializable {
+    implicit def getFabricPartitioner: BlkchnPartitioner = TransactionWeightedFabricPartitioner
+  }
 }
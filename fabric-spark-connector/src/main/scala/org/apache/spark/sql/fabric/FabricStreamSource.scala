@@ -0,0 +1,134 @@
+/*******************************************************************************
+* * Copyright 2018 Impetus Infotech.
+* *
+* * Licensed under the Apache License, Version 2.0 (the "License");
+* * you may not use this file except in compliance with the License.
+* * You may obtain a copy of the License at
+* *
+* * http://www.apache.org/licenses/LICENSE-2.0
+* *
+* * Unless required by applicable law or agreed to in writing, software
+* * distributed under the License is distributed on an "AS IS" BASIS,
+* * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* * See the License for the specific language governing permissions and
+* * limitations under the License.
+******************************************************************************/
+package org.apache.spark.sql.fabric
+
+import com.impetus.blkch.spark.connector.BlkchnConnector
+import com.impetus.blkch.spark.connector.rdd.ReadConf
+import com.impetus.blkch.spark.connector.util.ConfigParam
+import org.apache.spark.sql.{DataFrame, Row, SQLContext}
+import org.apache.spark.sql.execution.streaming.{HDFSMetadataLog, LongOffset, Offset, Source}
+import org.apache.spark.sql.sources.{GreaterThanOrEqual, LessThanOrEqual}
+import org.apache.spark.sql.types.StructType
+
+/**
+ * Structured streaming source over a Fabric query. The offset is the number of
+ * the last block read, and every micro batch runs the query over the blocks added
+ * since the previous one, through the same range scan as batch reads.
+ */
+class FabricStreamSource(sqlContext: SQLContext, metadataPath: String, readConf: ReadConf,
+    options: Map[String, String], override val schema: StructType, startingBlock: Long,
+    maxBlocksPerTrigger: Option[Long]) extends Source {
+
+  require(FabricSourceRelation.rewriteQuery(readConf.query, schema.fieldNames, Array(), schema).isDefined,
+    s"Only queries of the form SELECT columns FROM table [WHERE condition] can be streamed : ${readConf.query}")
+  require(startingBlock > 0, s"Starting block should be positive : $startingBlock")
+  maxBlocksPerTrigger.foreach(limit => require(limit > 0, s"Max blocks per trigger should be positive : $limit"))
+
+  private val connector = new BlkchnConnector(FabricConnectorConf(sqlContext.sparkContext.conf, options))
+
+  private lazy val metadataLog = new HDFSMetadataLog[LongOffset](sqlContext.sparkSession, metadataPath)
+
+  /* Offset before the first batch, logged so that a restarted query starts from the same block */
+  private lazy val initialOffset: Long = {
+    metadataLog.get(0).getOrElse {
+      val offset = LongOffset(startingBlock - 1)
+      metadataLog.add(0, offset)
+      offset
+    }.offset
+  }
+
+  private var currentOffset: Option[Long] = None
+
+  /*
+   * End of the latest batch. Batch ends follow the initial offset in the log, so a
+   * restarted query resumes from its last batch even when getOffset runs before getBatch.
+   */
+  private def lastOffset: Long = currentOffset.getOrElse {
+    val offset = math.max(initialOffset, metadataLog.getLatest().map(_._2.offset).getOrElse(initialOffset))
+    currentOffset = Some(offset)
+    offset
+  }
+
+  override def getOffset: Option[Offset] = {
+    val latest = connector.withStatementDo(stat => stat.getBlockHeight.longValue) - 1
+    val end = FabricStreamSource.nextOffset(latest, lastOffset, maxBlocksPerTrigger)
+    if(end <= initialOffset) None else Some(LongOffset(end))
+  }
+
+  override def getBatch(start: Option[Offset], end: Offset): DataFrame = {
+    val from = start.map(offsetValue).getOrElse(initialOffset) + 1
+    val to = offsetValue(end)
+    if(to > lastOffset) {
+      metadataLog.add(metadataLog.getLatest().map(_._1 + 1).getOrElse(1l), LongOffset(to))
+      currentOffset = Some(to)
+    }
+    if(from > to) {
+      sqlContext.createDataFrame(sqlContext.sparkContext.emptyRDD[Row], schema)
+    } else {
+      val query = FabricSourceRelation.rewriteQuery(readConf.query, schema.fieldNames,
+        Array(GreaterThanOrEqual("block_no", from), LessThanOrEqual("block_no", to)), schema).get
+      val rdd = FabricSpark.load[Row](sqlContext.sparkContext,
+        ReadConf(readConf.splitCount, readConf.fetchSizeInRows, query), options)
+      sqlContext.createDataFrame(rdd, schema)
+    }
+  }
+
+  private def offsetValue(offset: Offset): Long = offset match {
+    case LongOffset(value) => value
+    case _ => throw new IllegalArgumentException(s"Invalid offset for fabric stream : $offset")
+  }
+
+  override def stop(): Unit = {
+    // Connections are shared through FabricConnectionCache, nothing to release here
+  }
+
+  override def toString: String = s"FabricStreamSource[${readConf.query}]"
+}
+
+object FabricStreamSource {
+
+  val StartingBlock = ConfigParam[Long]("spark.fabric.stream.startingBlock",
+    1l,
+    """
+      | Number of the first block a new streaming query reads. A restarted query
+      | continues from its checkpoint instead.
+    """.stripMargin)
+
+  val MaxBlocksPerTrigger = ConfigParam[Long]("spark.fabric.stream.maxBlocksPerTrigger",
+    -1l,
+    """
+      | Maximum number of blocks read per micro batch, no limit when not positive.
+    """.stripMargin)
+
+  /* End of the next batch, never before the end of the last one even when a peer lags behind */
+  private[fabric] def nextOffset(latest: Long, last: Long, maxBlocksPerTrigger: Option[Long]): Long = {
+    val end = maxBlocksPerTrigger match {
+      case Some(limit) => math.min(latest, last + limit)
+      case None => latest
+    }
+    math.max(last, end)
+  }
+
+  def apply(sqlContext: SQLContext, metadataPath: String, readConf: ReadConf, options: Map[String, String],
+      schema: StructType): FabricStreamSource = {
+    val conf = sqlContext.sparkContext.conf
+    def getLong(param: ConfigParam[Long]): Long =
+      options.get(param.name).map(_.toLong).getOrElse(conf.getLong(param.name, param.default))
+    val maxBlocks = getLong(MaxBlocksPerTrigger)
+    new FabricStreamSource(sqlContext, metadataPath, readConf, options, schema, getLong(StartingBlock),
+      if(maxBlocks > 0) Some(maxBlocks) else None)
+  }
+}
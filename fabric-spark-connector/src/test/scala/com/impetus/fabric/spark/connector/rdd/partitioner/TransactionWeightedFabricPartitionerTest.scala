@@ -0,0 +1,46 @@
+/*******************************************************************************
+* * Copyright 2018 Impetus Infotech.
+* *
+* * Licensed under the Apache License, Version 2.0 (the "License");
+* * you may not use this file except in compliance with the License.
+* * You may obtain a copy of the License at
+* *
+* * http://www.apache.org/licenses/LICENSE-2.0
+* *
+* * Unless required by applicable law or agreed to in writing, software
+* * distributed under the License is distributed on an "AS IS" BASIS,
+* * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* * See the License for the specific language governing permissions and
+* * limitations under the License.
+******************************************************************************/
+package com.impetus.fabric.spark.connector.rdd.partitioner
+
+import org.scalatest.FlatSpec
+
+import com.impetus.test.catagory.UnitTest
+
+@UnitTest
+class TransactionWeightedFabricPartitionerTest extends FlatSpec {
+
+  "TransactionWeightedFabricPartitioner" should "split blocks of equal weight evenly" in {
+    val partitions = TransactionWeightedFabricPartitioner.splitSegments(Seq((1l, 10l, 1l)), 2)
+    assert(partitions == Seq(List((1l, 5l)), List((6l, 10l))))
+  }
+
+  it should "give heavy blocks partitions of their own" in {
+    val partitions = TransactionWeightedFabricPartitioner.splitSegments(Seq((1l, 10l, 1l), (11l, 12l, 10l)), 3)
+    assert(partitions == Seq(List((1l, 10l)), List((11l, 11l)), List((12l, 12l))))
+  }
+
+  it should "merge contiguous segments and keep gaps between ranges" in {
+    val partitions = TransactionWeightedFabricPartitioner.splitSegments(
+        Seq((1l, 2l, 3l), (3l, 4l, 1l), (7l, 9l, 1l)), 1)
+    assert(partitions == Seq(List((1l, 4l), (7l, 9l))))
+  }
+
+  it should "never make more partitions than asked for" in {
+    val partitions = TransactionWeightedFabricPartitioner.splitSegments(Seq((1l, 3l, 100l), (4l, 100l, 1l)), 2)
+    assert(partitions.size == 2)
+    assert(partitions.flatten.head._1 == 1l && partitions.flatten.last._2 == 100l)
+  }
+}
@@ -0,0 +1,92 @@
+/*******************************************************************************
+* * Copyright 2018 Impetus Infotech.
+* *
+* * Licensed under the Apache License, Version 2.0 (the "License");
+* * you may not use this file except in compliance with the License.
+* * You may obtain a copy of the License at
+* *
+* * http://www.apache.org/licenses/LICENSE-2.0
+* *
+* * Unless required by applicable law or agreed to in writing, software
+* * distributed under the License is distributed on an "AS IS" BASIS,
+* * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* * See the License for the specific language governing permissions and
+* * limitations under the License.
+******************************************************************************/
+package org.apache.spark.sql.fabric
+
+import java.lang.reflect.{InvocationHandler, Method, Proxy}
+import java.util.concurrent.atomic.AtomicInteger
+
+import com.impetus.blkch.jdbc.BlkchnConnection
+import org.scalatest.{BeforeAndAfter, FlatSpec}
+
+import com.impetus.test.catagory.UnitTest
+
+@UnitTest
+class FabricConnectionCacheTest extends FlatSpec with BeforeAndAfter {
+
+  import FabricConnectionCache.ConnectionKey
+
+  private val closed = new AtomicInteger
+
+  private def connection(): BlkchnConnection = {
+    Proxy.newProxyInstance(getClass.getClassLoader, Array[Class[_]](classOf[BlkchnConnection]),
+      new InvocationHandler {
+        override def invoke(proxy: Any, method: Method, args: Array[AnyRef]): AnyRef = method.getName match {
+          case "close" => closed.incrementAndGet; null
+          case "hashCode" => Int.box(System.identityHashCode(proxy))
+          case "equals" => Boolean.box(proxy.asInstanceOf[AnyRef] eq args(0))
+          case _ => null
+        }
+      }).asInstanceOf[BlkchnConnection]
+  }
+
+  private def key(password: String) = ConnectionKey("/tmp/blkchn", "mychannel", "impadmin",
+    FabricConnectionCache.digest(password))
+
+  before {
+    FabricConnectionCache.releaseAll()
+    closed.set(0)
+  }
+
+  "FabricConnectionCache" should "connect once per key and share the connection" in {
+    val connects = new AtomicInteger
+    val first = FabricConnectionCache.getConnection(key("pw"), { connects.incrementAndGet; connection() })
+    val second = FabricConnectionCache.getConnection(key("pw"), { connects.incrementAndGet; connection() })
+    assert(first eq second)
+    assert(connects.get == 1)
+    assert(FabricConnectionCache.size == 1)
+  }
+
+  it should "not share a connection with a different password" in {
+    val first = FabricConnectionCache.getConnection(key("pw"), connection())
+    val second = FabricConnectionCache.getConnection(key("wrong"), connection())
+    assert(!(first eq second))
+    assert(FabricConnectionCache.size == 2)
+  }
+
+  it should "not keep the plaintext password" in {
+    assert(!key("pw").productIterator.contains("pw"))
+    assert(key("pw").passwordDigest.length == 64)
+    assert(key("pw") == key("pw"))
+  }
+
+  it should "release all cached connections" in {
+    FabricConnectionCache.getConnection(key("pw"), connection())
+    FabricConnectionCache.getConnection(key("other"), connection())
+    FabricConnectionCache.releaseAll()
+    assert(closed.get == 2)
+    assert(FabricConnectionCache.size == 0)
+  }
+
+  it should "release the cached connections from its shutdown hook" in {
+    val hook = FabricConnectionCache.releaseHook
+    assert(Runtime.getRuntime.removeShutdownHook(hook))
+    Runtime.getRuntime.addShutdownHook(hook)
+    FabricConnectionCache.getConnection(key("pw"), connection())
+    hook.run()
+    assert(closed.get == 1)
+    assert(FabricConnectionCache.size == 0)
+  }
+}
@@ -0,0 +1,56 @@
+/*******************************************************************************
+* * Copyright 2018 Impetus Infotech.
+* *
+* * Licensed under the Apache License, Version 2.0 (the "License");
+* * you may not use this file except in compliance with the License.
+* * You may obtain a copy of the License at
+* *
+* * http://www.apache.org/licenses/LICENSE-2.0
+* *
+* * Unless required by applicable law or agreed to in writing, software
+* * distributed under the License is distributed on an "AS IS" BASIS,
+* * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* * See the License for the specific language governing permissions and
+* * limitations under the License.
+******************************************************************************/
+package org.apache.spark.sql.fabric
+
+import org.apache.spark.sql.sources.{EqualTo, GreaterThan, GreaterThanOrEqual, StringStartsWith}
+import org.apache.spark.sql.types.{LongType, StringType, StructField, StructType}
+import org.scalatest.FlatSpec
+
+import com.impetus.test.catagory.UnitTest
+
+@UnitTest
+class FabricSourceRelationTest extends FlatSpec {
+
+  val schema = StructType(Seq(StructField("block_no", LongType), StructField("transaction_id", StringType),
+      StructField("channel_id", StringType)))
+
+  "FabricSourceRelation" should "push required columns and filters into the query" in {
+    val query = FabricSourceRelation.rewriteQuery("Select * from transaction where block_no >= 1",
+        Array("transaction_id"), Array(GreaterThan("block_no", 10l), EqualTo("channel_id", "mychannel")), schema)
+    assert(query == Some("SELECT transaction_id FROM transaction WHERE (block_no >= 1) AND block_no > 10 AND channel_id = 'mychannel'"))
+  }
+
+  it should "skip filters the driver can't evaluate" in {
+    val query = FabricSourceRelation.rewriteQuery("select block_no, transaction_id from transaction",
+        Array("block_no"), Array(GreaterThanOrEqual("transaction_id", "a"), StringStartsWith("channel_id", "my")), schema)
+    assert(query == Some("SELECT block_no FROM transaction"))
+  }
+
+  it should "not rewrite queries with expressions or clauses beyond where" in {
+    assert(FabricSourceRelation.rewriteQuery("select count(*) from block", Array(), Array(), schema).isEmpty)
+    assert(FabricSourceRelation.rewriteQuery("select * from block where block_no > 1 order by block_no",
+        Array(), Array(), schema).isEmpty)
+  }
+
+  it should "count block ranges in the driver" in {
+    assert(FabricSourceRelation.countQuery("select * from block where block_no >= 1 and block_no <= 10",
+        Array(GreaterThan("block_no", 5l)), schema) ==
+        Some("SELECT count(*) FROM block WHERE (block_no >= 1 and block_no <= 10) AND block_no > 5"))
+    assert(FabricSourceRelation.countQuery("select * from transaction where channel_id = 'mychannel'",
+        Array(), schema).isEmpty)
+    assert(FabricSourceRelation.countQuery("select * from read_write_set", Array(), schema).isEmpty)
+  }
+}
@@ -0,0 +1,58 @@
+/*******************************************************************************
+* * Copyright 2018 Impetus Infotech.
+* *
+* * Licensed under the Apache License, Version 2.0 (the "License");
+* * you may not use this file except in compliance with the License.
+* * You may obtain a copy of the License at
+* *
+* * http://www.apache.org/licenses/LICENSE-2.0
+* *
+* * Unless required by applicable law or agreed to in writing, software
+* * distributed under the License is distributed on an "AS IS" BASIS,
+* * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* * See the License for the specific language governing permissions and
+* * limitations under the License.
+******************************************************************************/
+package org.apache.spark.sql.fabric
+
+import org.apache.spark.SparkConf
+import org.scalatest.FlatSpec
+
+import com.impetus.blkch.BlkchnException
+import com.impetus.fabric.spark.connector.rdd.WriteConf
+import com.impetus.test.catagory.UnitTest
+
+@UnitTest
+class FabricSparkWriteTest extends FlatSpec {
+
+  private val sparkConf = new SparkConf().set("spark.fabric.chaincode.name", "cc")
+    .set("spark.fabric.chaincode.function", "insert")
+
+  "WriteConf" should "fail on any failed row by default" in {
+    assert(WriteConf(sparkConf).maxFailedRows == 0)
+  }
+
+  it should "read the failed row threshold from options" in {
+    assert(WriteConf(sparkConf, Map("spark.fabric.write.maxFailedRows" -> "5")).maxFailedRows == 5)
+  }
+
+  "FabricSpark" should "accept a partition without failed rows" in {
+    FabricSpark.checkFailedRows(0, 0, null)
+  }
+
+  it should "accept failed rows up to the threshold" in {
+    FabricSpark.checkFailedRows(5, 5, new RuntimeException("rejected"))
+  }
+
+  it should "fail a partition with more failed rows than the threshold" in {
+    val cause = new RuntimeException("rejected")
+    val e = intercept[BlkchnException] {
+      FabricSpark.checkFailedRows(6, 5, cause)
+    }
+    assert(e.getCause eq cause)
+  }
+
+  it should "never fail a partition for a negative threshold" in {
+    FabricSpark.checkFailedRows(1000, -1, new RuntimeException("rejected"))
+  }
+}
@@ -0,0 +1,44 @@
+/*******************************************************************************
+* * Copyright 2018 Impetus Infotech.
+* *
+* * Licensed under the Apache License, Version 2.0 (the "License");
+* * you may not use this file except in compliance with the License.
+* * You may obtain a copy of the License at
+* *
+* * http://www.apache.org/licenses/LICENSE-2.0
+* *
+* * Unless required by applicable law or agreed to in writing, software
+* * distributed under the License is distributed on an "AS IS" BASIS,
+* * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* * See the License for the specific language governing permissions and
+* * limitations under the License.
+******************************************************************************/
+package org.apache.spark.sql.fabric
+
+import org.scalatest.FlatSpec
+
+import com.impetus.test.catagory.UnitTest
+
+@UnitTest
+class FabricStreamSourceTest extends FlatSpec {
+
+  "FabricStreamSource" should "read up to the latest block without a limit" in {
+    assert(FabricStreamSource.nextOffset(100, 10, None) == 100)
+  }
+
+  it should "read at most max blocks per trigger" in {
+    assert(FabricStreamSource.nextOffset(100, 10, Some(20)) == 30)
+    assert(FabricStreamSource.nextOffset(25, 10, Some(20)) == 25)
+  }
+
+  it should "continue from the last batch rather than the initial offset after a restart" in {
+    // Restarted with blocks 1 to 50 processed and a starting block of 1
+    assert(FabricStreamSource.nextOffset(100, 50, Some(20)) == 70)
+  }
+
+  it should "never end before the last batch" in {
+    // A lagging peer reports a lower height than the one the last batch was read from
+    assert(FabricStreamSource.nextOffset(40, 50, Some(20)) == 50)
+    assert(FabricStreamSource.nextOffset(40, 50, None) == 50)
+  }
+}